@@ -37,3 +37,19 @@ tasks.register<JavaExec>("classify") {
     mainClass = "com.hytale.indexer.SurfaceClassifier"
     jvmArgs = listOf("-Xmx4g")
 }
+
+tasks.register<JavaExec>("sourceServer") {
+    group = "application"
+    description = "Serve decompiled sources of single classes on demand"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "com.hytale.indexer.SourceServer"
+    jvmArgs = listOf("-Xmx4g")
+}
+
+tasks.register<JavaExec>("xref") {
+    group = "application"
+    description = "Phase 3: Cross-reference lookups over the bytecode artifacts"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "com.hytale.indexer.Xref"
+    jvmArgs = listOf("-Xmx2g")
+}
@@ -0,0 +1,488 @@
+package com.hytale.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * class-index.json in a binary form that is read in place through a memory mapping.
+ *
+ * Every string and string list in the index is stored once, in a string table
+ * and a list table, and referred to by int id (-1 for null). Types, fields,
+ * methods and parameters are fixed-size records of such ids; a type points at
+ * its run of field and method records, a method at its run of parameters.
+ * Types, fields and methods end with their source range as four ints (-1 when
+ * there is none). A table of type ids sorted by FQCN finds a type by binary search.
+ * <pre>
+ *   header      magic, version, section counts and offsets, JAR hash and timestamp ids
+ *   strings     int[S + 1] offsets, then the UTF-8 bytes
+ *   lists       int[L + 1] offsets, then the string ids of every list
+ *   types       int[T * TYPE_INTS]       fields  int[F * FIELD_INTS]
+ *   methods     int[M * METHOD_INTS]     params  int[P * PARAM_INTS]
+ *   by fqcn     int[T] type ids in FQCN order
+ * </pre>
+ * All ints are big-endian. Opening the index maps the file and reads the header;
+ * {@link #type} materializes one {@link ClassIndexer.ClassEntry} and decodes only
+ * the strings it uses, each once per open index.
+ *
+ * Stored as artifacts/class-index.bin, written alongside class-index.json.
+ */
+final class BinaryClassIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x48594349; // "HYCI"
+    private static final int VERSION = 2;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    // Header: magic, version, 5 counts, 9 section offsets, 2 string ids
+    private static final int HEADER_INTS = 18;
+
+    // Record layouts, in ints
+    private static final int TYPE_INTS = 25;
+    private static final int FIELD_INTS = 9;
+    private static final int METHOD_INTS = 13;
+    private static final int PARAM_INTS = 3;
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final int typeCount;
+    private final long stringOffsets;
+    private final long stringData;
+    private final long listOffsets;
+    private final long listData;
+    private final long types;
+    private final long fields;
+    private final long methods;
+    private final long params;
+    private final long byFqcn;
+    private final String jarHash;
+    private final String generatedAt;
+    // Decoded strings and lists; repeated values come back as the same instance
+    private final String[] stringCache;
+    private final List<?>[] listCache;
+
+    private BinaryClassIndex(Arena arena, MemorySegment segment) {
+        this.arena = arena;
+        this.segment = segment;
+        int stringCount = header(2);
+        int listCount = header(3);
+        this.typeCount = header(4);
+        this.stringOffsets = header(7);
+        this.stringData = header(8);
+        this.listOffsets = header(9);
+        this.listData = header(10);
+        this.types = header(11);
+        this.fields = header(12);
+        this.methods = header(13);
+        this.params = header(14);
+        this.byFqcn = header(15);
+        this.stringCache = new String[stringCount];
+        this.listCache = new List<?>[listCount];
+        this.jarHash = string(header(16));
+        this.generatedAt = string(header(17));
+    }
+
+    private int header(int index) {
+        return segment.get(INT, index * 4L);
+    }
+
+    /** Where the binary form of the JSON index at {@code jsonPath} lives: class-index.json -> class-index.bin. */
+    static Path pathFor(Path jsonPath) {
+        String name = jsonPath.getFileName().toString();
+        return jsonPath.resolveSibling((name.endsWith(".json") ? name.substring(0, name.length() - 5) : name) + ".bin");
+    }
+
+    // --- Writing ---
+
+    /**
+     * Write {@code classes} to {@code path}, with the same header values as the JSON index.
+     */
+    static void write(List<ClassIndexer.ClassEntry> classes, String jarHash, String generatedAt, Path path)
+            throws IOException {
+        Writer w = new Writer();
+        int jarHashId = w.string(jarHash);
+        int generatedAtId = w.string(generatedAt);
+        List<int[]> typeRecords = new ArrayList<>();
+        List<int[]> fieldRecords = new ArrayList<>();
+        List<int[]> methodRecords = new ArrayList<>();
+        List<int[]> paramRecords = new ArrayList<>();
+        for (ClassIndexer.ClassEntry e : classes) {
+            int firstField = fieldRecords.size();
+            if (e.fields != null) {
+                for (ClassIndexer.FieldEntry f : e.fields) {
+                    fieldRecords.add(withRange(f.source_range, w.string(f.name), w.string(f.type),
+                        w.list(f.modifiers), w.list(f.annotations), w.list(f.type_refs)));
+                }
+            }
+            int firstMethod = methodRecords.size();
+            if (e.methods != null) {
+                for (ClassIndexer.MethodEntry m : e.methods) {
+                    int firstParam = paramRecords.size();
+                    if (m.parameters != null) {
+                        for (ClassIndexer.ParameterEntry p : m.parameters) {
+                            paramRecords.add(new int[] {w.string(p.name), w.string(p.type), w.list(p.type_refs)});
+                        }
+                    }
+                    methodRecords.add(withRange(m.source_range, w.string(m.name), w.string(m.return_type),
+                        firstParam, m.parameters != null ? m.parameters.size() : -1, w.list(m.modifiers),
+                        w.list(m.annotations), w.list(m.throws_), w.list(m.return_refs), w.list(m.throws_refs)));
+                }
+            }
+            typeRecords.add(withRange(e.source_range, w.string(e.fqcn), w.string(e.package_), w.string(e.name),
+                w.string(e.kind), w.list(e.modifiers), w.string(e.superclass), w.list(e.interfaces),
+                w.list(e.type_parameters), w.list(e.annotations), w.string(e.superclass_ref),
+                w.list(e.interface_refs), w.list(e.annotation_refs), firstField,
+                e.fields != null ? e.fields.size() : -1, firstMethod, e.methods != null ? e.methods.size() : -1,
+                w.list(e.inner_classes), w.string(e.source_file), w.string(e.outer_class),
+                w.list(e.enclosing_classes), w.list(e.imports)));
+        }
+        Integer[] order = new Integer[classes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer i) -> classes.get(i).fqcn,
+            Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        // Section offsets follow from the sizes
+        byte[][] strings = w.strings.toArray(new byte[0][]);
+        long stringBytes = 0;
+        for (byte[] s : strings) {
+            stringBytes += s.length;
+        }
+        long listInts = 0;
+        for (int[] l : w.lists) {
+            listInts += l.length;
+        }
+        long[] offsets = new long[9];
+        offsets[0] = HEADER_INTS * 4L;
+        offsets[1] = offsets[0] + (strings.length + 1) * 4L;
+        offsets[2] = offsets[1] + stringBytes;
+        offsets[3] = offsets[2] + (w.lists.size() + 1) * 4L;
+        offsets[4] = offsets[3] + listInts * 4;
+        offsets[5] = offsets[4] + typeRecords.size() * (long) TYPE_INTS * 4;
+        offsets[6] = offsets[5] + fieldRecords.size() * (long) FIELD_INTS * 4;
+        offsets[7] = offsets[6] + methodRecords.size() * (long) METHOD_INTS * 4;
+        offsets[8] = offsets[7] + paramRecords.size() * (long) PARAM_INTS * 4;
+        if (offsets[8] + order.length * 4L > Integer.MAX_VALUE) {
+            throw new IOException("Class index too large for the binary format");
+        }
+
+        // Written to a temp file and moved into place, so a reader never maps a half-written index
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(strings.length);
+                out.writeInt(w.lists.size());
+                out.writeInt(typeRecords.size());
+                out.writeInt(fieldRecords.size());
+                out.writeInt(methodRecords.size());
+                for (long offset : offsets) {
+                    out.writeInt((int) offset);
+                }
+                out.writeInt(jarHashId);
+                out.writeInt(generatedAtId);
+
+                int position = 0;
+                out.writeInt(position);
+                for (byte[] s : strings) {
+                    position += s.length;
+                    out.writeInt(position);
+                }
+                for (byte[] s : strings) {
+                    out.write(s);
+                }
+                position = 0;
+                out.writeInt(position);
+                for (int[] l : w.lists) {
+                    position += l.length;
+                    out.writeInt(position);
+                }
+                for (List<int[]> section : List.of(w.lists, typeRecords, fieldRecords, methodRecords, paramRecords)) {
+                    for (int[] record : section) {
+                        for (int v : record) {
+                            out.writeInt(v);
+                        }
+                    }
+                }
+                for (Integer i : order) {
+                    out.writeInt(i);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** A record of {@code ints} followed by the four ints of {@code range}, all -1 for null. */
+    private static int[] withRange(ClassIndexer.SourceRange range, int... ints) {
+        int[] record = Arrays.copyOf(ints, ints.length + 4);
+        if (range != null) {
+            record[ints.length] = range.begin_line;
+            record[ints.length + 1] = range.end_line;
+            record[ints.length + 2] = range.begin_byte;
+            record[ints.length + 3] = range.end_byte;
+        } else {
+            Arrays.fill(record, ints.length, record.length, -1);
+        }
+        return record;
+    }
+
+    /** Numbers each distinct string and list as it is first seen. */
+    private static final class Writer {
+
+        final List<byte[]> strings = new ArrayList<>();
+        final List<int[]> lists = new ArrayList<>();
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final Map<List<String>, Integer> listIds = new HashMap<>();
+
+        int string(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return stringIds.computeIfAbsent(value, v -> {
+                strings.add(v.getBytes(StandardCharsets.UTF_8));
+                return strings.size() - 1;
+            });
+        }
+
+        int list(List<String> values) {
+            if (values == null) {
+                return -1;
+            }
+            Integer id = listIds.get(values);
+            if (id == null) {
+                int[] ids = new int[values.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = string(values.get(i));
+                }
+                lists.add(ids);
+                id = lists.size() - 1;
+                listIds.put(values, id);
+            }
+            return id;
+        }
+    }
+
+    // --- Reading ---
+
+    /**
+     * Map the index at {@code path}. Only the header is read; close the index to unmap it.
+     */
+    static BinaryClassIndex open(Path path) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (segment.byteSize() < HEADER_INTS * 4L || segment.get(INT, 0) != MAGIC) {
+                throw new IOException("Not a binary class index: " + path);
+            }
+            int version = segment.get(INT, 4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary class index version " + version + " in " + path
+                    + " (expected " + VERSION + "; re-run Phase 1)");
+            }
+            return new BinaryClassIndex(arena, segment);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    String jarHash() {
+        return jarHash;
+    }
+
+    String generatedAt() {
+        return generatedAt;
+    }
+
+    int typeCount() {
+        return typeCount;
+    }
+
+    /**
+     * @return the id of the type named {@code fqcn}, or -1
+     */
+    int find(String fqcn) {
+        int lo = 0;
+        int hi = typeCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = segment.get(INT, byFqcn + mid * 4L);
+            String candidate = string(typeInt(id, 0));
+            int c = candidate == null ? -1 : candidate.compareTo(fqcn);
+            if (c == 0) {
+                return id;
+            } else if (c < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /** The FQCN of type {@code id}, without materializing the rest of it. */
+    String fqcn(int id) {
+        return string(typeInt(id, 0));
+    }
+
+    /**
+     * Materialize type {@code id} (0 to {@link #typeCount} - 1, in class-index.json order).
+     */
+    ClassIndexer.ClassEntry type(int id) {
+        ClassIndexer.ClassEntry e = new ClassIndexer.ClassEntry();
+        e.fqcn = string(typeInt(id, 0));
+        e.package_ = string(typeInt(id, 1));
+        e.name = string(typeInt(id, 2));
+        e.kind = string(typeInt(id, 3));
+        e.modifiers = list(typeInt(id, 4));
+        e.superclass = string(typeInt(id, 5));
+        e.interfaces = list(typeInt(id, 6));
+        e.type_parameters = list(typeInt(id, 7));
+        e.annotations = list(typeInt(id, 8));
+        e.superclass_ref = string(typeInt(id, 9));
+        e.interface_refs = list(typeInt(id, 10));
+        e.annotation_refs = list(typeInt(id, 11));
+
+        int fieldCount = typeInt(id, 13);
+        if (fieldCount >= 0) {
+            e.fields = new ArrayList<>(fieldCount);
+            for (int i = typeInt(id, 12), end = i + fieldCount; i < end; i++) {
+                long at = fields + i * (long) FIELD_INTS * 4;
+                ClassIndexer.FieldEntry f = new ClassIndexer.FieldEntry();
+                f.name = string(segment.get(INT, at));
+                f.type = string(segment.get(INT, at + 4));
+                f.modifiers = list(segment.get(INT, at + 8));
+                f.annotations = list(segment.get(INT, at + 12));
+                f.type_refs = list(segment.get(INT, at + 16));
+                f.source_range = range(at + 20);
+                e.fields.add(f);
+            }
+        }
+
+        int methodCount = typeInt(id, 15);
+        if (methodCount >= 0) {
+            e.methods = new ArrayList<>(methodCount);
+            for (int i = typeInt(id, 14), end = i + methodCount; i < end; i++) {
+                long at = methods + i * (long) METHOD_INTS * 4;
+                ClassIndexer.MethodEntry m = new ClassIndexer.MethodEntry();
+                m.name = string(segment.get(INT, at));
+                m.return_type = string(segment.get(INT, at + 4));
+                int paramCount = segment.get(INT, at + 12);
+                if (paramCount >= 0) {
+                    m.parameters = new ArrayList<>(paramCount);
+                    for (int j = segment.get(INT, at + 8), pend = j + paramCount; j < pend; j++) {
+                        long p = params + j * (long) PARAM_INTS * 4;
+                        ClassIndexer.ParameterEntry pe = new ClassIndexer.ParameterEntry();
+                        pe.name = string(segment.get(INT, p));
+                        pe.type = string(segment.get(INT, p + 4));
+                        pe.type_refs = list(segment.get(INT, p + 8));
+                        m.parameters.add(pe);
+                    }
+                }
+                m.modifiers = list(segment.get(INT, at + 16));
+                m.annotations = list(segment.get(INT, at + 20));
+                m.throws_ = list(segment.get(INT, at + 24));
+                m.return_refs = list(segment.get(INT, at + 28));
+                m.throws_refs = list(segment.get(INT, at + 32));
+                m.source_range = range(at + 36);
+                e.methods.add(m);
+            }
+        }
+
+        e.inner_classes = list(typeInt(id, 16));
+        e.source_file = string(typeInt(id, 17));
+        e.outer_class = string(typeInt(id, 18));
+        e.enclosing_classes = list(typeInt(id, 19));
+        e.imports = list(typeInt(id, 20));
+        e.source_range = range(types + (id * (long) TYPE_INTS + 21) * 4);
+        return e;
+    }
+
+    /** Materialize every type, in class-index.json order. */
+    List<ClassIndexer.ClassEntry> types() {
+        List<ClassIndexer.ClassEntry> result = new ArrayList<>(typeCount);
+        for (int id = 0; id < typeCount; id++) {
+            result.add(type(id));
+        }
+        return result;
+    }
+
+    private int typeInt(int id, int field) {
+        return segment.get(INT, types + (id * (long) TYPE_INTS + field) * 4);
+    }
+
+    private ClassIndexer.SourceRange range(long at) {
+        int beginLine = segment.get(INT, at);
+        if (beginLine < 0) {
+            return null;
+        }
+        ClassIndexer.SourceRange r = new ClassIndexer.SourceRange();
+        r.begin_line = beginLine;
+        r.end_line = segment.get(INT, at + 4);
+        r.begin_byte = segment.get(INT, at + 8);
+        r.end_byte = segment.get(INT, at + 12);
+        return r;
+    }
+
+    private String string(int id) {
+        if (id < 0) {
+            return null;
+        }
+        String s = stringCache[id];
+        if (s == null) {
+            int start = segment.get(INT, stringOffsets + id * 4L);
+            int end = segment.get(INT, stringOffsets + (id + 1) * 4L);
+            byte[] bytes = segment.asSlice(stringData + start, end - start).toArray(ValueLayout.JAVA_BYTE);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            stringCache[id] = s;
+        }
+        return s;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> list(int id) {
+        if (id < 0) {
+            return null;
+        }
+        List<String> l = (List<String>) listCache[id];
+        if (l == null) {
+            int start = segment.get(INT, listOffsets + id * 4L);
+            int end = segment.get(INT, listOffsets + (id + 1) * 4L);
+            String[] values = new String[end - start];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = string(segment.get(INT, listData + (start + i) * 4L));
+            }
+            l = Collections.unmodifiableList(Arrays.asList(values));
+            listCache[id] = l;
+        }
+        return l;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
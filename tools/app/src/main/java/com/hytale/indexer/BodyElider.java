@@ -0,0 +1,232 @@
+package com.hytale.indexer;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Strips a Java source down to its declarations before it is parsed.
+ *
+ * The class index only records types, fields and method signatures, yet most of
+ * a decompiled file is method bodies. Every brace block that sits directly in a
+ * type body and is not itself a type body (method, constructor and initializer
+ * bodies, enum constant bodies, and lambdas, anonymous classes or array
+ * initializers in field initializers) is replaced with an empty {@code {}}. The
+ * result still parses, and declares exactly the members the original does:
+ * {@link ClassIndexer} never looks inside the blocks that are dropped.
+ *
+ * This is a lexical pass, not a parse: it tracks comments, string, text block
+ * and character literals so braces inside them are ignored, parentheses so
+ * annotation arguments are left alone, and the type keywords that mark which
+ * blocks are type bodies.
+ */
+final class BodyElider {
+
+    /**
+     * A block replaced with {@code {}}: where the {@code {}} starts in the elided
+     * source, and the block's start and end (exclusive) in the original.
+     */
+    record Block(int elidedStart, int originalStart, int originalEnd) {}
+
+    private BodyElider() {
+    }
+
+    /**
+     * @return {@code source} with member-level blocks emptied, or null if its braces
+     *         do not balance (the caller should parse the original instead)
+     */
+    static String elide(String source) {
+        return elide(source, null);
+    }
+
+    /**
+     * @param blocks  If not null, receives every replaced block, in source order, so
+     *                positions in the result can be mapped back to {@code source}
+     * @return {@code source} with member-level blocks emptied, or null if its braces
+     *         do not balance (the caller should parse the original instead)
+     */
+    static String elide(String source, List<Block> blocks) {
+        StringBuilder out = new StringBuilder(source.length() / 2);
+        // Bit d is set when the brace open at depth d is a type body
+        BitSet typeBodies = new BitSet();
+        int depth = 0;
+        int parens = 0;
+        boolean typeKeyword = false;
+        String previous = "";
+        int copied = 0;
+        int i = 0;
+        int n = source.length();
+        while (i < n) {
+            char c = source.charAt(i);
+            int start = i;
+            if (c == '/' && i + 1 < n && source.charAt(i + 1) == '/') {
+                i = skipLineComment(source, i);
+                continue;
+            }
+            if (c == '/' && i + 1 < n && source.charAt(i + 1) == '*') {
+                i = skipBlockComment(source, i);
+                if (i < 0) {
+                    return null;
+                }
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                i = skipLiteral(source, i);
+                if (i < 0) {
+                    return null;
+                }
+                previous = "\"";
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                while (i < n && Character.isJavaIdentifierPart(source.charAt(i))) {
+                    i++;
+                }
+                String word = source.substring(start, i);
+                if (parens == 0 && !previous.equals(".") && isTypeKeyword(word, source, i)) {
+                    typeKeyword = true;
+                }
+                previous = word;
+                continue;
+            }
+            i++;
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            previous = String.valueOf(c);
+            switch (c) {
+                case '(' -> parens++;
+                case ')' -> parens--;
+                case ';' -> {
+                    if (parens == 0) {
+                        typeKeyword = false;
+                    }
+                }
+                case '{' -> {
+                    if (typeKeyword || depth == 0) {
+                        // A type body: keep scanning inside it
+                        typeBodies.set(++depth);
+                        typeKeyword = false;
+                    } else if (parens == 0 && typeBodies.get(depth)) {
+                        int end = skipBlock(source, start);
+                        if (end < 0) {
+                            return null;
+                        }
+                        out.append(source, copied, start).append("{}");
+                        if (blocks != null) {
+                            blocks.add(new Block(out.length() - 2, start, end));
+                        }
+                        copied = end;
+                        i = end;
+                        previous = "}";
+                    } else {
+                        // An array in annotation arguments
+                        depth++;
+                    }
+                }
+                case '}' -> {
+                    if (depth == 0) {
+                        return null;
+                    }
+                    typeBodies.clear(depth--);
+                    typeKeyword = false;
+                }
+                default -> {
+                }
+            }
+        }
+        if (depth != 0) {
+            return null;
+        }
+        return out.append(source, copied, n).toString();
+    }
+
+    /**
+     * "class", "interface" and "enum" always start a type; "record" only when a
+     * name follows (it is also an ordinary identifier).
+     */
+    private static boolean isTypeKeyword(String word, String source, int end) {
+        return switch (word) {
+            case "class", "interface", "enum" -> true;
+            case "record" -> {
+                int j = end;
+                while (j < source.length() && Character.isWhitespace(source.charAt(j))) {
+                    j++;
+                }
+                yield j < source.length() && Character.isJavaIdentifierStart(source.charAt(j));
+            }
+            default -> false;
+        };
+    }
+
+    /** @return the index just past the brace matching the one at {@code open}, or -1 */
+    private static int skipBlock(String source, int open) {
+        int depth = 0;
+        int i = open;
+        int n = source.length();
+        while (i < n) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < n && source.charAt(i + 1) == '/') {
+                i = skipLineComment(source, i);
+            } else if (c == '/' && i + 1 < n && source.charAt(i + 1) == '*') {
+                i = skipBlockComment(source, i);
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(source, i);
+            } else {
+                i++;
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}' && --depth == 0) {
+                    return i;
+                }
+            }
+            if (i < 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipLineComment(String source, int start) {
+        int end = source.indexOf('\n', start);
+        return end < 0 ? source.length() : end;
+    }
+
+    /** @return the index past the comment, or -1 if it is not closed */
+    private static int skipBlockComment(String source, int start) {
+        int end = source.indexOf("*/", start + 2);
+        return end < 0 ? -1 : end + 2;
+    }
+
+    /** @return the index past the string, text block or character literal at {@code start}, or -1 */
+    private static int skipLiteral(String source, int start) {
+        char quote = source.charAt(start);
+        if (quote == '"' && source.startsWith("\"\"\"", start)) {
+            int i = start + 3;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (source.startsWith("\"\"\"", i)) {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            return -1;
+        }
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return -1;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,115 @@
+package com.hytale.indexer;
+
+import org.jetbrains.java.decompiler.main.decompiler.CancelationManager;
+import org.jetbrains.java.decompiler.main.decompiler.PrintStreamLogger;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vineflower logger that enforces a wall-clock budget per top-level class.
+ *
+ * Vineflower reports the start and end of each class on the worker thread that
+ * processes it, and polls {@link CancelationManager#checkCanceled()} before every
+ * method body. The start hook arms a per-thread deadline; once it has passed, the
+ * next poll on that thread cancels the class. Vineflower then records an error
+ * for that class alone and carries on with the rest of the context.
+ *
+ * The budget is checked between methods, so a single method that never returns
+ * is not interrupted (Vineflower's own per-method limit relies on Thread.stop,
+ * which no longer works). The sharded mode's child timeout covers that case.
+ *
+ * The same hooks time every class that completes, for calibrating {@link DecompileCost},
+ * and gate how many classes are in flight through a {@link ConcurrencyController}:
+ * the start hook waits for a permit before the deadline is armed, so time spent
+ * waiting does not count against the budget.
+ */
+class BudgetLogger extends PrintStreamLogger {
+
+    /** The class being processed on this thread, and when it runs out of time. */
+    private record Deadline(BudgetLogger owner, String className, long startNanos, long deadlineNanos) {}
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    static {
+        // The checker is global; it only acts on threads with an armed deadline
+        CancelationManager.setCancelationChecker(BudgetLogger::checkDeadline);
+    }
+
+    private final long budgetNanos;
+    private final ConcurrencyController concurrency;
+    private final Map<String, Long> overruns = new ConcurrentHashMap<>();
+    private final Map<String, Long> timings = new ConcurrentHashMap<>();
+
+    /**
+     * @param out           Stream for Vineflower's messages
+     * @param budgetMillis  Time allowed per top-level class, or 0 for no limit
+     * @param concurrency   Permits for classes in flight, or null for no limit
+     */
+    BudgetLogger(PrintStream out, long budgetMillis, ConcurrencyController concurrency) {
+        super(out);
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Classes cancelled for exceeding the budget, as internal names
+     * ("com/foo/Bar"), mapped to the milliseconds they ran before cancellation.
+     */
+    Map<String, Long> overruns() {
+        return overruns;
+    }
+
+    /**
+     * Milliseconds each completed top-level class took, by internal name.
+     */
+    Map<String, Long> timings() {
+        return timings;
+    }
+
+    @Override
+    public void startProcessingClass(String className) {
+        super.startProcessingClass(className);
+        if (concurrency != null) {
+            concurrency.acquire();
+        }
+        long now = System.nanoTime();
+        CURRENT.set(new Deadline(this, className, now, budgetNanos > 0 ? now + budgetNanos : Long.MAX_VALUE));
+    }
+
+    @Override
+    public void endProcessingClass() {
+        Deadline d = CURRENT.get();
+        if (d != null && d.owner() == this) {
+            timings.put(d.className(), (System.nanoTime() - d.startNanos()) / 1_000_000L);
+        }
+        CURRENT.remove();
+        if (concurrency != null) {
+            concurrency.release();
+        }
+        super.endProcessingClass();
+    }
+
+    @Override
+    public void writeMessage(String message, Severity severity, Throwable t) {
+        // Budget cancellations are reported once, by checkDeadline, not as a stack trace
+        if (t instanceof CancelationManager.CanceledException) {
+            return;
+        }
+        super.writeMessage(message, severity, t);
+    }
+
+    private static void checkDeadline() {
+        Deadline d = CURRENT.get();
+        if (d == null || System.nanoTime() < d.deadlineNanos()) {
+            return;
+        }
+        long elapsedMillis = (System.nanoTime() - d.startNanos()) / 1_000_000L;
+        if (d.owner().overruns.putIfAbsent(d.className(), elapsedMillis) == null) {
+            System.err.printf("WARN: %s exceeded the decompile budget after %.1f s, falling back to a bytecode stub%n",
+                d.className().replace('/', '.'), elapsedMillis / 1000.0);
+        }
+        CancelationManager.cancel();
+    }
+}
@@ -0,0 +1,762 @@
+package com.hytale.indexer;
+
+import java.io.IOException;
+import java.lang.classfile.Annotation;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassSignature;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodSignature;
+import java.lang.classfile.Signature;
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.attribute.InnerClassInfo;
+import java.lang.classfile.attribute.LocalVariableInfo;
+import java.lang.classfile.attribute.MethodParameterInfo;
+import java.lang.classfile.attribute.RecordComponentInfo;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.classfile.instruction.FieldInstruction;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.classfile.instruction.LoadInstruction;
+import java.lang.classfile.instruction.ReturnInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Builds the class index straight from the JAR's class files, without decompiling.
+ *
+ * Every field of {@link ClassIndexer.ClassEntry} is already in the class files:
+ * generics come from Signature attributes, annotations from the
+ * Runtime(In)VisibleAnnotations attributes, parameter names from MethodParameters
+ * or the local variable table. Entries are shaped the way {@link ClassIndexer}
+ * shapes them from Vineflower output — simple type names, implicit members
+ * (enum constants and values/valueOf, generated record members, synthetics)
+ * left out, modifiers as Vineflower prints them, unnamed parameters as
+ * "var&lt;slot&gt;". Nested class names come from the InnerClasses attributes
+ * (outer class plus inner name), never from splitting at '$', which is legal in
+ * a class name. Both modes list classes in FQCN order and inner_classes by name,
+ * since the class files do not keep the declaration order. Source ranges and
+ * imports exist only in a parsed index, and source-only annotations (@Override,
+ * @SuppressWarnings) have no bytecode trace and are missing.
+ *
+ * On top of the display names, every entry carries the exact classes its
+ * supertypes, annotations, field, parameter, return and throws types refer to
+ * (the *_ref/*_refs fields), read from descriptors and Signature attributes, so
+ * consumers follow type edges by lookup instead of resolving simple names.
+ * {@link #attachTypeRefs} copies them onto an index parsed from decompiled sources.
+ *
+ * Class groups are indexed in parallel; each top-level class of a group becomes
+ * the entries of its would-be source file, as in the JavaParser pipeline.
+ */
+public class BytecodeIndexer {
+
+    /**
+     * Index every class group under the decompiler's include prefixes and write class-index.json.
+     */
+    public void index(Path jarPath, Path outputPath, String jarHash) throws IOException {
+        long start = System.currentTimeMillis();
+        AtomicInteger errors = new AtomicInteger(0);
+        Map<String, List<ClassIndexer.ClassEntry>> results = indexJar(jarPath, errors);
+
+        List<ClassIndexer.ClassEntry> classes = new ArrayList<>();
+        new TreeMap<>(results).values().forEach(classes::addAll);
+        classes.sort(Comparator.comparing(c -> c.fqcn));
+        System.out.printf("Indexed %d class groups from bytecode in %.1f seconds, %d errors%n",
+            results.size(), (System.currentTimeMillis() - start) / 1000.0, errors.get());
+        ClassIndexer.writeIndex(classes, outputPath, jarHash);
+    }
+
+    /**
+     * Fill in the exact type references of entries parsed from decompiled sources,
+     * from the same JAR's bytecode. Fields are matched by name, methods by name and
+     * identical parameter types, else by the one overload whose erased simple
+     * parameter names match. Ambiguous or unmatched entries keep null references.
+     *
+     * @return number of classes that received references
+     */
+    static int attachTypeRefs(Path jarPath, List<ClassIndexer.ClassEntry> classes) throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, ClassIndexer.ClassEntry> byFqcn = new HashMap<>();
+        for (List<ClassIndexer.ClassEntry> group : indexJar(jarPath, new AtomicInteger(0)).values()) {
+            for (ClassIndexer.ClassEntry e : group) {
+                byFqcn.put(e.fqcn, e);
+            }
+        }
+
+        int attached = 0;
+        for (ClassIndexer.ClassEntry entry : classes) {
+            ClassIndexer.ClassEntry bytecode = byFqcn.get(entry.fqcn);
+            if (bytecode == null) {
+                continue;
+            }
+            entry.superclass_ref = bytecode.superclass_ref;
+            entry.interface_refs = bytecode.interface_refs;
+            entry.annotation_refs = bytecode.annotation_refs;
+
+            Map<String, ClassIndexer.FieldEntry> fields = new HashMap<>();
+            for (ClassIndexer.FieldEntry f : bytecode.fields) {
+                fields.put(f.name, f);
+            }
+            for (ClassIndexer.FieldEntry f : entry.fields) {
+                ClassIndexer.FieldEntry match = fields.get(f.name);
+                if (match != null) {
+                    f.type_refs = match.type_refs;
+                }
+            }
+
+            List<ClassIndexer.MethodEntry> unmatched = new ArrayList<>(bytecode.methods);
+            for (ClassIndexer.MethodEntry m : entry.methods) {
+                ClassIndexer.MethodEntry match = matchMethod(m, unmatched);
+                if (match == null) {
+                    continue;
+                }
+                unmatched.remove(match);
+                m.return_refs = match.return_refs;
+                m.throws_refs = match.throws_refs;
+                for (int i = 0; i < m.parameters.size(); i++) {
+                    m.parameters.get(i).type_refs = match.parameters.get(i).type_refs;
+                }
+            }
+            attached++;
+        }
+        System.out.printf("Attached exact type references to %d of %d types in %.1f seconds%n",
+            attached, classes.size(), (System.currentTimeMillis() - start) / 1000.0);
+        return attached;
+    }
+
+    /**
+     * The bytecode method {@code m} was parsed from: the one with the same name and
+     * parameter types as written, else the only one whose parameter types agree
+     * once erased to simple names (source and bytecode may qualify a type or its
+     * type arguments differently). Null if there is none or the erased types are
+     * still ambiguous, so a method never takes the references of another overload.
+     */
+    private static ClassIndexer.MethodEntry matchMethod(ClassIndexer.MethodEntry m,
+                                                        List<ClassIndexer.MethodEntry> candidates) {
+        ClassIndexer.MethodEntry erasedMatch = null;
+        int erasedMatches = 0;
+        for (ClassIndexer.MethodEntry c : candidates) {
+            if (!c.name.equals(m.name) || c.parameters.size() != m.parameters.size()) {
+                continue;
+            }
+            boolean sameTypes = true;
+            boolean sameErasure = true;
+            for (int i = 0; i < c.parameters.size() && sameErasure; i++) {
+                String candidate = c.parameters.get(i).type;
+                String parsed = m.parameters.get(i).type;
+                sameTypes &= candidate.equals(parsed);
+                sameErasure = sameTypes || erasedSimpleName(candidate).equals(erasedSimpleName(parsed));
+            }
+            if (sameTypes) {
+                return c;
+            }
+            if (sameErasure) {
+                erasedMatch = c;
+                erasedMatches++;
+            }
+        }
+        return erasedMatches == 1 ? erasedMatch : null;
+    }
+
+    /** A type as written, without type arguments, qualification or spaces: "java.util.Map.Entry<K, V>[]" -> "Entry[]". */
+    private static String erasedSimpleName(String type) {
+        StringBuilder erased = new StringBuilder(type.length());
+        int depth = 0;
+        for (int i = 0; i < type.length(); i++) {
+            char c = type.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (depth == 0 && !Character.isWhitespace(c)) {
+                erased.append(c);
+            }
+        }
+        return erased.substring(erased.lastIndexOf(".") + 1);
+    }
+
+    /**
+     * @return source file -> entries of its class group, for every included group of the JAR
+     */
+    private static Map<String, List<ClassIndexer.ClassEntry>> indexJar(Path jarPath, AtomicInteger errors)
+            throws IOException {
+        Map<String, List<ClassIndexer.ClassEntry>> results = new ConcurrentHashMap<>();
+        ModelPool pool = new ModelPool();
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            Map<String, List<JarEntry>> groups = Decompiler.groupClasses(jf);
+            System.out.println("Indexing " + groups.size() + " class groups from bytecode");
+            groups.entrySet().parallelStream().forEach(group -> {
+                String sourceFile = "decompiled/" + group.getKey() + ".java";
+                try {
+                    results.put(sourceFile, indexGroup(Decompiler.readGroup(jf, group.getValue(), Map.of()), pool));
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                    System.err.println("WARN: Failed to index " + group.getKey().replace('/', '.') + ": " + e.getMessage());
+                }
+            });
+        }
+        return results;
+    }
+
+    /**
+     * @param groupEntries class file entry name -> class file bytes for one class group
+     * @param pool         Pool shared by the entries of the whole index
+     * @return entries for the group's top-level classes and their member classes, members first
+     */
+    static List<ClassIndexer.ClassEntry> indexGroup(SortedMap<String, byte[]> groupEntries, ModelPool pool) {
+        Map<String, ClassModel> models = new TreeMap<>();
+        for (byte[] bytes : groupEntries.values()) {
+            ClassModel model = ClassFile.of().parse(bytes);
+            models.put(model.thisClass().asInternalName(), model);
+        }
+
+        // Nested classes as the InnerClasses attributes declare them; the rest are top-level,
+        // including classes whose own name contains '$' that the group gathered by name
+        Map<String, Member> members = new HashMap<>();
+        Set<String> nested = new HashSet<>();
+        for (ClassModel model : models.values()) {
+            for (InnerClassInfo inner : innerClasses(model)) {
+                String name = inner.innerClass().asInternalName();
+                nested.add(name);
+                if (inner.outerClass().isPresent() && inner.innerName().isPresent()) {
+                    members.putIfAbsent(name, new Member(inner.outerClass().get().asInternalName(),
+                        inner.innerName().get().stringValue()));
+                }
+            }
+        }
+
+        List<ClassIndexer.ClassEntry> classes = new ArrayList<>();
+        for (ClassModel model : models.values()) {
+            String top = model.thisClass().asInternalName();
+            if (nested.contains(top)) {
+                continue;
+            }
+            int slash = top.lastIndexOf('/');
+            String pkg = slash < 0 ? "" : top.substring(0, slash);
+            new Reader(models, members, pool, new BytecodeStubs.Imports(pkg, top), pkg.replace('/', '.'),
+                "decompiled/" + top + ".java")
+                .readClass(model, top.substring(slash + 1), model.flags().flagsMask(), false, null, classes);
+        }
+        if (classes.isEmpty()) {
+            throw new IllegalArgumentException("Class group has no top-level class: "
+                + Decompiler.groupOf(groupEntries.firstKey()));
+        }
+        return classes;
+    }
+
+    private static List<InnerClassInfo> innerClasses(ClassModel cm) {
+        return cm.findAttribute(Attributes.innerClasses()).map(a -> a.classes()).orElse(List.of());
+    }
+
+    /** A member class: the class declaring it and its simple name, from an InnerClasses entry. */
+    private record Member(String outer, String name) {}
+
+    /** Turns the class models of one group into entries; type names go through the shared imports. */
+    private static final class Reader {
+
+        private final Map<String, ClassModel> models;
+        private final Map<String, Member> members;
+        private final ModelPool pool;
+        private final BytecodeStubs.Imports imports;
+        private final String packageName;
+        private final String sourceFile;
+
+        Reader(Map<String, ClassModel> models, Map<String, Member> members, ModelPool pool,
+               BytecodeStubs.Imports imports, String packageName, String sourceFile) {
+            this.models = models;
+            this.members = members;
+            this.pool = pool;
+            this.imports = imports;
+            this.packageName = packageName;
+            this.sourceFile = sourceFile;
+        }
+
+        void readClass(ClassModel cm, String simpleName, int flags, boolean nested,
+                       String enclosingFqcn, List<ClassIndexer.ClassEntry> classes) {
+            String self = cm.thisClass().asInternalName();
+            List<RecordComponentInfo> components = cm.findAttribute(Attributes.record())
+                .map(r -> r.components()).orElse(null);
+            boolean isAnnotation = (flags & ClassFile.ACC_ANNOTATION) != 0;
+            boolean isInterface = (flags & ClassFile.ACC_INTERFACE) != 0;
+            boolean isEnum = (flags & ClassFile.ACC_ENUM) != 0;
+            boolean isRecord = components != null;
+
+            ClassIndexer.ClassEntry entry = new ClassIndexer.ClassEntry();
+            entry.name = simpleName;
+            entry.package_ = packageName;
+            entry.fqcn = enclosingFqcn != null
+                ? enclosingFqcn + "." + simpleName
+                : (packageName.isEmpty() ? simpleName : packageName + "." + simpleName);
+            entry.source_file = sourceFile;
+            ClassIndexer.setNesting(entry, enclosingFqcn);
+            entry.kind = isAnnotation ? "annotation" : isInterface ? "interface"
+                : isEnum ? "enum" : isRecord ? "record" : "class";
+
+            // Modifiers in Vineflower's order; interfaces, enums and records omit the implicit ones
+            entry.modifiers = new ArrayList<>();
+            addAccess(flags, entry.modifiers);
+            boolean plainClass = !isInterface && !isEnum && !isRecord;
+            if (plainClass && (flags & ClassFile.ACC_ABSTRACT) != 0) {
+                entry.modifiers.add("abstract");
+            }
+            if (nested && (flags & ClassFile.ACC_STATIC) != 0 && (plainClass || isEnum)) {
+                entry.modifiers.add("static");
+            }
+            if (plainClass && (flags & ClassFile.ACC_FINAL) != 0) {
+                entry.modifiers.add("final");
+            }
+            if (cm.findAttribute(Attributes.permittedSubclasses()).isPresent()) {
+                entry.modifiers.add("sealed");
+            }
+
+            List<Annotation> visible = cm.findAttribute(Attributes.runtimeVisibleAnnotations())
+                .map(a -> a.annotations()).orElse(List.of());
+            List<Annotation> invisible = cm.findAttribute(Attributes.runtimeInvisibleAnnotations())
+                .map(a -> a.annotations()).orElse(List.of());
+            entry.annotations = annotations(visible, invisible);
+            entry.annotation_refs = annotationRefs(visible, invisible);
+
+            // Supertypes by simple name, as JavaParser's ClassOrInterfaceType.getNameAsString() gives them
+            ClassSignature signature = cm.findAttribute(Attributes.signature())
+                .map(s -> s.asClassSignature()).orElse(null);
+            List<String> interfaces = new ArrayList<>();
+            List<String> interfaceRefs = new ArrayList<>();
+            for (ClassEntry itf : cm.interfaces()) {
+                interfaces.add(simpleName(itf.asInternalName()));
+                interfaceRefs.add(fqcn(itf.asInternalName()));
+            }
+            entry.superclass_ref = isInterface ? null
+                : fqcn(cm.superclass().map(ClassEntry::asInternalName).orElse("java/lang/Object"));
+            entry.interface_refs = isAnnotation ? List.of() : interfaceRefs;
+            entry.type_parameters = new ArrayList<>();
+            if (signature != null) {
+                for (Signature.TypeParam p : signature.typeParameters()) {
+                    entry.type_parameters.add(p.identifier());
+                }
+            }
+            if (isAnnotation) {
+                entry.superclass = "java.lang.Object";
+                entry.interfaces = List.of();
+                entry.type_parameters = List.of();
+            } else if (isInterface) {
+                entry.superclass = null;
+                entry.interfaces = interfaces;
+            } else if (isEnum) {
+                entry.superclass = "java.lang.Enum";
+                entry.interfaces = interfaces;
+                entry.type_parameters = List.of();
+            } else if (isRecord) {
+                entry.superclass = "java.lang.Record";
+                entry.interfaces = interfaces;
+            } else {
+                String superName = cm.superclass().map(ClassEntry::asInternalName).orElse("java/lang/Object");
+                entry.superclass = superName.equals("java/lang/Object") ? "java.lang.Object" : simpleName(superName);
+                entry.interfaces = interfaces;
+            }
+
+            Set<String> componentNames = new HashSet<>();
+            if (isRecord) {
+                for (RecordComponentInfo c : components) {
+                    componentNames.add(c.name().stringValue());
+                }
+            }
+
+            // Fields (enum constants and record component fields are not fields in the source)
+            entry.fields = new ArrayList<>();
+            for (FieldModel f : cm.fields()) {
+                int ff = f.flags().flagsMask();
+                String name = f.fieldName().stringValue();
+                if ((ff & (ClassFile.ACC_SYNTHETIC | ClassFile.ACC_ENUM)) != 0
+                        || (isRecord && (ff & ClassFile.ACC_STATIC) == 0 && componentNames.contains(name))) {
+                    continue;
+                }
+                ClassIndexer.FieldEntry fe = new ClassIndexer.FieldEntry();
+                fe.name = name;
+                Signature fieldSignature = f.findAttribute(Attributes.signature())
+                    .map(s -> s.asTypeSignature()).orElse(null);
+                fe.type = fieldSignature != null ? render(fieldSignature) : type(f.fieldTypeSymbol());
+                fe.type_refs = fieldSignature != null ? refs(fieldSignature) : refs(f.fieldTypeSymbol());
+                fe.modifiers = new ArrayList<>();
+                if (!isInterface) {
+                    addAccess(ff, fe.modifiers);
+                    addIf(ff, ClassFile.ACC_STATIC, "static", fe.modifiers);
+                    addIf(ff, ClassFile.ACC_FINAL, "final", fe.modifiers);
+                    addIf(ff, ClassFile.ACC_TRANSIENT, "transient", fe.modifiers);
+                    addIf(ff, ClassFile.ACC_VOLATILE, "volatile", fe.modifiers);
+                }
+                fe.annotations = annotations(f.findAttribute(Attributes.runtimeVisibleAnnotations())
+                    .map(a -> a.annotations()).orElse(List.of()),
+                    f.findAttribute(Attributes.runtimeInvisibleAnnotations())
+                    .map(a -> a.annotations()).orElse(List.of()));
+                entry.fields.add(fe);
+            }
+
+            // Methods (annotation elements are not methods to JavaParser)
+            entry.methods = new ArrayList<>();
+            if (!isAnnotation) {
+                for (MethodModel m : cm.methods()) {
+                    ClassIndexer.MethodEntry me = readMethod(m, isInterface, isEnum, components);
+                    if (me != null) {
+                        entry.methods.add(me);
+                    }
+                }
+            }
+
+            // Member classes: named, declared directly in this class, and part of the group;
+            // by name, as the class file does not keep their declaration order
+            entry.inner_classes = new ArrayList<>();
+            List<InnerClassInfo> inners = new ArrayList<>(innerClasses(cm));
+            inners.sort(Comparator.comparing(i -> i.innerName().map(n -> n.stringValue()).orElse("")));
+            for (InnerClassInfo inner : inners) {
+                boolean member = inner.outerClass().map(o -> o.asInternalName().equals(self)).orElse(false)
+                    && inner.innerName().isPresent();
+                ClassModel innerModel = models.get(inner.innerClass().asInternalName());
+                if (member && innerModel != null && (inner.flagsMask() & ClassFile.ACC_SYNTHETIC) == 0) {
+                    String innerName = inner.innerName().get().stringValue();
+                    entry.inner_classes.add(innerName);
+                    readClass(innerModel, innerName, inner.flagsMask(), true, entry.fqcn, classes);
+                }
+            }
+
+            pool.canonicalize(entry);
+            classes.add(entry);
+        }
+
+        /**
+         * @return the method's entry, or null for members the source does not declare
+         */
+        private ClassIndexer.MethodEntry readMethod(MethodModel m, boolean isInterface, boolean isEnum,
+                                                    List<RecordComponentInfo> components) {
+            int mf = m.flags().flagsMask();
+            String name = m.methodName().stringValue();
+            MethodTypeDesc desc = m.methodTypeSymbol();
+            if ((mf & (ClassFile.ACC_SYNTHETIC | ClassFile.ACC_BRIDGE)) != 0
+                    || name.equals("<init>") || name.equals("<clinit>") || name.startsWith("lambda$")) {
+                return null;
+            }
+            if (isEnum && ((name.equals("values") && desc.parameterCount() == 0)
+                    || (name.equals("valueOf") && desc.parameterCount() == 1
+                        && desc.parameterType(0).descriptorString().equals("Ljava/lang/String;")))) {
+                return null;
+            }
+            if (components != null && isGeneratedRecordMember(m, name, desc, components)) {
+                return null;
+            }
+
+            MethodSignature signature = m.findAttribute(Attributes.signature())
+                .map(s -> s.asMethodSignature()).orElse(null);
+            ClassIndexer.MethodEntry me = new ClassIndexer.MethodEntry();
+            me.name = name;
+            me.return_type = signature != null ? render(signature.result()) : type(desc.returnType());
+            me.return_refs = signature != null ? refs(signature.result()) : refs(desc.returnType());
+
+            boolean isAbstract = (mf & ClassFile.ACC_ABSTRACT) != 0;
+            boolean isStatic = (mf & ClassFile.ACC_STATIC) != 0;
+            me.modifiers = new ArrayList<>();
+            if (isInterface) {
+                if ((mf & ClassFile.ACC_PRIVATE) != 0) {
+                    me.modifiers.add("private");
+                } else if (!isAbstract && !isStatic) {
+                    me.modifiers.add("default");
+                }
+            } else {
+                addAccess(mf, me.modifiers);
+                if (isAbstract) {
+                    me.modifiers.add("abstract");
+                }
+            }
+            addIf(mf, ClassFile.ACC_STATIC, "static", me.modifiers);
+            addIf(mf, ClassFile.ACC_FINAL, "final", me.modifiers);
+            addIf(mf, ClassFile.ACC_SYNCHRONIZED, "synchronized", me.modifiers);
+            addIf(mf, ClassFile.ACC_NATIVE, "native", me.modifiers);
+
+            me.annotations = annotations(m.findAttribute(Attributes.runtimeVisibleAnnotations())
+                .map(a -> a.annotations()).orElse(List.of()),
+                m.findAttribute(Attributes.runtimeInvisibleAnnotations())
+                .map(a -> a.annotations()).orElse(List.of()));
+
+            me.throws_ = new ArrayList<>();
+            Set<String> throwsRefs = new LinkedHashSet<>();
+            if (signature != null && !signature.throwableSignatures().isEmpty()) {
+                for (Signature t : signature.throwableSignatures()) {
+                    me.throws_.add(render(t));
+                    collectRefs(t, throwsRefs);
+                }
+            } else {
+                m.findAttribute(Attributes.exceptions()).ifPresent(attr -> {
+                    for (ClassEntry e : attr.exceptions()) {
+                        me.throws_.add(imports.name(e.asInternalName()));
+                        throwsRefs.add(fqcn(e.asInternalName()));
+                    }
+                });
+            }
+            me.throws_refs = new ArrayList<>(throwsRefs);
+
+            // Parameter types; a varargs parameter's type is its element type, as in JavaParser
+            List<String> types = new ArrayList<>();
+            List<List<String>> typeRefs = new ArrayList<>();
+            if (signature != null && signature.arguments().size() == desc.parameterCount()) {
+                for (Signature arg : signature.arguments()) {
+                    types.add(render(arg));
+                    typeRefs.add(refs(arg));
+                }
+            } else {
+                for (ClassDesc p : desc.parameterList()) {
+                    types.add(type(p));
+                    typeRefs.add(refs(p));
+                }
+            }
+            if ((mf & ClassFile.ACC_VARARGS) != 0 && !types.isEmpty()) {
+                String last = types.get(types.size() - 1);
+                if (last.endsWith("[]")) {
+                    types.set(types.size() - 1, last.substring(0, last.length() - 2));
+                }
+            }
+            List<String> names = parameterNames(m, desc, isStatic);
+            me.parameters = new ArrayList<>();
+            for (int i = 0; i < types.size(); i++) {
+                ClassIndexer.ParameterEntry pe = new ClassIndexer.ParameterEntry();
+                pe.name = names.get(i);
+                pe.type = types.get(i);
+                pe.type_refs = typeRefs.get(i);
+                me.parameters.add(pe);
+            }
+            return me;
+        }
+
+        /**
+         * Parameter names from MethodParameters, else the local variable table, else
+         * Vineflower's "var&lt;slot&gt;".
+         */
+        private static List<String> parameterNames(MethodModel m, MethodTypeDesc desc, boolean isStatic) {
+            List<String> names = new ArrayList<>();
+            m.findAttribute(Attributes.methodParameters()).ifPresent(attr -> {
+                for (MethodParameterInfo p : attr.parameters()) {
+                    names.add(p.name().map(n -> n.stringValue()).orElse(null));
+                }
+            });
+            if (names.size() == desc.parameterCount() && !names.contains(null)) {
+                return names;
+            }
+
+            Map<Integer, String> locals = new HashMap<>();
+            m.findAttribute(Attributes.code()).ifPresent(code ->
+                code.findAttribute(Attributes.localVariableTable()).ifPresent(lvt -> {
+                    for (LocalVariableInfo local : lvt.localVariables()) {
+                        if (local.startPc() == 0) {
+                            locals.putIfAbsent(local.slot(), local.name().stringValue());
+                        }
+                    }
+                }));
+            names.clear();
+            int slot = isStatic ? 0 : 1;
+            for (ClassDesc p : desc.parameterList()) {
+                names.add(locals.getOrDefault(slot, "var" + slot));
+                slot += p.descriptorString().equals("J") || p.descriptorString().equals("D") ? 2 : 1;
+            }
+            return names;
+        }
+
+        /**
+         * Record members Vineflower hides because javac generated them: accessors that
+         * only return their field, and the ObjectMethods-based equals/hashCode/toString.
+         */
+        private static boolean isGeneratedRecordMember(MethodModel m, String name, MethodTypeDesc desc,
+                                                       List<RecordComponentInfo> components) {
+            CodeAttribute code = m.findAttribute(Attributes.code()).orElse(null);
+            if (code == null) {
+                return false;
+            }
+            List<Instruction> instructions = new ArrayList<>();
+            for (CodeElement element : code) {
+                if (element instanceof Instruction instruction) {
+                    instructions.add(instruction);
+                }
+            }
+            if ((name.equals("toString") && desc.parameterCount() == 0)
+                    || (name.equals("hashCode") && desc.parameterCount() == 0)
+                    || (name.equals("equals") && desc.parameterCount() == 1)) {
+                for (Instruction instruction : instructions) {
+                    if (instruction instanceof InvokeDynamicInstruction indy
+                            && indy.bootstrapMethod().owner().descriptorString().equals("Ljava/lang/runtime/ObjectMethods;")) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (desc.parameterCount() == 0 && instructions.size() == 3
+                    && instructions.get(0) instanceof LoadInstruction load && load.slot() == 0
+                    && instructions.get(1) instanceof FieldInstruction field && field.name().stringValue().equals(name)
+                    && instructions.get(2) instanceof ReturnInstruction) {
+                for (RecordComponentInfo c : components) {
+                    if (c.name().stringValue().equals(name)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private List<String> annotations(List<Annotation> visible, List<Annotation> invisible) {
+            List<String> names = new ArrayList<>();
+            for (Annotation a : visible) {
+                names.add(type(a.classSymbol()));
+            }
+            for (Annotation a : invisible) {
+                names.add(type(a.classSymbol()));
+            }
+            return names;
+        }
+
+        private List<String> annotationRefs(List<Annotation> visible, List<Annotation> invisible) {
+            List<String> refs = new ArrayList<>();
+            for (Annotation a : visible) {
+                refs.addAll(refs(a.classSymbol()));
+            }
+            for (Annotation a : invisible) {
+                refs.addAll(refs(a.classSymbol()));
+            }
+            return refs;
+        }
+
+        /** Classes a generic type mentions, type arguments included; type variables and primitives name none. */
+        private List<String> refs(Signature sig) {
+            Set<String> refs = new LinkedHashSet<>();
+            collectRefs(sig, refs);
+            return new ArrayList<>(refs);
+        }
+
+        private void collectRefs(Signature sig, Set<String> refs) {
+            if (sig instanceof Signature.ArrayTypeSig array) {
+                collectRefs(array.componentSignature(), refs);
+            } else if (sig instanceof Signature.ClassTypeSig cls) {
+                refs.add(fqcn(internalName(cls)));
+                for (Signature.ClassTypeSig outer = cls.outerType().orElse(null); outer != null;
+                     outer = outer.outerType().orElse(null)) {
+                    for (Signature.TypeArg arg : outer.typeArgs()) {
+                        if (arg instanceof Signature.TypeArg.Bounded bounded) {
+                            collectRefs(bounded.boundType(), refs);
+                        }
+                    }
+                }
+                for (Signature.TypeArg arg : cls.typeArgs()) {
+                    if (arg instanceof Signature.TypeArg.Bounded bounded) {
+                        collectRefs(bounded.boundType(), refs);
+                    }
+                }
+            }
+        }
+
+        private List<String> refs(ClassDesc desc) {
+            while (desc.isArray()) {
+                desc = desc.componentType();
+            }
+            if (desc.isPrimitive()) {
+                return new ArrayList<>();
+            }
+            String d = desc.descriptorString();
+            List<String> refs = new ArrayList<>();
+            refs.add(fqcn(d.substring(1, d.length() - 1)));
+            return refs;
+        }
+
+        /** Binary name of a signature's class; an inner class's name is relative to its outer type. */
+        private static String internalName(Signature.ClassTypeSig cls) {
+            return cls.outerType()
+                .map(outer -> internalName(outer) + "$" + cls.className())
+                .orElse(cls.className());
+        }
+
+        /**
+         * A class as the index spells fqcn: a member class is its outer class's fqcn
+         * plus its inner name ("a/b/Outer$Inner" -> "a.b.Outer.Inner"); any other class
+         * keeps its binary name, '$' included.
+         */
+        private String fqcn(String internalName) {
+            Member member = members.get(internalName);
+            return member != null && !member.outer().equals(internalName)
+                ? fqcn(member.outer()) + "." + member.name()
+                : internalName.replace('/', '.');
+        }
+
+        private String render(Signature sig) {
+            if (sig instanceof Signature.BaseTypeSig base) {
+                return ClassDesc.ofDescriptor(String.valueOf(base.baseType())).displayName();
+            }
+            if (sig instanceof Signature.TypeVarSig var) {
+                return var.identifier();
+            }
+            if (sig instanceof Signature.ArrayTypeSig array) {
+                return render(array.componentSignature()) + "[]";
+            }
+            Signature.ClassTypeSig cls = (Signature.ClassTypeSig) sig;
+            String name = cls.outerType()
+                .map(outer -> render(outer) + "." + cls.className())
+                .orElseGet(() -> imports.name(cls.className()));
+            if (cls.typeArgs().isEmpty()) {
+                return name;
+            }
+            List<String> args = new ArrayList<>();
+            for (Signature.TypeArg arg : cls.typeArgs()) {
+                if (arg instanceof Signature.TypeArg.Bounded bounded) {
+                    String bound = render(bounded.boundType());
+                    args.add(switch (bounded.wildcardIndicator()) {
+                        case NONE -> bound;
+                        case EXTENDS -> "? extends " + bound;
+                        case SUPER -> "? super " + bound;
+                    });
+                } else {
+                    args.add("?");
+                }
+            }
+            return name + "<" + String.join(", ", args) + ">";
+        }
+
+        private String type(ClassDesc desc) {
+            if (desc.isArray()) {
+                return type(desc.componentType()) + "[]";
+            }
+            if (desc.isPrimitive()) {
+                return desc.displayName();
+            }
+            String d = desc.descriptorString();
+            return imports.name(d.substring(1, d.length() - 1));
+        }
+
+        /** Simple name of a class: its inner name if it is a member class, else its name without the package. */
+        private String simpleName(String internalName) {
+            Member member = members.get(internalName);
+            return member != null ? member.name() : internalName.substring(internalName.lastIndexOf('/') + 1);
+        }
+
+        private static void addAccess(int flags, List<String> modifiers) {
+            addIf(flags, ClassFile.ACC_PUBLIC, "public", modifiers);
+            addIf(flags, ClassFile.ACC_PROTECTED, "protected", modifiers);
+            addIf(flags, ClassFile.ACC_PRIVATE, "private", modifiers);
+        }
+
+        private static void addIf(int flags, int flag, String keyword, List<String> modifiers) {
+            if ((flags & flag) != 0) {
+                modifiers.add(keyword);
+            }
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.hytale.indexer;
+
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassSignature;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodSignature;
+import java.lang.classfile.Signature;
+import java.lang.classfile.attribute.ExceptionsAttribute;
+import java.lang.classfile.attribute.InnerClassInfo;
+import java.lang.classfile.attribute.MethodParameterInfo;
+import java.lang.classfile.attribute.RecordComponentInfo;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeSet;
+
+/**
+ * Generates signature-only Java source for a class group straight from its bytecode.
+ *
+ * Used for classes Vineflower could not decompile within the time budget, and
+ * for classes outside the API surface in surface-only mode: the stub declares
+ * the same types, fields, constructors and methods (with generic signatures,
+ * parameter names where the class file records them, and throws clauses) so
+ * {@link ClassIndexer} still indexes every member. Method bodies
+ * throw, annotations and field initializers are omitted, and synthetic members
+ * are dropped as Vineflower would drop them.
+ */
+final class BytecodeStubs {
+
+    private static final String STUB_BODY = "throw new UnsupportedOperationException(\"bytecode stub\");";
+
+    private BytecodeStubs() {
+    }
+
+    /**
+     * @param groupEntries class file entry name -> class file bytes for one class group
+     * @param reason       Why the group was not decompiled, stated in the stub's header comment
+     * @return Java source for the group's top-level class with its member classes nested inside
+     */
+    static String generate(SortedMap<String, byte[]> groupEntries, String reason) {
+        Map<String, ClassModel> models = new HashMap<>();
+        for (byte[] bytes : groupEntries.values()) {
+            ClassModel model = ClassFile.of().parse(bytes);
+            models.put(model.thisClass().asInternalName(), model);
+        }
+        String top = Decompiler.groupOf(groupEntries.firstKey());
+        ClassModel topModel = models.get(top);
+        if (topModel == null) {
+            throw new IllegalArgumentException("Class group has no top-level class: " + top);
+        }
+
+        int slash = top.lastIndexOf('/');
+        String pkg = slash < 0 ? "" : top.substring(0, slash);
+        Imports imports = new Imports(pkg, top);
+
+        StringBuilder body = new StringBuilder();
+        new Writer(models, imports).writeClass(topModel, top.substring(slash + 1), topModel.flags().flagsMask(), false, "", body);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("// Stub generated from bytecode: ").append(reason).append(".\n");
+        if (!pkg.isEmpty()) {
+            sb.append("package ").append(pkg.replace('/', '.')).append(";\n\n");
+        }
+        for (String imported : imports.imports) {
+            sb.append("import ").append(imported).append(";\n");
+        }
+        if (!imports.imports.isEmpty()) {
+            sb.append('\n');
+        }
+        return sb.append(body).toString();
+    }
+
+    /** Renders the classes of one group; type names go through the shared {@link Imports}. */
+    private static final class Writer {
+
+        private final Map<String, ClassModel> models;
+        private final Imports imports;
+
+        Writer(Map<String, ClassModel> models, Imports imports) {
+            this.models = models;
+            this.imports = imports;
+        }
+
+        void writeClass(ClassModel cm, String simpleName, int flags, boolean nested, String indent, StringBuilder sb) {
+            String self = cm.thisClass().asInternalName();
+            String superName = cm.superclass().map(ClassEntry::asInternalName).orElse(null);
+            List<RecordComponentInfo> components = cm.findAttribute(Attributes.record())
+                .map(r -> r.components()).orElse(null);
+
+            boolean isAnnotation = (flags & ClassFile.ACC_ANNOTATION) != 0;
+            boolean isInterface = (flags & ClassFile.ACC_INTERFACE) != 0;
+            boolean isEnum = (flags & ClassFile.ACC_ENUM) != 0;
+            boolean isRecord = components != null;
+
+            // Header
+            sb.append(indent).append(accessModifiers(flags));
+            if (nested && (flags & ClassFile.ACC_STATIC) != 0 && !isInterface && !isEnum && !isRecord) {
+                sb.append("static ");
+            }
+            if (!isInterface && !isEnum && !isRecord) {
+                if ((flags & ClassFile.ACC_ABSTRACT) != 0) {
+                    sb.append("abstract ");
+                }
+                if ((flags & ClassFile.ACC_FINAL) != 0) {
+                    sb.append("final ");
+                }
+            }
+            sb.append(isAnnotation ? "@interface " : isInterface ? "interface " : isEnum ? "enum " : isRecord ? "record " : "class ");
+            sb.append(simpleName);
+
+            ClassSignature signature = cm.findAttribute(Attributes.signature())
+                .map(s -> s.asClassSignature()).orElse(null);
+            if (signature != null) {
+                sb.append(typeParams(signature.typeParameters()));
+            }
+            if (isRecord) {
+                List<String> parts = new ArrayList<>();
+                for (RecordComponentInfo c : components) {
+                    String type = c.findAttribute(Attributes.signature())
+                        .map(s -> render(s.asTypeSignature()))
+                        .orElseGet(() -> type(c.descriptorSymbol()));
+                    parts.add(type + " " + c.name().stringValue());
+                }
+                sb.append('(').append(String.join(", ", parts)).append(')');
+            }
+
+            List<String> supertypes = new ArrayList<>();
+            String extendsClause = null;
+            if (signature != null) {
+                if (!isInterface && !isEnum && !isRecord && !"java/lang/Object".equals(superName)) {
+                    extendsClause = render(signature.superclassSignature());
+                }
+                for (Signature.ClassTypeSig itf : signature.superinterfaceSignatures()) {
+                    supertypes.add(render(itf));
+                }
+            } else {
+                if (!isInterface && !isEnum && !isRecord && superName != null && !"java/lang/Object".equals(superName)) {
+                    extendsClause = imports.name(superName);
+                }
+                for (ClassEntry itf : cm.interfaces()) {
+                    // Annotation types implicitly extend Annotation
+                    if (!isAnnotation || !itf.asInternalName().equals("java/lang/annotation/Annotation")) {
+                        supertypes.add(imports.name(itf.asInternalName()));
+                    }
+                }
+            }
+            if (extendsClause != null) {
+                sb.append(" extends ").append(extendsClause);
+            }
+            if (!supertypes.isEmpty()) {
+                sb.append(isInterface ? " extends " : " implements ").append(String.join(", ", supertypes));
+            }
+            sb.append(" {\n");
+
+            String memberIndent = indent + "    ";
+            Set<String> componentNames = new HashSet<>();
+            if (isRecord) {
+                for (RecordComponentInfo c : components) {
+                    componentNames.add(c.name().stringValue());
+                }
+            }
+
+            // Enum constants first, then fields
+            if (isEnum) {
+                List<String> constants = new ArrayList<>();
+                for (FieldModel f : cm.fields()) {
+                    if ((f.flags().flagsMask() & ClassFile.ACC_ENUM) != 0) {
+                        constants.add(f.fieldName().stringValue());
+                    }
+                }
+                sb.append(memberIndent).append(String.join(",\n" + memberIndent, constants)).append(";\n\n");
+            }
+            for (FieldModel f : cm.fields()) {
+                int ff = f.flags().flagsMask();
+                String name = f.fieldName().stringValue();
+                if ((ff & (ClassFile.ACC_SYNTHETIC | ClassFile.ACC_ENUM)) != 0
+                        || (isRecord && (ff & ClassFile.ACC_STATIC) == 0 && componentNames.contains(name))) {
+                    continue;
+                }
+                String type = f.findAttribute(Attributes.signature())
+                    .map(s -> render(s.asTypeSignature()))
+                    .orElseGet(() -> type(f.fieldTypeSymbol()));
+                sb.append(memberIndent);
+                if (!isInterface) {
+                    sb.append(accessModifiers(ff));
+                    if ((ff & ClassFile.ACC_STATIC) != 0) {
+                        sb.append("static ");
+                    }
+                    if ((ff & ClassFile.ACC_FINAL) != 0) {
+                        sb.append("final ");
+                    }
+                    if ((ff & ClassFile.ACC_TRANSIENT) != 0) {
+                        sb.append("transient ");
+                    }
+                    if ((ff & ClassFile.ACC_VOLATILE) != 0) {
+                        sb.append("volatile ");
+                    }
+                }
+                sb.append(type).append(' ').append(name).append(";\n");
+            }
+
+            for (MethodModel m : cm.methods()) {
+                writeMethod(m, simpleName, flags, components, nested, memberIndent, sb);
+            }
+
+            // Member classes of this class that are part of the group
+            for (InnerClassInfo inner : innerClasses(cm)) {
+                String innerName = inner.innerClass().asInternalName();
+                boolean member = inner.outerClass().map(o -> o.asInternalName().equals(self)).orElse(false)
+                    && inner.innerName().isPresent();
+                ClassModel innerModel = models.get(innerName);
+                if (member && innerModel != null && (inner.flagsMask() & ClassFile.ACC_SYNTHETIC) == 0) {
+                    sb.append('\n');
+                    writeClass(innerModel, inner.innerName().get().stringValue(), inner.flagsMask(), true, memberIndent, sb);
+                }
+            }
+
+            sb.append(indent).append("}\n");
+        }
+
+        private void writeMethod(MethodModel m, String simpleName, int classFlags,
+                                 List<RecordComponentInfo> components, boolean nested, String indent, StringBuilder sb) {
+            int mf = m.flags().flagsMask();
+            String name = m.methodName().stringValue();
+            MethodTypeDesc desc = m.methodTypeSymbol();
+            boolean isInterface = (classFlags & ClassFile.ACC_INTERFACE) != 0;
+            boolean isEnum = (classFlags & ClassFile.ACC_ENUM) != 0;
+            boolean isConstructor = name.equals("<init>");
+
+            if ((mf & (ClassFile.ACC_SYNTHETIC | ClassFile.ACC_BRIDGE)) != 0
+                    || name.equals("<clinit>") || name.startsWith("lambda$")) {
+                return;
+            }
+            // Members the compiler declares implicitly
+            if (isEnum && (isConstructor
+                    || (name.equals("values") && desc.parameterCount() == 0)
+                    || (name.equals("valueOf") && desc.parameterCount() == 1))) {
+                return;
+            }
+            if (components != null && isRecordMember(name, desc, components)) {
+                return;
+            }
+
+            MethodSignature signature = m.findAttribute(Attributes.signature())
+                .map(s -> s.asMethodSignature()).orElse(null);
+
+            List<String> paramTypes = new ArrayList<>();
+            if (signature != null) {
+                for (Signature arg : signature.arguments()) {
+                    paramTypes.add(render(arg));
+                }
+            } else {
+                for (ClassDesc p : desc.parameterList()) {
+                    paramTypes.add(type(p));
+                }
+                // Inner class constructors take the enclosing instance as a leading parameter
+                boolean innerInstance = nested && (classFlags & ClassFile.ACC_STATIC) == 0 && !isInterface;
+                if (isConstructor && innerInstance && !paramTypes.isEmpty()) {
+                    paramTypes.remove(0);
+                }
+            }
+
+            List<String> paramNames = new ArrayList<>();
+            m.findAttribute(Attributes.methodParameters()).ifPresent(attr -> {
+                for (MethodParameterInfo p : attr.parameters()) {
+                    if ((p.flagsMask() & (ClassFile.ACC_SYNTHETIC | ClassFile.ACC_MANDATED)) == 0) {
+                        paramNames.add(p.name().map(n -> n.stringValue()).orElse(null));
+                    }
+                }
+            });
+
+            List<String> params = new ArrayList<>();
+            for (int i = 0; i < paramTypes.size(); i++) {
+                String type = paramTypes.get(i);
+                if (i == paramTypes.size() - 1 && (mf & ClassFile.ACC_VARARGS) != 0 && type.endsWith("[]")) {
+                    type = type.substring(0, type.length() - 2) + "...";
+                }
+                String paramName = paramNames.size() == paramTypes.size() && paramNames.get(i) != null
+                    ? paramNames.get(i) : "arg" + i;
+                params.add(type + " " + paramName);
+            }
+
+            List<String> thrown = new ArrayList<>();
+            if (signature != null && !signature.throwableSignatures().isEmpty()) {
+                for (Signature t : signature.throwableSignatures()) {
+                    thrown.add(render(t));
+                }
+            } else {
+                m.findAttribute(Attributes.exceptions()).ifPresent((ExceptionsAttribute attr) -> {
+                    for (ClassEntry e : attr.exceptions()) {
+                        thrown.add(imports.name(e.asInternalName()));
+                    }
+                });
+            }
+
+            boolean isAbstract = (mf & ClassFile.ACC_ABSTRACT) != 0;
+            boolean isStatic = (mf & ClassFile.ACC_STATIC) != 0;
+            sb.append('\n').append(indent);
+            if (isInterface) {
+                if ((mf & ClassFile.ACC_PRIVATE) != 0) {
+                    sb.append("private ");
+                } else if (!isAbstract && !isStatic) {
+                    sb.append("default ");
+                }
+            } else {
+                sb.append(accessModifiers(mf));
+                if (isAbstract) {
+                    sb.append("abstract ");
+                }
+            }
+            if (isStatic) {
+                sb.append("static ");
+            }
+            if ((mf & ClassFile.ACC_FINAL) != 0) {
+                sb.append("final ");
+            }
+            if ((mf & ClassFile.ACC_SYNCHRONIZED) != 0) {
+                sb.append("synchronized ");
+            }
+            if ((mf & ClassFile.ACC_NATIVE) != 0) {
+                sb.append("native ");
+            }
+            if (signature != null && !signature.typeParameters().isEmpty()) {
+                sb.append(typeParams(signature.typeParameters())).append(' ');
+            }
+            if (isConstructor) {
+                sb.append(simpleName);
+            } else {
+                sb.append(signature != null ? render(signature.result()) : type(desc.returnType())).append(' ').append(name);
+            }
+            sb.append('(').append(String.join(", ", params)).append(')');
+            if (!thrown.isEmpty()) {
+                sb.append(" throws ").append(String.join(", ", thrown));
+            }
+            if (isAbstract || (mf & ClassFile.ACC_NATIVE) != 0) {
+                sb.append(";\n");
+            } else {
+                sb.append(" {\n").append(indent).append("    ").append(STUB_BODY).append('\n')
+                    .append(indent).append("}\n");
+            }
+        }
+
+        /** Canonical constructor and component accessors, which a record declares implicitly. */
+        private static boolean isRecordMember(String name, MethodTypeDesc desc, List<RecordComponentInfo> components) {
+            if (name.equals("<init>")) {
+                if (desc.parameterCount() != components.size()) {
+                    return false;
+                }
+                for (int i = 0; i < components.size(); i++) {
+                    if (!desc.parameterType(i).equals(components.get(i).descriptorSymbol())) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (desc.parameterCount() == 0) {
+                for (RecordComponentInfo c : components) {
+                    if (c.name().stringValue().equals(name)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static List<InnerClassInfo> innerClasses(ClassModel cm) {
+            return cm.findAttribute(Attributes.innerClasses())
+                .map(a -> a.classes()).orElse(List.of());
+        }
+
+        private String typeParams(List<Signature.TypeParam> params) {
+            if (params.isEmpty()) {
+                return "";
+            }
+            List<String> parts = new ArrayList<>();
+            for (Signature.TypeParam p : params) {
+                List<String> bounds = new ArrayList<>();
+                p.classBound().ifPresent(b -> bounds.add(render(b)));
+                for (Signature.RefTypeSig b : p.interfaceBounds()) {
+                    bounds.add(render(b));
+                }
+                bounds.remove(imports.name("java/lang/Object"));
+                parts.add(bounds.isEmpty() ? p.identifier() : p.identifier() + " extends " + String.join(" & ", bounds));
+            }
+            return "<" + String.join(", ", parts) + ">";
+        }
+
+        private String render(Signature sig) {
+            if (sig instanceof Signature.BaseTypeSig base) {
+                return ClassDesc.ofDescriptor(String.valueOf(base.baseType())).displayName();
+            }
+            if (sig instanceof Signature.TypeVarSig var) {
+                return var.identifier();
+            }
+            if (sig instanceof Signature.ArrayTypeSig array) {
+                return render(array.componentSignature()) + "[]";
+            }
+            Signature.ClassTypeSig cls = (Signature.ClassTypeSig) sig;
+            String name = cls.outerType()
+                .map(outer -> render(outer) + "." + cls.className())
+                .orElseGet(() -> imports.name(cls.className()));
+            if (cls.typeArgs().isEmpty()) {
+                return name;
+            }
+            List<String> args = new ArrayList<>();
+            for (Signature.TypeArg arg : cls.typeArgs()) {
+                if (arg instanceof Signature.TypeArg.Bounded bounded) {
+                    String bound = render(bounded.boundType());
+                    args.add(switch (bounded.wildcardIndicator()) {
+                        case NONE -> bound;
+                        case EXTENDS -> "? extends " + bound;
+                        case SUPER -> "? super " + bound;
+                    });
+                } else {
+                    args.add("?");
+                }
+            }
+            return name + "<" + String.join(", ", args) + ">";
+        }
+
+        private String type(ClassDesc desc) {
+            if (desc.isArray()) {
+                return type(desc.componentType()) + "[]";
+            }
+            if (desc.isPrimitive()) {
+                return desc.displayName();
+            }
+            String d = desc.descriptorString();
+            return imports.name(d.substring(1, d.length() - 1));
+        }
+
+        private static String accessModifiers(int flags) {
+            if ((flags & ClassFile.ACC_PUBLIC) != 0) {
+                return "public ";
+            }
+            if ((flags & ClassFile.ACC_PROTECTED) != 0) {
+                return "protected ";
+            }
+            if ((flags & ClassFile.ACC_PRIVATE) != 0) {
+                return "private ";
+            }
+            return "";
+        }
+    }
+
+    /**
+     * Chooses how to spell each referenced type: the simple name with an import
+     * when no other type has claimed that simple name, the qualified name otherwise.
+     */
+    static final class Imports {
+
+        private final String pkg;
+        private final Map<String, String> claimed = new HashMap<>();
+        private final Set<String> imports = new TreeSet<>();
+
+        Imports(String pkg, String self) {
+            this.pkg = pkg;
+            claimed.put(self.substring(self.lastIndexOf('/') + 1), self);
+        }
+
+        /** Source spelling of a class given by internal name ("a/b/Outer$Inner" -> "Outer.Inner"). */
+        String name(String internalName) {
+            int slash = internalName.lastIndexOf('/');
+            String typePkg = slash < 0 ? "" : internalName.substring(0, slash);
+            String local = internalName.substring(slash + 1);
+            int dollar = local.indexOf('$', 1);
+            String topSimple = dollar > 0 ? local.substring(0, dollar) : local;
+            String nested = dollar > 0 ? local.substring(dollar).replace('$', '.') : "";
+            String top = typePkg.isEmpty() ? topSimple : typePkg + "/" + topSimple;
+
+            String owner = claimed.putIfAbsent(topSimple, top);
+            if (owner != null && !owner.equals(top)) {
+                return top.replace('/', '.') + nested;
+            }
+            if (!typePkg.equals(pkg) && !typePkg.equals("java/lang")) {
+                imports.add(top.replace('/', '.'));
+            }
+            return topSimple + nested;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.hytale.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.instruction.NewObjectInstruction;
+import java.lang.constant.ConstantDesc;
+import java.lang.constant.DirectMethodHandleDesc;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+/**
+ * Caller -> callee edges of every method in the JAR, read from bytecode.
+ *
+ * Answers the Phase 3 "where is this dispatched / constructed" questions by
+ * lookup instead of searching decompiled sources: every invoke instruction, every
+ * {@code new}, and every method handle passed to invokedynamic (method references
+ * such as {@code BreakBlockEvent::new}) becomes an edge from the method containing
+ * it. Lambda bodies are attributed to the method that declares the lambda, so a
+ * dispatch inside a callback is reported at the method a reader would look at.
+ *
+ * Methods are symbols "owner.name(descriptor)" with the owner's internal name;
+ * {@code new} targets are class symbols. The edges are {@link PackedEdges} keyed
+ * by callee, so every caller of a method is one contiguous run. The class
+ * hierarchy is kept too: a lookup on an interface or base class method also finds
+ * calls made through its subtypes.
+ *
+ * Stored as artifacts/call-graph.bin: a header, the packed edges, and the hierarchy.
+ */
+final class CallGraph {
+
+    private static final int MAGIC = 0x48594347; // "HYCG"
+    private static final int VERSION = 2;
+
+    /** How the caller reaches the callee. */
+    enum Kind { VIRTUAL, STATIC, SPECIAL, INTERFACE, NEW, METHOD_REF }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    /** One resolved edge, as returned by the lookups. */
+    record Edge(String caller, String callee, Kind kind) {}
+
+    /** A class with its direct supertypes (internal names). */
+    private record TypeRefs(String name, String superName, List<String> interfaces) {}
+
+    /** Edges and types found in one class group, before symbols are numbered. */
+    private record GroupScan(List<TypeRefs> types, List<String[]> edges) {}
+
+    private final String jarHash;
+    private final PackedEdges graph;
+    /** Class id -> ids of its direct supertypes. */
+    private final Map<Integer, int[]> supertypes;
+    private Map<Integer, List<Integer>> subtypes;
+
+    private CallGraph(String jarHash, PackedEdges graph, Map<Integer, int[]> supertypes) {
+        this.jarHash = jarHash;
+        this.graph = graph;
+        this.supertypes = supertypes;
+    }
+
+    /**
+     * Scan every class the decompiler would include, in parallel by class group.
+     */
+    static CallGraph build(Path jarPath, String jarHash) throws IOException {
+        Map<String, GroupScan> scans = new ConcurrentHashMap<>();
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            Map<String, List<JarEntry>> groups = Decompiler.groupClasses(jf);
+            groups.entrySet().parallelStream().forEach(group -> {
+                try {
+                    GroupScan scan = new GroupScan(new ArrayList<>(), new ArrayList<>());
+                    for (byte[] bytes : Decompiler.readGroup(jf, group.getValue(), Map.of()).values()) {
+                        scanClass(ClassFile.of().parse(bytes), scan);
+                    }
+                    scans.put(group.getKey(), scan);
+                } catch (Exception e) {
+                    System.err.println("WARN: Failed to scan " + group.getKey().replace('/', '.') + ": " + e.getMessage());
+                }
+            });
+        }
+
+        // Symbols are numbered in sorted order, so the artifact does not depend on scheduling
+        PackedEdges.Builder builder = new PackedEdges.Builder();
+        for (GroupScan scan : scans.values()) {
+            for (TypeRefs t : scan.types()) {
+                builder.symbol(t.name());
+                if (t.superName() != null) {
+                    builder.symbol(t.superName());
+                }
+                t.interfaces().forEach(builder::symbol);
+            }
+            for (String[] e : scan.edges()) {
+                builder.edge(e[0], e[1], Kind.valueOf(e[2]).ordinal());
+            }
+        }
+        PackedEdges graph = builder.build();
+
+        Map<Integer, int[]> supertypes = new HashMap<>();
+        for (GroupScan scan : scans.values()) {
+            for (TypeRefs t : scan.types()) {
+                List<String> supers = new ArrayList<>();
+                if (t.superName() != null) {
+                    supers.add(t.superName());
+                }
+                supers.addAll(t.interfaces());
+                supertypes.put(graph.id(t.name()), supers.stream().mapToInt(graph::id).toArray());
+            }
+        }
+        return new CallGraph(jarHash, graph, supertypes);
+    }
+
+    private static void scanClass(ClassModel cm, GroupScan scan) {
+        String self = cm.thisClass().asInternalName();
+        List<String> interfaces = new ArrayList<>();
+        for (ClassEntry itf : cm.interfaces()) {
+            interfaces.add(itf.asInternalName());
+        }
+        scan.types().add(new TypeRefs(self, cm.superclass().map(ClassEntry::asInternalName).orElse(null), interfaces));
+
+        Map<String, String> lambdaOwners = lambdaOwners(cm);
+        for (MethodModel m : cm.methods()) {
+            String caller = enclosingMethod(methodSymbol(self, m), lambdaOwners);
+            for (CodeElement element : code(m)) {
+                if (element instanceof InvokeInstruction invoke) {
+                    Kind kind = switch (invoke.opcode()) {
+                        case INVOKESTATIC -> Kind.STATIC;
+                        case INVOKESPECIAL -> Kind.SPECIAL;
+                        case INVOKEINTERFACE -> Kind.INTERFACE;
+                        default -> Kind.VIRTUAL;
+                    };
+                    scan.edges().add(new String[] {caller, methodSymbol(invoke.owner().asInternalName(),
+                        invoke.name().stringValue(), invoke.type().stringValue()), kind.name()});
+                } else if (element instanceof NewObjectInstruction newObject) {
+                    scan.edges().add(new String[] {caller, newObject.className().asInternalName(), Kind.NEW.name()});
+                } else if (element instanceof InvokeDynamicInstruction indy) {
+                    for (ConstantDesc arg : indy.bootstrapArgs()) {
+                        if (arg instanceof DirectMethodHandleDesc handle && !isFieldHandle(handle)
+                                && !isLambdaBody(handle, self)) {
+                            scan.edges().add(new String[] {caller, handleSymbol(handle), Kind.METHOD_REF.name()});
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lambda body -> method whose invokedynamic creates it, for the lambdas of one class.
+     */
+    static Map<String, String> lambdaOwners(ClassModel cm) {
+        String self = cm.thisClass().asInternalName();
+        Map<String, String> owners = new HashMap<>();
+        for (MethodModel m : cm.methods()) {
+            String method = methodSymbol(self, m);
+            for (CodeElement element : code(m)) {
+                if (element instanceof InvokeDynamicInstruction indy) {
+                    for (ConstantDesc arg : indy.bootstrapArgs()) {
+                        if (arg instanceof DirectMethodHandleDesc handle && isLambdaBody(handle, self)) {
+                            owners.put(handleSymbol(handle), method);
+                        }
+                    }
+                }
+            }
+        }
+        return owners;
+    }
+
+    /** Follow lambda bodies out to the first method that is not one (nested lambdas included). */
+    static String enclosingMethod(String method, Map<String, String> lambdaOwners) {
+        String current = method;
+        for (int depth = 0; depth < 32; depth++) {
+            String owner = lambdaOwners.get(current);
+            if (owner == null) {
+                break;
+            }
+            current = owner;
+        }
+        return current;
+    }
+
+    static Iterable<CodeElement> code(MethodModel m) {
+        CodeAttribute code = m.findAttribute(Attributes.code()).orElse(null);
+        return code != null ? code : List.of();
+    }
+
+    static String methodSymbol(String owner, MethodModel m) {
+        return methodSymbol(owner, m.methodName().stringValue(), m.methodType().stringValue());
+    }
+
+    static String methodSymbol(String owner, String name, String descriptor) {
+        return owner + "." + name + descriptor;
+    }
+
+    private static boolean isLambdaBody(DirectMethodHandleDesc handle, String self) {
+        return handle.methodName().startsWith("lambda$") && internalName(handle).equals(self);
+    }
+
+    private static boolean isFieldHandle(DirectMethodHandleDesc handle) {
+        return switch (handle.kind()) {
+            case GETTER, SETTER, STATIC_GETTER, STATIC_SETTER -> true;
+            default -> false;
+        };
+    }
+
+    private static String handleSymbol(DirectMethodHandleDesc handle) {
+        return methodSymbol(internalName(handle), handle.methodName(), handle.lookupDescriptor());
+    }
+
+    private static String internalName(DirectMethodHandleDesc handle) {
+        String d = handle.owner().descriptorString();
+        return d.substring(1, d.length() - 1);
+    }
+
+    int symbolCount() {
+        return graph.symbols.length;
+    }
+
+    int edgeCount() {
+        return graph.edges.length;
+    }
+
+    String jarHash() {
+        return jarHash;
+    }
+
+    // --- Persistence ---
+
+    void write(Path path) throws IOException {
+        // Written to a temp file and moved into place, so a file whose header names
+        // the current JAR is always complete and can be kept by the next run
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(jarHash);
+                graph.write(out);
+                out.writeInt(supertypes.size());
+                for (Map.Entry<Integer, int[]> e : new TreeMap<>(supertypes).entrySet()) {
+                    PackedEdges.writeVarLong(out, e.getKey());
+                    PackedEdges.writeVarLong(out, e.getValue().length);
+                    for (int s : e.getValue()) {
+                        PackedEdges.writeVarLong(out, s);
+                    }
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the JAR hash in the header of the call graph at {@code path}, or null
+     *         if there is no readable call graph of the current version there
+     */
+    static String storedJarHash(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 256))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION ? in.readUTF() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the call graph stored at {@code path}
+     */
+    static CallGraph load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a call graph file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported call graph version " + version + " in " + path
+                    + " (expected " + VERSION + "; re-run Phase 1)");
+            }
+            String jarHash = in.readUTF();
+            PackedEdges graph = PackedEdges.read(in);
+            int typeCount = in.readInt();
+            Map<Integer, int[]> supertypes = new HashMap<>(typeCount * 2);
+            for (int i = 0; i < typeCount; i++) {
+                int type = (int) PackedEdges.readVarLong(in);
+                int[] supers = new int[(int) PackedEdges.readVarLong(in)];
+                for (int j = 0; j < supers.length; j++) {
+                    supers[j] = (int) PackedEdges.readVarLong(in);
+                }
+                supertypes.put(type, supers);
+            }
+            return new CallGraph(jarHash, graph, supertypes);
+        }
+    }
+
+    // --- Lookups ---
+
+    /**
+     * Methods calling {@code method} ("Type.name", the name may use * wildcards)
+     * on the type, its subtypes, or through a method reference.
+     *
+     * @param method  Type as a simple name or FQCN ("IEventBus.dispatch*",
+     *                "com.hypixel.hytale.event.IEventBus.dispatchFor")
+     */
+    List<Edge> callers(String method) {
+        int dot = method.lastIndexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Expected Type.method, got: " + method);
+        }
+        Set<String> owners = new LinkedHashSet<>();
+        for (String type : resolveTypes(method.substring(0, dot))) {
+            owners.addAll(withSubtypes(type));
+        }
+        Pattern name = PackedEdges.glob(method.substring(dot + 1));
+        List<Edge> result = new ArrayList<>();
+        for (String owner : owners) {
+            for (int id : graph.methods(owner, name)) {
+                result.addAll(callersOf(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Methods that instantiate {@code type} (simple name or FQCN), with {@code new}
+     * or a constructor reference.
+     */
+    List<Edge> constructors(String type) {
+        List<Edge> result = new ArrayList<>();
+        for (String name : resolveTypes(type)) {
+            int id = graph.id(name);
+            if (id >= 0) {
+                result.addAll(callersOf(id));
+            }
+            for (int init : graph.methods(name, Pattern.compile(Pattern.quote("<init>")))) {
+                for (Edge e : callersOf(init)) {
+                    if (e.kind() == Kind.METHOD_REF) {
+                        result.add(e);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * What the methods matching {@code method} ("Type.name", * wildcards allowed) call.
+     */
+    List<Edge> callees(String method) {
+        int dot = method.lastIndexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Expected Type.method, got: " + method);
+        }
+        Set<Integer> callerIds = new HashSet<>();
+        Pattern name = PackedEdges.glob(method.substring(dot + 1));
+        for (String owner : resolveTypes(method.substring(0, dot))) {
+            callerIds.addAll(graph.methods(owner, name));
+        }
+        List<Edge> result = new ArrayList<>();
+        for (long edge : graph.edges) {
+            if (callerIds.contains(PackedEdges.source(edge))) {
+                result.add(toEdge(edge));
+            }
+        }
+        return result;
+    }
+
+    private List<Edge> callersOf(int callee) {
+        List<Edge> result = new ArrayList<>();
+        for (int i = graph.firstEdge(callee); i < graph.edges.length && PackedEdges.target(graph.edges[i]) == callee; i++) {
+            result.add(toEdge(graph.edges[i]));
+        }
+        return result;
+    }
+
+    private Edge toEdge(long edge) {
+        return new Edge(graph.symbols[PackedEdges.source(edge)], graph.symbols[PackedEdges.target(edge)],
+            KINDS[PackedEdges.kind(edge)]);
+    }
+
+    /**
+     * Internal names of the classes {@code type} may mean: a simple name matches
+     * every class with that name, an FQCN ("a.b.Outer.Inner" or "a.b.Outer$Inner")
+     * matches the class it spells. Types outside the JAR ("java.lang.Thread") are
+     * taken literally.
+     */
+    Set<String> resolveTypes(String type) {
+        Set<String> result = new TreeSet<>();
+        boolean qualified = type.indexOf('.') >= 0;
+        String dotted = type.replace('$', '.');
+        for (int id : supertypes.keySet()) {
+            String name = graph.symbols[id];
+            String fqcn = name.replace('/', '.').replace('$', '.');
+            if (qualified ? fqcn.equals(dotted) : fqcn.endsWith("." + type)) {
+                result.add(name);
+            }
+        }
+        if (result.isEmpty() && qualified) {
+            result.add(type.replace('.', '/'));
+        }
+        return result;
+    }
+
+    /** {@code type} and every class in the JAR that extends or implements it, transitively. */
+    Set<String> withSubtypes(String type) {
+        if (subtypes == null) {
+            subtypes = new HashMap<>();
+            for (Map.Entry<Integer, int[]> e : supertypes.entrySet()) {
+                for (int s : e.getValue()) {
+                    subtypes.computeIfAbsent(s, k -> new ArrayList<>()).add(e.getKey());
+                }
+            }
+        }
+        Set<String> result = new LinkedHashSet<>();
+        result.add(type);
+        int id = graph.id(type);
+        if (id < 0) {
+            return result;
+        }
+        Deque<Integer> queue = new ArrayDeque<>(List.of(id));
+        Set<Integer> seen = new HashSet<>(queue);
+        while (!queue.isEmpty()) {
+            for (int sub : subtypes.getOrDefault(queue.poll(), List.of())) {
+                if (seen.add(sub)) {
+                    result.add(graph.symbols[sub]);
+                    queue.add(sub);
+                }
+            }
+        }
+        return result;
+    }
+}
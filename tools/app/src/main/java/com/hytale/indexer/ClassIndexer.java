@@ -4,6 +4,7 @@ import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.Modifier;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.*;
@@ -13,95 +14,466 @@ import com.github.javaparser.ast.type.ReferenceType;
 import com.github.javaparser.ast.type.TypeParameter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
- * Walks a directory of decompiled .java files, parses each with JavaParser,
- * and produces a structured class-index.json per the spec schema.
+ * Parses decompiled .java sources with JavaParser and produces a structured
+ * class-index.json per the spec schema. Sources come either from a directory
+ * walk or straight from the in-memory units handed back by {@link Decompiler}.
+ * Given the JAR, exact type references are taken from its bytecode
+ * (see {@link BytecodeIndexer#attachTypeRefs}) before the index is written.
+ *
+ * Only declarations are indexed, so {@link ParseMode#SIGNATURES} empties method
+ * and initializer bodies (see {@link BodyElider}) and parses the elided text
+ * without attributing comments to nodes, which produces the same entries for far less work.
+ *
+ * With a {@link ParseCache}, files whose path and content are unchanged since
+ * an earlier run in the same mode are not parsed again.
+ *
+ * Every type, field and method records the lines and UTF-8 byte offsets it spans
+ * in its source file, so {@link SourceSnippets} can show it without a parse.
  */
 public class ClassIndexer {
 
-    private final JavaParser parser;
-    private final Gson gson;
+    /** How each source is parsed. */
+    public enum ParseMode {
+        /** The whole file, bodies included and comments attributed to their nodes. */
+        FULL,
+        /** Declarations only: the body-elided text, parsed without comment attribution. */
+        SIGNATURES,
+        /** SIGNATURES, checked against a FULL parse of every file; on a mismatch the full result is kept. */
+        VERIFY
+    }
+
+    // JavaParser instances are not thread-safe: every parsing thread gets its own
+    private final ThreadLocal<JavaParser> parser = ThreadLocal.withInitial(() -> newParser(false));
+    private final ThreadLocal<JavaParser> signatureParser = ThreadLocal.withInitial(() -> newParser(true));
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    private static final String INDEX_VERSION = "1.0.0";
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
     private final AtomicInteger successCount = new AtomicInteger(0);
     private final AtomicInteger errorCount = new AtomicInteger(0);
+    private final AtomicInteger fullParseFallbacks = new AtomicInteger(0);
+    private final AtomicInteger verifyMismatches = new AtomicInteger(0);
+    private final Path jarPath;
+    private final ParseMode mode;
+    private final ParseCache cache;
+    /** Shares repeated strings and lists among the entries of this indexer's index. */
+    private final ModelPool pool = new ModelPool();
 
     public ClassIndexer() {
+        this(null);
+    }
+
+    public ClassIndexer(Path jarPath) {
+        this(jarPath, ParseMode.FULL, null);
+    }
+
+    /**
+     * @param jarPath   JAR the sources were decompiled from, supplying exact type
+     *                  references; null leaves them out
+     * @param mode      How sources are parsed
+     * @param cacheDir  Directory for the {@link ParseCache}; null parses every file.
+     *                  {@link ParseMode#VERIFY} never reads it, since every file must be parsed
+     */
+    public ClassIndexer(Path jarPath, ParseMode mode, Path cacheDir) {
+        this.jarPath = jarPath;
+        this.mode = mode;
+        this.cache = cacheDir != null ? new ParseCache(cacheDir, pool) : null;
+    }
+
+    private static JavaParser newParser(boolean signaturesOnly) {
         ParserConfiguration config = new ParserConfiguration();
         config.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
-        this.parser = new JavaParser(config);
-        this.gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        if (signaturesOnly) {
+            // The elided text is parsed as usual; only attaching comments to nodes is skipped
+            config.setAttributeComments(false);
+        }
+        return new JavaParser(config);
     }
 
     /**
-     * Parse all .java files under decompiledDir and write class-index.json.
+     * Parse all .java files under decompiledDir on one thread and write class-index.json.
      */
     public void index(Path decompiledDir, Path outputPath, String jarHash) throws IOException {
+        index(decompiledDir, outputPath, jarHash, 1);
+    }
+
+    /**
+     * Parse all .java files under decompiledDir and write class-index.json.
+     *
+     * @param threads  Parser threads; each pulls the largest file not yet taken, so a
+     *                 handful of huge sources do not finish last on one thread
+     */
+    public void index(Path decompiledDir, Path outputPath, String jarHash, int threads) throws IOException {
         if (!Files.isDirectory(decompiledDir)) {
             throw new IOException("Decompiled directory not found: " + decompiledDir);
         }
 
-        List<ClassEntry> classes = new ArrayList<>();
-
-        // Walk all .java files
-        List<Path> javaFiles = new ArrayList<>();
+        // Walk all .java files, noting sizes for largest-first scheduling
+        Map<Path, Long> sizes = new HashMap<>();
         Files.walkFileTree(decompiledDir, new SimpleFileVisitor<>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
                 if (file.toString().endsWith(".java")) {
-                    javaFiles.add(file);
+                    sizes.put(file, attrs.size());
                 }
                 return FileVisitResult.CONTINUE;
             }
         });
+        List<Path> javaFiles = new ArrayList<>(sizes.keySet());
+        javaFiles.sort(Comparator.comparing((Path f) -> sizes.get(f)).reversed().thenComparing(Comparator.naturalOrder()));
+
+        int workers = Math.max(1, Math.min(threads, javaFiles.size()));
+        System.out.println("Found " + javaFiles.size() + " .java files to parse on " + workers + " threads");
+
+        Map<Path, List<ClassEntry>> results = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        Runnable work = () -> {
+            for (int i = next.getAndIncrement(); i < javaFiles.size(); i = next.getAndIncrement()) {
+                Path javaFile = javaFiles.get(i);
+                List<ClassEntry> entries = new ArrayList<>();
+                try {
+                    parseFile(javaFile, decompiledDir, entries);
+                    successCount.incrementAndGet();
+                } catch (Throwable e) {
+                    // StackOverflowError on deeply nested expressions included: lose the file, not the thread
+                    errorCount.incrementAndGet();
+                    System.err.println("WARN: Failed to parse " + javaFile + ": " + describe(e));
+                }
+                results.put(javaFile, entries);
+            }
+        };
+
+        List<Thread> pool = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            Thread t = new Thread(work, "class-indexer-" + i);
+            t.setDaemon(true);
+            t.start();
+            pool.add(t);
+        }
+        work.run();
+        try {
+            for (Thread t : pool) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for parser threads", e);
+        }
+
+        List<ClassEntry> classes = new ArrayList<>();
+        results.values().forEach(classes::addAll);
+        writeParsedIndex(classes, outputPath, jarHash);
+    }
+
+    private void writeParsedIndex(List<ClassEntry> classes, Path outputPath, String jarHash) throws IOException {
+        System.out.println("Parsed " + successCount.get() + " files successfully, "
+            + errorCount.get() + " errors");
+        if (mode != ParseMode.FULL) {
+            System.out.println("Signature-only parse: " + fullParseFallbacks.get() + " files fell back to a full parse");
+        }
+        if (mode == ParseMode.VERIFY) {
+            System.out.println("Verified against a full parse: " + verifyMismatches.get() + " files differ");
+        }
+        if (cache != null && mode != ParseMode.VERIFY) {
+            int lookups = cache.hits() + cache.misses();
+            System.out.printf("Parse cache: %d hits, %d misses (%.1f%% hit ratio), saved %.1f seconds of parsing%n",
+                cache.hits(), cache.misses(), lookups == 0 ? 0.0 : 100.0 * cache.hits() / lookups,
+                cache.savedNanos() / 1e9);
+        }
+        if (jarPath != null) {
+            BytecodeIndexer.attachTypeRefs(jarPath, classes);
+        }
+        // FQCN order keeps the output byte-stable whatever the thread count or finishing order
+        classes.sort(Comparator.comparing(c -> c.fqcn));
+        writeIndex(classes, outputPath, jarHash);
+        pool.clear();
+    }
+
+    /**
+     * Write class-index.json for {@code classes}, however they were produced, and
+     * the same index as class-index.bin (see {@link BinaryClassIndex}).
+     *
+     * The {@link ClassIndex} layout is streamed one entry at a time, so writing
+     * never holds more than a single entry's JSON beyond the write buffer.
+     */
+    static void writeIndex(List<ClassEntry> classes, Path outputPath, String jarHash) throws IOException {
+        String generatedAt = DateTimeFormatter.ISO_INSTANT.format(Instant.now().atOffset(ZoneOffset.UTC));
+        Files.createDirectories(outputPath.getParent());
+        try (JsonWriter json = GSON.newJsonWriter(new BufferedWriter(
+                Channels.newWriter(FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), StandardCharsets.UTF_8),
+                WRITE_BUFFER_SIZE))) {
+            json.beginObject();
+            json.name("version").value(INDEX_VERSION);
+            if (jarHash != null) {
+                json.name("jar_hash").value(jarHash);
+            }
+            json.name("generated_at").value(generatedAt);
+            json.name("classes").beginArray();
+            for (ClassEntry entry : classes) {
+                GSON.toJson(entry, ClassEntry.class, json);
+            }
+            json.endArray();
+            json.endObject();
+        }
+
+        Path binaryPath = BinaryClassIndex.pathFor(outputPath);
+        BinaryClassIndex.write(classes, jarHash, generatedAt, binaryPath);
 
-        System.out.println("Found " + javaFiles.size() + " .java files to parse");
+        System.out.println("Indexed " + classes.size() + " types");
+        System.out.println("Written to: " + outputPath + " and " + binaryPath.getFileName());
+    }
+
+    /**
+     * Read the header fields of class-index.json ({@code version}, {@code jar_hash},
+     * {@code generated_at}) without reading its classes.
+     *
+     * @return the header, with {@code classes} null
+     */
+    static ClassIndex readHeader(Path indexPath) throws IOException {
+        ClassIndex header = new ClassIndex();
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(indexPath))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "version" -> header.version = json.nextString();
+                    case "jar_hash" -> header.jar_hash = json.nextString();
+                    case "generated_at" -> header.generated_at = json.nextString();
+                    case "classes" -> {
+                        return header; // the header is written before the classes
+                    }
+                    default -> json.skipValue();
+                }
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Start a parsing pipeline: compilation units passed to {@link Pipeline#accept}
+     * are queued and parsed by {@code workers} background threads while the
+     * producer (the decompiler) keeps running.
+     *
+     * @param workers        Number of parser threads
+     * @param queueCapacity  Maximum number of units waiting to be parsed; the producer
+     *                       blocks when the queue is full, which bounds the heap held
+     *                       by decompiled-but-unparsed sources
+     */
+    public Pipeline startPipeline(int workers, int queueCapacity) {
+        return new Pipeline(workers, queueCapacity);
+    }
+
+    /**
+     * Bounded producer/consumer queue between {@link Decompiler} and JavaParser workers.
+     * Results are keyed by source file and written in FQCN order so the output
+     * does not depend on which worker finished first.
+     */
+    public class Pipeline implements Consumer<Decompiler.SourceUnit> {
+
+        /** Poison pill telling a worker to exit. */
+        private static final Decompiler.SourceUnit END = new Decompiler.SourceUnit("", "");
+
+        private final BlockingQueue<Decompiler.SourceUnit> queue;
+        private final Map<String, List<ClassEntry>> results = new ConcurrentHashMap<>();
+        private final List<Thread> threads = new ArrayList<>();
+        private int maxQueued;
+
+        private Pipeline(int workers, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            for (int i = 0; i < workers; i++) {
+                Thread t = new Thread(this::work, "class-indexer-" + i);
+                t.setDaemon(true);
+                t.start();
+                threads.add(t);
+            }
+        }
 
-        for (Path javaFile : javaFiles) {
+        /** Queue a unit for parsing, blocking while the queue is full. */
+        @Override
+        public void accept(Decompiler.SourceUnit unit) {
             try {
-                parseFile(javaFile, decompiledDir, classes);
-                successCount.incrementAndGet();
-            } catch (Exception e) {
-                errorCount.incrementAndGet();
-                System.err.println("WARN: Failed to parse " + javaFile + ": " + e.getMessage());
+                queue.put(unit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing " + unit.path(), e);
             }
+            maxQueued = Math.max(maxQueued, queue.size());
         }
 
-        // Build the index
-        ClassIndex index = new ClassIndex();
-        index.version = "1.0.0";
-        index.jar_hash = jarHash;
-        index.generated_at = DateTimeFormatter.ISO_INSTANT.format(Instant.now().atOffset(ZoneOffset.UTC));
-        index.classes = classes;
+        private void work() {
+            while (true) {
+                Decompiler.SourceUnit unit;
+                try {
+                    unit = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (unit == END) {
+                    return;
+                }
 
-        // Write JSON
-        Files.createDirectories(outputPath.getParent());
-        Files.writeString(outputPath, gson.toJson(index));
+                String sourceFile = "decompiled/" + unit.path();
+                List<ClassEntry> entries = new ArrayList<>();
+                try {
+                    parseSource(unit.content(), sourceFile, entries);
+                    successCount.incrementAndGet();
+                } catch (Throwable e) {
+                    // A dead worker would leave accept() and finish() blocked on the full queue forever
+                    errorCount.incrementAndGet();
+                    System.err.println("WARN: Failed to parse " + sourceFile + ": " + describe(e));
+                }
+                results.put(sourceFile, entries);
+            }
+        }
 
-        System.out.println("Parsed " + successCount.get() + " files successfully, "
-            + errorCount.get() + " errors");
-        System.out.println("Indexed " + classes.size() + " types");
-        System.out.println("Written to: " + outputPath);
+        /**
+         * Wait for the queued units to be parsed, stop the workers and write class-index.json.
+         */
+        public void finish(Path outputPath, String jarHash) throws IOException {
+            try {
+                for (int i = 0; i < threads.size(); i++) {
+                    queue.put(END);
+                }
+                for (Thread t : threads) {
+                    t.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for parser threads", e);
+            }
+
+            System.out.println("Parsed " + successCount.get() + " compilation units on "
+                + threads.size() + " threads (peak queue depth " + maxQueued + ")");
+
+            List<ClassEntry> classes = new ArrayList<>();
+            results.values().forEach(classes::addAll);
+            writeParsedIndex(classes, outputPath, jarHash);
+        }
+
+        /** Stop the workers without writing anything (the producer failed). */
+        public void abort() {
+            queue.clear();
+            for (Thread t : threads) {
+                t.interrupt();
+            }
+        }
+    }
+
+    /** The message of a parse failure; errors such as StackOverflowError have none. */
+    private static String describe(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
     }
 
     private void parseFile(Path javaFile, Path decompiledDir, List<ClassEntry> classes) {
-        ParseResult<CompilationUnit> result;
+        String content;
         try {
-            result = parser.parse(javaFile);
+            content = Files.readString(javaFile);
         } catch (IOException e) {
             throw new RuntimeException("Cannot read file: " + e.getMessage(), e);
         }
 
+        String sourceFile = decompiledDir.getParent().relativize(javaFile).toString();
+        parseSource(content, sourceFile, classes);
+    }
+
+    private void parseSource(String content, String sourceFile, List<ClassEntry> classes) {
+        if (cache == null) {
+            parseUncached(content, sourceFile, classes);
+            return;
+        }
+
+        // A cache that cannot be read or written costs a parse, never the file
+        String key = cache.key(mode, sourceFile, content);
+        if (mode != ParseMode.VERIFY) {
+            try {
+                List<ClassEntry> cached = cache.load(key);
+                if (cached != null) {
+                    classes.addAll(cached);
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("WARN: Failed to read parse cache for " + sourceFile + ": " + e.getMessage());
+            }
+        }
+        long start = System.nanoTime();
+        List<ClassEntry> parsed = new ArrayList<>();
+        parseUncached(content, sourceFile, parsed);
+        try {
+            cache.store(key, parsed, System.nanoTime() - start);
+        } catch (IOException e) {
+            System.err.println("WARN: Failed to write parse cache for " + sourceFile + ": " + e.getMessage());
+        }
+        classes.addAll(parsed);
+    }
+
+    private void parseUncached(String content, String sourceFile, List<ClassEntry> classes) {
+        if (mode == ParseMode.FULL) {
+            parseSource(parser.get(), content, new SourcePositions(content, content, List.of()), sourceFile, classes);
+            return;
+        }
+
+        List<ClassEntry> signatures = new ArrayList<>();
+        List<BodyElider.Block> blocks = new ArrayList<>();
+        String elided = BodyElider.elide(content, blocks);
+        try {
+            if (elided == null) {
+                throw new IllegalStateException("unbalanced braces");
+            }
+            parseSource(signatureParser.get(), elided, new SourcePositions(elided, content, blocks),
+                sourceFile, signatures);
+        } catch (RuntimeException e) {
+            // Let the full parse decide whether the file is really broken
+            fullParseFallbacks.incrementAndGet();
+            parseSource(parser.get(), content, new SourcePositions(content, content, List.of()), sourceFile, classes);
+            return;
+        }
+
+        if (mode == ParseMode.VERIFY) {
+            List<ClassEntry> full = new ArrayList<>();
+            parseSource(parser.get(), content, new SourcePositions(content, content, List.of()), sourceFile, full);
+            if (!GSON.toJson(full).equals(GSON.toJson(signatures))) {
+                verifyMismatches.incrementAndGet();
+                System.err.println("WARN: Signature-only parse differs from full parse: " + sourceFile);
+                classes.addAll(full);
+                return;
+            }
+        }
+        classes.addAll(signatures);
+    }
+
+    /**
+     * @param positions  Maps positions in {@code content} to the source file
+     */
+    private void parseSource(JavaParser javaParser, String content, SourcePositions positions,
+                             String sourceFile, List<ClassEntry> classes) {
+        ParseResult<CompilationUnit> result = javaParser.parse(content);
+
         if (!result.isSuccessful() || result.getResult().isEmpty()) {
             String problems = result.getProblems().stream()
                 .map(p -> p.getVerboseMessage())
@@ -114,17 +486,25 @@ public class ClassIndexer {
             .map(pd -> pd.getNameAsString())
             .orElse("");
 
-        String sourceFile = decompiledDir.getParent().relativize(javaFile).toString();
+        // Single-type and on-demand imports, as the file's top-level types will record them
+        List<String> imports = new ArrayList<>();
+        for (ImportDeclaration imp : cu.getImports()) {
+            if (!imp.isStatic()) {
+                imports.add(imp.isAsterisk() ? imp.getNameAsString() + ".*" : imp.getNameAsString());
+            }
+        }
 
         // Process all type declarations in the file
         for (TypeDeclaration<?> type : cu.getTypes()) {
-            processType(type, packageName, sourceFile, classes, null);
+            processType(type, packageName, sourceFile, positions, classes, null);
+            // processType adds the top-level type last, after its nested types
+            classes.get(classes.size() - 1).imports = pool.list(imports);
         }
     }
 
     private void processType(TypeDeclaration<?> type, String packageName,
-                             String sourceFile, List<ClassEntry> classes,
-                             String enclosingFqcn) {
+                             String sourceFile, SourcePositions positions,
+                             List<ClassEntry> classes, String enclosingFqcn) {
         ClassEntry entry = new ClassEntry();
 
         entry.name = type.getNameAsString();
@@ -133,6 +513,8 @@ public class ClassIndexer {
             ? enclosingFqcn + "." + entry.name
             : (packageName.isEmpty() ? entry.name : packageName + "." + entry.name);
         entry.source_file = sourceFile;
+        entry.source_range = positions.range(type);
+        setNesting(entry, enclosingFqcn);
 
         // Determine kind
         entry.kind = determineKind(type);
@@ -202,6 +584,8 @@ public class ClassIndexer {
                 fe.annotations = field.getAnnotations().stream()
                     .map(AnnotationExpr::getNameAsString)
                     .collect(Collectors.toList());
+                // Variables declared together share the declaration's range
+                fe.source_range = positions.range(field);
                 entry.fields.add(fe);
             }
         }
@@ -229,23 +613,47 @@ public class ClassIndexer {
                 pe.type = param.getTypeAsString();
                 me.parameters.add(pe);
             }
+            me.source_range = positions.range(method);
 
             entry.methods.add(me);
         }
 
-        // Inner classes (names only at this level)
+        // Inner classes (names only at this level), by name as in an index built from bytecode
         entry.inner_classes = new ArrayList<>();
         for (BodyDeclaration<?> member : type.getMembers()) {
             if (member instanceof TypeDeclaration<?> innerType) {
                 entry.inner_classes.add(innerType.getNameAsString());
                 // Recursively process inner types as separate entries
-                processType(innerType, packageName, sourceFile, classes, entry.fqcn);
+                processType(innerType, packageName, sourceFile, positions, classes, entry.fqcn);
             }
         }
+        entry.inner_classes.sort(null);
 
+        pool.canonicalize(entry);
         classes.add(entry);
     }
 
+    /**
+     * Record where a nested type sits, from the FQCN of the type declaring it: the
+     * outermost type and every enclosing type, outermost first. Top-level types
+     * keep both null.
+     */
+    static void setNesting(ClassEntry entry, String enclosingFqcn) {
+        if (enclosingFqcn == null) {
+            return;
+        }
+        // Type names contain no dots, so every dot after the package starts a nested type
+        String packagePrefix = entry.package_.isEmpty() ? "" : entry.package_ + ".";
+        List<String> chain = new ArrayList<>();
+        for (int dot = enclosingFqcn.indexOf('.', packagePrefix.length()); dot >= 0;
+             dot = enclosingFqcn.indexOf('.', dot + 1)) {
+            chain.add(enclosingFqcn.substring(0, dot));
+        }
+        chain.add(enclosingFqcn);
+        entry.outer_class = chain.get(0);
+        entry.enclosing_classes = chain;
+    }
+
     private String determineKind(TypeDeclaration<?> type) {
         if (type instanceof EnumDeclaration) return "enum";
         if (type instanceof RecordDeclaration) return "record";
@@ -256,7 +664,12 @@ public class ClassIndexer {
         return "class";
     }
 
-    // JSON model classes matching the spec schema
+    // JSON model classes matching the spec schema. Type names are as written in the
+    // source; the *_ref/*_refs fields hold the exact classes they refer to, as
+    // dotted FQCNs ("a.b.Outer.Inner", type arguments included), or null when unknown.
+    // outer_class/enclosing_classes are set on nested types only, imports on top-level
+    // types parsed from source only (nested types share their outermost type's).
+    // source_range is set on entries parsed from source only
 
     static class ClassIndex {
         String version;
@@ -276,10 +689,17 @@ public class ClassIndexer {
         List<String> interfaces;
         List<String> type_parameters;
         List<String> annotations;
+        String superclass_ref;
+        List<String> interface_refs;
+        List<String> annotation_refs;
         List<FieldEntry> fields;
         List<MethodEntry> methods;
         List<String> inner_classes;
         String source_file;
+        SourceRange source_range;
+        String outer_class;
+        List<String> enclosing_classes;
+        List<String> imports;
     }
 
     static class FieldEntry {
@@ -287,6 +707,8 @@ public class ClassIndexer {
         String type;
         List<String> modifiers;
         List<String> annotations;
+        List<String> type_refs;
+        SourceRange source_range;
     }
 
     static class MethodEntry {
@@ -297,10 +719,25 @@ public class ClassIndexer {
         List<String> annotations;
         @com.google.gson.annotations.SerializedName("throws")
         List<String> throws_;
+        List<String> return_refs;
+        List<String> throws_refs;
+        SourceRange source_range;
     }
 
     static class ParameterEntry {
         String name;
         String type;
+        List<String> type_refs;
+    }
+
+    /**
+     * Where a declaration sits in its source file: 1-based first and last line, and
+     * UTF-8 byte offsets from the start of the file, end exclusive.
+     */
+    static class SourceRange {
+        int begin_line;
+        int end_line;
+        int begin_byte;
+        int end_byte;
     }
 }
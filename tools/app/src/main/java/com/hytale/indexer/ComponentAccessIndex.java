@@ -0,0 +1,668 @@
+package com.hytale.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.Label;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.Opcode;
+import java.lang.classfile.TypeKind;
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.attribute.StackMapFrameInfo;
+import java.lang.classfile.instruction.ArrayLoadInstruction;
+import java.lang.classfile.instruction.ArrayStoreInstruction;
+import java.lang.classfile.instruction.BranchInstruction;
+import java.lang.classfile.instruction.ConstantInstruction;
+import java.lang.classfile.instruction.ConvertInstruction;
+import java.lang.classfile.instruction.DiscontinuedInstruction;
+import java.lang.classfile.instruction.FieldInstruction;
+import java.lang.classfile.instruction.IncrementInstruction;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.instruction.LoadInstruction;
+import java.lang.classfile.instruction.LookupSwitchInstruction;
+import java.lang.classfile.instruction.MonitorInstruction;
+import java.lang.classfile.instruction.NewMultiArrayInstruction;
+import java.lang.classfile.instruction.NewObjectInstruction;
+import java.lang.classfile.instruction.NewPrimitiveArrayInstruction;
+import java.lang.classfile.instruction.NewReferenceArrayInstruction;
+import java.lang.classfile.instruction.OperatorInstruction;
+import java.lang.classfile.instruction.ReturnInstruction;
+import java.lang.classfile.instruction.StackInstruction;
+import java.lang.classfile.instruction.StoreInstruction;
+import java.lang.classfile.instruction.TableSwitchInstruction;
+import java.lang.classfile.instruction.ThrowInstruction;
+import java.lang.classfile.instruction.TypeCheckInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+/**
+ * Which methods read, write or remove each ECS component, read from bytecode.
+ *
+ * Phase 3b asks "which systems read or write component X". Components are
+ * reached through {@code ComponentType}/{@code ResourceType} handles passed to
+ * Store, CommandBuffer, ArchetypeChunk, Holder and the other ComponentAccessor
+ * methods; this index follows each handle from where it is obtained to the call
+ * that consumes it, per method:
+ * <ul>
+ *   <li>{@code X.getComponentType()} and the {@code registerComponent(X.class, ...)}
+ *       calls name component X directly;</li>
+ *   <li>a handle stored in a field, a local, or returned by a getter is traced
+ *       back through those assignments across the whole JAR, so
+ *       {@code this.transformType} or {@code module.getTransformComponentType()}
+ *       resolves to the component they hold;</li>
+ *   <li>the consuming call's name gives the access: get/has read, add/put/set/
+ *       replace/ensure write, remove removes, anything else (queries, system
+ *       dependencies) uses.</li>
+ * </ul>
+ * Handles that cannot be traced to a class are keyed by the field or method they
+ * came from. Every getfield/putfield/getstatic/putstatic is recorded as well,
+ * keyed by the field, so direct access to a component's fields shows up under
+ * the component too. Lambda bodies count as the method declaring the lambda.
+ *
+ * The result is an inverted index ({@link PackedEdges}) from component or field
+ * to (method, access), stored as artifacts/component-access.bin and queried in
+ * memory.
+ */
+final class ComponentAccessIndex {
+
+    private static final int MAGIC = 0x48594341; // "HYCA"
+    private static final int VERSION = 1;
+
+    private static final Set<String> HANDLE_DESCRIPTORS = Set.of(
+        "Lcom/hypixel/hytale/component/ComponentType;",
+        "Lcom/hypixel/hytale/component/ResourceType;"
+    );
+
+    // Handle origins before resolution; the rest of the string is a class, field or method symbol
+    private static final String CLASS = "class:";
+    private static final String FIELD = "field:";
+    private static final String METHOD = "method:";
+
+    /** Assignment chains longer than this are not followed (and cycles end). */
+    private static final int MAX_ALIAS_DEPTH = 16;
+
+    enum Access { READ, WRITE, REMOVE, USE, GET_FIELD, PUT_FIELD, GET_STATIC, PUT_STATIC }
+
+    private static final Access[] ACCESSES = Access.values();
+
+    /** One access: {@code method} touches {@code key} (a component class, or a field). */
+    record Entry(String method, String key, Access access) {}
+
+    /**
+     * What one class group contributed: raw accesses (method, origin or field, access)
+     * and where handles flow (field or getter symbol -> origin).
+     */
+    private record GroupScan(List<String[]> accesses, Map<String, String> aliases) {}
+
+    private final String jarHash;
+    private final PackedEdges index;
+
+    private ComponentAccessIndex(String jarHash, PackedEdges index) {
+        this.jarHash = jarHash;
+        this.index = index;
+    }
+
+    /**
+     * Scan every class the decompiler would include, in parallel by class group.
+     */
+    static ComponentAccessIndex build(Path jarPath, String jarHash) throws IOException {
+        Map<String, GroupScan> scans = new ConcurrentHashMap<>();
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            Map<String, List<JarEntry>> groups = Decompiler.groupClasses(jf);
+            groups.entrySet().parallelStream().forEach(group -> {
+                try {
+                    GroupScan scan = new GroupScan(new ArrayList<>(), new HashMap<>());
+                    for (byte[] bytes : Decompiler.readGroup(jf, group.getValue(), Map.of()).values()) {
+                        scanClass(ClassFile.of().parse(bytes), scan);
+                    }
+                    scans.put(group.getKey(), scan);
+                } catch (Exception e) {
+                    System.err.println("WARN: Failed to scan " + group.getKey().replace('/', '.') + ": " + e.getMessage());
+                }
+            });
+        }
+
+        // Merged in group order, so a symbol assigned in several groups resolves the same on every run
+        Map<String, String> aliases = new HashMap<>();
+        for (GroupScan scan : new TreeMap<>(scans).values()) {
+            aliases.putAll(scan.aliases());
+        }
+        PackedEdges.Builder builder = new PackedEdges.Builder();
+        for (GroupScan scan : scans.values()) {
+            for (String[] a : scan.accesses()) {
+                Access access = Access.valueOf(a[2]);
+                String key = access.ordinal() >= Access.GET_FIELD.ordinal() ? a[1] : resolve(a[1], aliases);
+                builder.edge(a[0], key, access.ordinal());
+            }
+        }
+        return new ComponentAccessIndex(jarHash, builder.build());
+    }
+
+    private static void scanClass(ClassModel cm, GroupScan scan) {
+        String self = cm.thisClass().asInternalName();
+        Map<String, String> lambdaOwners = CallGraph.lambdaOwners(cm);
+        for (MethodModel m : cm.methods()) {
+            CodeAttribute code = m.findAttribute(Attributes.code()).orElse(null);
+            if (code == null) {
+                continue;
+            }
+            String own = CallGraph.methodSymbol(self, m);
+            MethodTypeDesc signature = m.methodTypeSymbol();
+            new MethodScan(scan, CallGraph.enclosingMethod(own, lambdaOwners), own,
+                signature.parameterCount() == 0 && isHandle(signature.returnType()), code).run();
+        }
+    }
+
+    /**
+     * A value on the abstract operand stack: where a handle came from, a class
+     * constant, a new array of handles with the handles stored into it, or
+     * {@link Unknown} for every value this index does not model.
+     */
+    private sealed interface Value permits Handle, ClassConstant, HandleArray, Unknown {}
+
+    private record Handle(String origin) implements Value {}
+
+    private record ClassConstant(String internalName) implements Value {}
+
+    private record HandleArray(List<String> origins) implements Value {}
+
+    /** Any other value; long and double values are {@code WIDE} (two stack slots). */
+    private enum Unknown implements Value { NARROW, WIDE }
+
+    /**
+     * Walks one method's code over an abstract operand stack, in instruction order.
+     * Every instruction pops and pushes what the JVM would, so a handle is consumed
+     * by the instruction that really takes it (a call, a store, a comparison, a
+     * return). Where control flow joins, the stack is reset to the depth the
+     * StackMapTable records, with every value unknown; locals holding handles are
+     * kept.
+     */
+    private static final class MethodScan {
+
+        private final GroupScan scan;
+        private final String method;
+        private final String own;
+        private final boolean returnsHandle;
+        private final CodeAttribute code;
+        private final Map<Label, List<Value>> frames = new HashMap<>();
+        private final List<Value> stack = new ArrayList<>();
+        // Locals holding a modelled value; parameters and the rest are unknown
+        private final Map<Integer, Value> locals = new HashMap<>();
+
+        MethodScan(GroupScan scan, String method, String own, boolean returnsHandle, CodeAttribute code) {
+            this.scan = scan;
+            this.method = method;
+            this.own = own;
+            this.returnsHandle = returnsHandle;
+            this.code = code;
+            code.findAttribute(Attributes.stackMapTable()).ifPresent(table -> {
+                for (StackMapFrameInfo frame : table.entries()) {
+                    List<Value> values = new ArrayList<>();
+                    for (StackMapFrameInfo.VerificationTypeInfo type : frame.stack()) {
+                        // JVMS 4.7.4: ITEM_Double (3) and ITEM_Long (4) take two slots
+                        values.add(type.tag() == 3 || type.tag() == 4 ? Unknown.WIDE : Unknown.NARROW);
+                    }
+                    frames.put(frame.target(), values);
+                }
+            });
+        }
+
+        void run() {
+            for (CodeElement element : code) {
+                if (element instanceof Label label) {
+                    join(label);
+                } else if (element instanceof Instruction instruction) {
+                    step(instruction);
+                }
+            }
+        }
+
+        /** A branch target: its stack comes from several paths, so nothing on it is known. */
+        private void join(Label label) {
+            List<Value> frame = frames.get(label);
+            if (frame != null) {
+                stack.clear();
+                stack.addAll(frame);
+            } else {
+                // Without a frame (old class files) the depth carries over from the fall-through
+                stack.replaceAll(v -> v == Unknown.WIDE ? Unknown.WIDE : Unknown.NARROW);
+            }
+        }
+
+        private void step(Instruction ins) {
+            switch (ins) {
+                case ConstantInstruction c -> {
+                    if (c.constantValue() instanceof ClassDesc cd && cd.isClassOrInterface()) {
+                        String d = cd.descriptorString();
+                        push(new ClassConstant(d.substring(1, d.length() - 1)));
+                    } else {
+                        push(unknown(c.typeKind()));
+                    }
+                }
+                case LoadInstruction load -> push(load.typeKind() == TypeKind.REFERENCE
+                    ? locals.getOrDefault(load.slot(), Unknown.NARROW) : unknown(load.typeKind()));
+                case StoreInstruction store -> {
+                    Value value = pop();
+                    if (value instanceof Unknown) {
+                        locals.remove(store.slot());
+                    } else {
+                        locals.put(store.slot(), value);
+                    }
+                }
+                case IncrementInstruction _ -> { }
+                case FieldInstruction f -> field(f);
+                case InvokeInstruction invoke -> invoke(invoke);
+                case InvokeDynamicInstruction indy -> {
+                    MethodTypeDesc desc = indy.typeSymbol();
+                    pop(desc.parameterCount());
+                    pushResult(desc.returnType());
+                }
+                case NewObjectInstruction _ -> push(Unknown.NARROW);
+                case NewPrimitiveArrayInstruction _ -> {
+                    pop();
+                    push(Unknown.NARROW);
+                }
+                case NewReferenceArrayInstruction array -> {
+                    pop();
+                    push(isHandle(array.componentType().asSymbol())
+                        ? new HandleArray(new ArrayList<>()) : Unknown.NARROW);
+                }
+                case NewMultiArrayInstruction array -> {
+                    pop(array.dimensions());
+                    push(Unknown.NARROW);
+                }
+                case ArrayLoadInstruction load -> {
+                    pop(2);
+                    push(unknown(load.typeKind()));
+                }
+                case ArrayStoreInstruction _ -> {
+                    Value value = pop();
+                    pop();
+                    // Varargs queries take exactly the handles stored into their array
+                    if (pop() instanceof HandleArray array && value instanceof Handle handle) {
+                        array.origins().add(handle.origin());
+                    }
+                }
+                case TypeCheckInstruction check -> {
+                    if (check.opcode() == Opcode.INSTANCEOF) {
+                        pop();
+                        push(Unknown.NARROW);
+                    }
+                    // checkcast leaves the value as it is: a handle stays one, anything else unknown
+                }
+                case ConvertInstruction convert -> {
+                    pop();
+                    push(unknown(convert.toType()));
+                }
+                case OperatorInstruction op -> {
+                    switch (op.opcode()) {
+                        case ARRAYLENGTH, INEG, LNEG, FNEG, DNEG -> pop();
+                        default -> pop(2);
+                    }
+                    push(switch (op.opcode()) {
+                        case LCMP, FCMPL, FCMPG, DCMPL, DCMPG -> Unknown.NARROW;
+                        default -> unknown(op.typeKind());
+                    });
+                }
+                case StackInstruction op -> stackOp(op.opcode());
+                case BranchInstruction branch -> {
+                    switch (branch.opcode()) {
+                        case GOTO, GOTO_W -> { }
+                        case IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE,
+                             IF_ACMPEQ, IF_ACMPNE -> pop(2);
+                        default -> pop();
+                    }
+                }
+                case LookupSwitchInstruction _ -> pop();
+                case TableSwitchInstruction _ -> pop();
+                case ReturnInstruction ret -> {
+                    if (ret.typeKind() != TypeKind.VOID && pop() instanceof Handle handle && returnsHandle) {
+                        scan.aliases().put(own, handle.origin());
+                    }
+                }
+                case ThrowInstruction _ -> pop();
+                case MonitorInstruction _ -> pop();
+                case DiscontinuedInstruction.JsrInstruction _ -> push(Unknown.NARROW);
+                default -> { } // nop, ret
+            }
+        }
+
+        private void field(FieldInstruction f) {
+            String field = f.owner().asInternalName() + "." + f.name().stringValue();
+            Access access = switch (f.opcode()) {
+                case GETFIELD -> Access.GET_FIELD;
+                case PUTFIELD -> Access.PUT_FIELD;
+                case GETSTATIC -> Access.GET_STATIC;
+                default -> Access.PUT_STATIC;
+            };
+            scan.accesses().add(new String[] {method, field, access.name()});
+            ClassDesc type = f.typeSymbol();
+            switch (f.opcode()) {
+                case GETFIELD, GETSTATIC -> {
+                    if (f.opcode() == Opcode.GETFIELD) {
+                        pop();
+                    }
+                    push(isHandle(type) ? new Handle(FIELD + field) : unknown(TypeKind.from(type)));
+                }
+                default -> {
+                    if (pop() instanceof Handle handle) {
+                        scan.aliases().put(field, handle.origin());
+                    }
+                    if (f.opcode() == Opcode.PUTFIELD) {
+                        pop();
+                    }
+                }
+            }
+        }
+
+        private void invoke(InvokeInstruction invoke) {
+            MethodTypeDesc desc = invoke.typeSymbol();
+            String name = invoke.name().stringValue();
+            Value[] args = new Value[desc.parameterCount()];
+            for (int i = args.length - 1; i >= 0; i--) {
+                args[i] = pop();
+            }
+            if (invoke.opcode() != Opcode.INVOKESTATIC) {
+                pop(); // receiver; a call on a handle itself is not an access to the component
+            }
+            Access access = accessOf(name);
+            String componentClass = null;
+            for (Value arg : args) {
+                if (arg instanceof Handle handle) {
+                    scan.accesses().add(new String[] {method, handle.origin(), access.name()});
+                } else if (arg instanceof HandleArray array) {
+                    for (String origin : array.origins()) {
+                        scan.accesses().add(new String[] {method, origin, access.name()});
+                    }
+                } else if (arg instanceof ClassConstant cls && componentClass == null) {
+                    componentClass = cls.internalName();
+                }
+            }
+            if (isHandle(desc.returnType())) {
+                push(new Handle(componentClass != null
+                    ? CLASS + componentClass
+                    : METHOD + CallGraph.methodSymbol(invoke.owner().asInternalName(), name, invoke.type().stringValue())));
+            } else {
+                pushResult(desc.returnType());
+            }
+        }
+
+        /** pop, dup, swap and friends, which work on slots: a long or double counts twice. */
+        private void stackOp(Opcode opcode) {
+            switch (opcode) {
+                case POP -> takeSlots(1);
+                case POP2 -> takeSlots(2);
+                case DUP -> {
+                    List<Value> a = takeSlots(1);
+                    pushAll(a, a);
+                }
+                case DUP_X1 -> {
+                    List<Value> a = takeSlots(1);
+                    List<Value> b = takeSlots(1);
+                    pushAll(a, b, a);
+                }
+                case DUP_X2 -> {
+                    List<Value> a = takeSlots(1);
+                    List<Value> b = takeSlots(2);
+                    pushAll(a, b, a);
+                }
+                case DUP2 -> {
+                    List<Value> a = takeSlots(2);
+                    pushAll(a, a);
+                }
+                case DUP2_X1 -> {
+                    List<Value> a = takeSlots(2);
+                    List<Value> b = takeSlots(1);
+                    pushAll(a, b, a);
+                }
+                case DUP2_X2 -> {
+                    List<Value> a = takeSlots(2);
+                    List<Value> b = takeSlots(2);
+                    pushAll(a, b, a);
+                }
+                case SWAP -> {
+                    List<Value> a = takeSlots(1);
+                    List<Value> b = takeSlots(1);
+                    pushAll(a, b);
+                }
+                default -> { }
+            }
+        }
+
+        /** The values covering the top {@code slots} slots, bottom first. */
+        private List<Value> takeSlots(int slots) {
+            List<Value> values = new ArrayList<>(2);
+            while (slots > 0) {
+                Value v = pop();
+                values.addFirst(v);
+                slots -= v == Unknown.WIDE ? 2 : 1;
+            }
+            return values;
+        }
+
+        @SafeVarargs
+        private void pushAll(List<Value>... groups) {
+            for (List<Value> group : groups) {
+                stack.addAll(group);
+            }
+        }
+
+        private void push(Value value) {
+            stack.add(value);
+        }
+
+        private void pushResult(ClassDesc type) {
+            if (!type.descriptorString().equals("V")) {
+                push(unknown(TypeKind.from(type)));
+            }
+        }
+
+        /** The top value; unknown on an underflow, which only a frame-less join can cause. */
+        private Value pop() {
+            return stack.isEmpty() ? Unknown.NARROW : stack.removeLast();
+        }
+
+        private void pop(int count) {
+            for (int i = 0; i < count; i++) {
+                pop();
+            }
+        }
+
+        private static Unknown unknown(TypeKind kind) {
+            return kind == TypeKind.LONG || kind == TypeKind.DOUBLE ? Unknown.WIDE : Unknown.NARROW;
+        }
+    }
+
+    private static boolean isHandle(ClassDesc desc) {
+        return HANDLE_DESCRIPTORS.contains(desc.descriptorString());
+    }
+
+    private static Access accessOf(String method) {
+        if (method.startsWith("get") || method.startsWith("has")) {
+            return Access.READ;
+        }
+        if (method.startsWith("remove") || method.startsWith("tryRemove")) {
+            return Access.REMOVE;
+        }
+        if (method.startsWith("add") || method.startsWith("put") || method.startsWith("set")
+                || method.startsWith("replace") || method.startsWith("ensure")) {
+            return Access.WRITE;
+        }
+        return Access.USE;
+    }
+
+    /**
+     * Follow a handle's origin through field and getter assignments to the component
+     * class it names; an origin that ends elsewhere stays keyed by its last symbol.
+     */
+    private static String resolve(String origin, Map<String, String> aliases) {
+        String current = origin;
+        for (int depth = 0; depth < MAX_ALIAS_DEPTH && !current.startsWith(CLASS); depth++) {
+            String next = aliases.get(current.substring(current.indexOf(':') + 1));
+            if (next == null) {
+                break;
+            }
+            current = next;
+        }
+        return current.substring(current.indexOf(':') + 1);
+    }
+
+    int keyCount() {
+        return index.symbols.length;
+    }
+
+    int entryCount() {
+        return index.edges.length;
+    }
+
+    // --- Persistence ---
+
+    void write(Path path) throws IOException {
+        // Written to a temp file and moved into place, so a file whose header names
+        // the current JAR is always complete and can be kept by the next run
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(jarHash);
+                index.write(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the JAR hash in the header of the index at {@code path}, or null
+     *         if there is no readable index of the current version there
+     */
+    static String storedJarHash(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 256))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION ? in.readUTF() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the index stored at {@code path}
+     */
+    static ComponentAccessIndex load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a component access index: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported component access index version " + version + " in " + path
+                    + " (expected " + VERSION + "; re-run Phase 1)");
+            }
+            return new ComponentAccessIndex(in.readUTF(), PackedEdges.read(in));
+        }
+    }
+
+    // --- Lookups ---
+
+    /**
+     * Every access to component {@code type} (simple name or FQCN): reads, writes,
+     * removals and uses of its handle, and field accesses on the class itself.
+     */
+    List<Entry> component(String type) {
+        List<Entry> result = new ArrayList<>();
+        for (String name : resolveTypes(type)) {
+            int id = index.id(name);
+            if (id >= 0) {
+                addEntries(id, result);
+            }
+            String prefix = name + ".";
+            for (int i = index.firstSymbol(prefix); i < index.symbols.length && index.symbols[i].startsWith(prefix); i++) {
+                if (index.symbols[i].indexOf('(') < 0) {
+                    addEntries(i, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Accesses to the fields matching {@code field} ("Type.name", * wildcards allowed).
+     */
+    List<Entry> field(String field) {
+        int dot = field.lastIndexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Expected Type.field, got: " + field);
+        }
+        Pattern name = PackedEdges.glob(field.substring(dot + 1));
+        List<Entry> result = new ArrayList<>();
+        for (String owner : resolveTypes(field.substring(0, dot))) {
+            String prefix = owner + ".";
+            for (int i = index.firstSymbol(prefix); i < index.symbols.length && index.symbols[i].startsWith(prefix); i++) {
+                String rest = index.symbols[i].substring(prefix.length());
+                if (rest.indexOf('(') < 0 && name.matcher(rest).matches()) {
+                    addEntries(i, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addEntries(int key, List<Entry> out) {
+        for (int i = index.firstEdge(key); i < index.edges.length && PackedEdges.target(index.edges[i]) == key; i++) {
+            long e = index.edges[i];
+            out.add(new Entry(index.symbols[PackedEdges.source(e)], index.symbols[key], ACCESSES[PackedEdges.kind(e)]));
+        }
+    }
+
+    /**
+     * Internal names of the classes {@code type} may mean (see {@link CallGraph#resolveTypes}),
+     * taken from the classes and field owners the index knows.
+     */
+    private Set<String> resolveTypes(String type) {
+        Set<String> result = new TreeSet<>();
+        boolean qualified = type.indexOf('.') >= 0;
+        String dotted = type.replace('$', '.');
+        String previous = null;
+        for (String symbol : index.symbols) {
+            int dot = symbol.indexOf('.');
+            String cls = dot < 0 ? symbol : symbol.substring(0, dot);
+            if (cls.equals(previous)) {
+                continue;
+            }
+            previous = cls;
+            String fqcn = cls.replace('/', '.').replace('$', '.');
+            if (qualified ? fqcn.equals(dotted) : fqcn.endsWith("." + type)) {
+                result.add(cls);
+            }
+        }
+        return result;
+    }
+}
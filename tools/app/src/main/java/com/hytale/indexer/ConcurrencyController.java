@@ -0,0 +1,206 @@
+package com.hytale.indexer;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adapts how many classes Vineflower decompiles at once to heap pressure.
+ *
+ * Vineflower's thread pool is sized once per context, so one thread per core is
+ * what exhausts the heap when several large classes are in flight together, while
+ * fewer threads waste cores on the many small ones. The pool therefore keeps one
+ * thread per core, and each worker takes a permit from this controller before it
+ * starts a class (see {@link BudgetLogger}); workers beyond the current limit wait.
+ *
+ * The limit follows heap occupancy after each garbage collection, read from GC
+ * notifications (live data, unlike the usage between collections that
+ * {@link MemoryMXBean} reports, which includes garbage). Above the target the
+ * limit is halved; below a low-water mark it grows by one (AIMD). Each change is
+ * printed, and {@link #close()} prints the limit's history.
+ */
+class ConcurrencyController implements AutoCloseable {
+
+    /** Heap occupancy after GC to stay under, as a fraction of the maximum heap. */
+    static final double DEFAULT_TARGET = 0.75;
+
+    /** Occupancy below target * LOW_WATER lets the limit grow again. */
+    private static final double LOW_WATER = 0.8;
+
+    /** How often a waiting worker checks for permits leaked by threads that have died. */
+    private static final long STALE_CHECK_MILLIS = 1000;
+
+    /** A limit in force from {@code atMillis} (since the controller started). */
+    private record Change(long atMillis, int limit) {}
+
+    private final int maxLimit;
+    private final double target;
+    private final PrintStream out;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final long startMillis = System.currentTimeMillis();
+    private final List<Change> history = new ArrayList<>();
+    private final Map<NotificationEmitter, NotificationListener> listeners = new ConcurrentHashMap<>();
+    /** Threads currently holding a permit. */
+    private final Set<Thread> holders = ConcurrentHashMap.newKeySet();
+    private final Set<String> heapPools = new HashSet<>();
+    private int limit;
+
+    /**
+     * @param maxLimit  Upper bound (and starting value) of classes in flight, normally the thread count
+     * @param target    Heap occupancy after GC to stay under (0-1)
+     * @param out       Stream for limit changes and the summary
+     */
+    ConcurrencyController(int maxLimit, double target, PrintStream out) {
+        this.maxLimit = maxLimit;
+        this.target = target;
+        this.out = out;
+        this.limit = maxLimit;
+        history.add(new Change(0, maxLimit));
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                NotificationListener listener = this::onGc;
+                emitter.addNotificationListener(listener, null, null);
+                listeners.put(emitter, listener);
+            }
+        }
+    }
+
+    /**
+     * Take a permit for the calling thread, waiting while the limit is reached.
+     * A thread that already holds one keeps it (Vineflower may skip the matching
+     * end hook when a class fails).
+     */
+    void acquire() {
+        Thread thread = Thread.currentThread();
+        if (holders.contains(thread)) {
+            return;
+        }
+        synchronized (this) {
+            while (holders.size() >= limit) {
+                try {
+                    wait(STALE_CHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                pruneDeadHolders();
+            }
+            holders.add(thread);
+        }
+    }
+
+    /**
+     * Drop the permits of holders that have terminated. A live holder keeps its
+     * permit even when parked: it may be waiting on a lock or I/O in the middle of
+     * a class. A permit whose end hook was skipped is reused by the same thread's
+     * next class (see {@link #acquire}) and dropped by {@link #releaseAll} once the
+     * context is done.
+     */
+    private void pruneDeadHolders() {
+        holders.removeIf(t -> !t.isAlive());
+    }
+
+    /** Return the calling thread's permit, if it holds one. */
+    synchronized void release() {
+        if (holders.remove(Thread.currentThread())) {
+            notifyAll();
+        }
+    }
+
+    /** Drop every permit, e.g. once a context is done and no worker is left running. */
+    synchronized void releaseAll() {
+        holders.clear();
+        notifyAll();
+    }
+
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GcInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        long max = memory.getHeapMemoryUsage().getMax();
+        if (max > 0) {
+            adjust((double) used / max);
+        }
+    }
+
+    private synchronized void adjust(double occupancy) {
+        int next = limit;
+        if (occupancy > target) {
+            next = Math.max(1, limit / 2);
+        } else if (occupancy < target * LOW_WATER) {
+            next = Math.min(maxLimit, limit + 1);
+        }
+        if (next == limit) {
+            return;
+        }
+        out.printf("  Concurrency %d -> %d (heap %.0f%% after GC, target %.0f%%)%n",
+            limit, next, occupancy * 100, target * 100);
+        limit = next;
+        history.add(new Change(System.currentTimeMillis() - startMillis, next));
+        notifyAll();
+    }
+
+    /**
+     * Stop listening for GC notifications and print the limit over time.
+     */
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<NotificationEmitter, NotificationListener> e : listeners.entrySet()) {
+            try {
+                e.getKey().removeNotificationListener(e.getValue());
+            } catch (ListenerNotFoundException ignored) {
+                // Already gone
+            }
+        }
+        listeners.clear();
+
+        long end = System.currentTimeMillis() - startMillis;
+        double weighted = 0;
+        int min = maxLimit;
+        for (int i = 0; i < history.size(); i++) {
+            Change c = history.get(i);
+            long until = i + 1 < history.size() ? history.get(i + 1).atMillis() : end;
+            weighted += (double) c.limit() * (until - c.atMillis());
+            min = Math.min(min, c.limit());
+        }
+        out.printf("Concurrency: %d changes, min %d, max %d, time-weighted average %.1f%n",
+            history.size() - 1, min, maxLimit, end > 0 ? weighted / end : maxLimit);
+        if (history.size() > 1) {
+            StringBuilder sb = new StringBuilder("  Limit over time:");
+            for (Change c : history) {
+                sb.append(String.format(" %.0fs=%d", c.atMillis() / 1000.0, c.limit()));
+            }
+            out.println(sb);
+        }
+    }
+}
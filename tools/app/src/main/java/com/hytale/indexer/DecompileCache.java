@@ -0,0 +1,117 @@
+package com.hytale.indexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent, content-addressed cache of decompiled sources.
+ *
+ * Vineflower emits one .java file per top-level class, with its inner and
+ * synthetic classes (Outer$Inner.class, Outer$1.class) folded into it. The cache
+ * therefore works on class groups: the key is a SHA-256 over the decompiler
+ * options fingerprint plus the name and bytes of every class file in the group.
+ * Any change to the group or to the Vineflower options produces a new key, so
+ * entries are never invalidated in place — stale ones are simply never hit again.
+ *
+ * Layout: {@code <cacheDir>/<first two hex chars>/<key>.java}
+ */
+public class DecompileCache {
+
+    private final Path cacheDir;
+    private final String optionsFingerprint;
+    private final AtomicInteger hits = new AtomicInteger(0);
+    private final AtomicInteger misses = new AtomicInteger(0);
+
+    /**
+     * @param cacheDir            Directory holding cached sources (created on first store)
+     * @param optionsFingerprint  Decompiler version and options; part of every key
+     */
+    public DecompileCache(Path cacheDir, String optionsFingerprint) {
+        this.cacheDir = cacheDir;
+        this.optionsFingerprint = optionsFingerprint;
+    }
+
+    /**
+     * Compute the cache key for a class group.
+     *
+     * @param groupEntries class file entry name -> class file bytes, sorted by name
+     *                     so the key does not depend on JAR entry order
+     */
+    public String key(SortedMap<String, byte[]> groupEntries) {
+        return key(optionsFingerprint, groupEntries);
+    }
+
+    /**
+     * Compute the cache key for a class group without a cache instance, e.g. to
+     * recognise a group across runs when caching is disabled.
+     */
+    static String key(String optionsFingerprint, SortedMap<String, byte[]> groupEntries) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        digest.update(optionsFingerprint.getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, byte[]> e : groupEntries.entrySet()) {
+            digest.update((byte) 0);
+            digest.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(e.getValue());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Look up the cached source for {@code key}.
+     *
+     * @return the decompiled source on a cache hit, or null if nothing is cached for the key
+     */
+    public String load(String key) throws IOException {
+        Path cached = pathFor(key);
+        if (!Files.isRegularFile(cached)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return Files.readString(cached);
+    }
+
+    /**
+     * Store a freshly decompiled source under {@code key}. Writes go through a
+     * temp file and an atomic move so an interrupted run never leaves a
+     * truncated entry behind.
+     */
+    public void store(String key, String source) throws IOException {
+        Path cached = pathFor(key);
+        Files.createDirectories(cached.getParent());
+        Path tmp = Files.createTempFile(cached.getParent(), key, ".tmp");
+        try {
+            Files.writeString(tmp, source);
+            Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+
+    private Path pathFor(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + ".java");
+    }
+}
@@ -0,0 +1,183 @@
+package com.hytale.indexer;
+
+import java.io.IOException;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.instruction.BranchInstruction;
+import java.lang.classfile.instruction.LookupSwitchInstruction;
+import java.lang.classfile.instruction.TableSwitchInstruction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Estimates how long Vineflower will take to decompile a class group, from its bytecode.
+ *
+ * Decompile time is dominated by control-flow analysis of method bodies, so the
+ * estimate sums, per method, a fixed overhead, the code length, and a branch term
+ * that grows quadratically with the method's branch count (Vineflower's CFG and
+ * statement-structure passes are superlinear in the number of basic blocks). The
+ * unit is arbitrary; only the ordering matters for scheduling.
+ *
+ * Schedulers dispatch the most expensive groups first so a giant class starts
+ * while every core is still busy, instead of running alone at the end.
+ * {@link #writeLog} records predicted against measured times so the weights below
+ * can be recalibrated.
+ */
+final class DecompileCost {
+
+    private static final long METHOD_WEIGHT = 64;
+    private static final long BRANCH_WEIGHT = 8;
+    /** Divisor of the quadratic per-method branch term. */
+    private static final long BRANCH_SQUARED_DIVISOR = 16;
+
+    /** Bytecode metrics of a class group and the resulting cost estimate. */
+    record Estimate(int methods, int codeBytes, int branches, long cost) {}
+
+    /** A class group's estimate next to its measured decompile time. */
+    record Sample(String group, Estimate estimate, long actualMillis) {}
+
+    private DecompileCost() {
+    }
+
+    /**
+     * @param classFiles  Bytes of every class file in the group
+     */
+    static Estimate estimate(Collection<byte[]> classFiles) {
+        int methods = 0;
+        int codeBytes = 0;
+        int branches = 0;
+        long cost = 0;
+        for (byte[] bytes : classFiles) {
+            ClassModel model = ClassFile.of().parse(bytes);
+            for (MethodModel method : model.methods()) {
+                methods++;
+                cost += METHOD_WEIGHT;
+                CodeAttribute code = method.findAttribute(Attributes.code()).orElse(null);
+                if (code == null) {
+                    continue;
+                }
+                int methodBranches = 0;
+                for (CodeElement element : code) {
+                    if (element instanceof BranchInstruction) {
+                        methodBranches++;
+                    } else if (element instanceof TableSwitchInstruction sw) {
+                        methodBranches += sw.cases().size() + 1;
+                    } else if (element instanceof LookupSwitchInstruction sw) {
+                        methodBranches += sw.cases().size() + 1;
+                    }
+                }
+                methodBranches += code.exceptionHandlers().size();
+                codeBytes += code.codeLength();
+                branches += methodBranches;
+                cost += code.codeLength() + BRANCH_WEIGHT * methodBranches
+                    + (long) methodBranches * methodBranches / BRANCH_SQUARED_DIVISOR;
+            }
+        }
+        return new Estimate(methods, codeBytes, branches, cost);
+    }
+
+    /**
+     * Write predicted against measured decompile time per class group as TSV
+     * (most expensive measured first) and print how well the estimate tracked.
+     */
+    static void writeLog(Path path, Collection<Sample> samples) throws IOException {
+        if (samples.isEmpty()) {
+            return;
+        }
+        List<Sample> sorted = new ArrayList<>(samples);
+        sorted.sort(Comparator.comparingLong(Sample::actualMillis).reversed());
+
+        // Least-squares fit of actual = scale * predicted; the rank correlation printed
+        // below is what actually decides the schedule
+        double xy = 0;
+        double xx = 0;
+        for (Sample s : sorted) {
+            xy += (double) s.estimate().cost() * s.actualMillis();
+            xx += (double) s.estimate().cost() * s.estimate().cost();
+        }
+        double scale = xx > 0 ? xy / xx : 0;
+
+        List<String> lines = new ArrayList<>();
+        lines.add("group\tmethods\tcode_bytes\tbranches\tpredicted_cost\tpredicted_ms\tactual_ms");
+        for (Sample s : sorted) {
+            Estimate e = s.estimate();
+            lines.add(s.group().replace('/', '.') + "\t" + e.methods() + "\t" + e.codeBytes() + "\t"
+                + e.branches() + "\t" + e.cost() + "\t" + Math.round(e.cost() * scale) + "\t" + s.actualMillis());
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.write(path, lines);
+
+        System.out.printf("Decompile cost model: %d samples, %.4f ms per cost unit, Spearman rho %.2f (log: %s)%n",
+            sorted.size(), scale, spearman(sorted), path);
+    }
+
+    /**
+     * Write raw samples, one per line, for {@link #readSamples} in another JVM.
+     */
+    static void writeSamples(Path path, Collection<Sample> samples) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Sample s : samples) {
+            Estimate e = s.estimate();
+            lines.add(s.group() + "\t" + e.methods() + "\t" + e.codeBytes() + "\t" + e.branches() + "\t"
+                + e.cost() + "\t" + s.actualMillis());
+        }
+        Files.write(path, lines);
+    }
+
+    /**
+     * Read samples written by {@link #writeSamples}; a missing file has none.
+     */
+    static List<Sample> readSamples(Path path) throws IOException {
+        List<Sample> samples = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return samples;
+        }
+        for (String line : Files.readAllLines(path)) {
+            String[] f = line.split("\t");
+            if (f.length != 6) {
+                throw new IOException("Malformed cost sample in " + path + ": " + line);
+            }
+            Estimate e = new Estimate(Integer.parseInt(f[1]), Integer.parseInt(f[2]), Integer.parseInt(f[3]),
+                Long.parseLong(f[4]));
+            samples.add(new Sample(f[0], e, Long.parseLong(f[5])));
+        }
+        return samples;
+    }
+
+    private static double spearman(List<Sample> samples) {
+        int n = samples.size();
+        if (n < 2) {
+            return 1;
+        }
+        double[] predictedRank = ranks(samples, Comparator.comparingLong(s -> s.estimate().cost()));
+        double[] actualRank = ranks(samples, Comparator.comparingLong(Sample::actualMillis));
+        double d2 = 0;
+        for (int i = 0; i < n; i++) {
+            double d = predictedRank[i] - actualRank[i];
+            d2 += d * d;
+        }
+        return 1 - 6 * d2 / ((double) n * ((double) n * n - 1));
+    }
+
+    /** Rank of each sample (by index in {@code samples}) under {@code order}. */
+    private static double[] ranks(List<Sample> samples, Comparator<Sample> order) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i++) {
+            indices.add(i);
+        }
+        indices.sort((a, b) -> order.compare(samples.get(a), samples.get(b)));
+        double[] ranks = new double[samples.size()];
+        for (int r = 0; r < indices.size(); r++) {
+            ranks[indices.get(r)] = r;
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,103 @@
+package com.hytale.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class groups that exceeded the per-class decompile budget.
+ *
+ * Each entry remembers the group's content key (see {@link DecompileCache#key}),
+ * so a later run skips Vineflower for that group and goes straight to the
+ * bytecode stub, but only while the class bytes and decompiler options are
+ * unchanged. Delete the file to give every quarantined class another try.
+ *
+ * Stored as artifacts/decompile-quarantine.json.
+ */
+public class DecompileQuarantine {
+
+    private final Map<String, QuarantinedClass> classes = new TreeMap<>();
+
+    /**
+     * Load a quarantine file, or start empty if it does not exist.
+     */
+    public static DecompileQuarantine load(Path path) throws IOException {
+        DecompileQuarantine quarantine = new DecompileQuarantine();
+        if (path == null || !Files.isRegularFile(path)) {
+            return quarantine;
+        }
+        QuarantineFile file = new Gson().fromJson(Files.readString(path), QuarantineFile.class);
+        if (file != null && file.classes != null) {
+            for (QuarantinedClass entry : file.classes) {
+                quarantine.classes.put(entry.fqcn.replace('.', '/'), entry);
+            }
+        }
+        return quarantine;
+    }
+
+    /**
+     * Whether {@code group} (internal name) is quarantined with exactly this content key.
+     */
+    public synchronized boolean contains(String group, String key) {
+        QuarantinedClass entry = classes.get(group);
+        return entry != null && entry.key.equals(key);
+    }
+
+    public synchronized void add(String group, String key, long elapsedMillis) {
+        QuarantinedClass entry = new QuarantinedClass();
+        entry.fqcn = group.replace('/', '.');
+        entry.key = key;
+        entry.elapsed_ms = elapsedMillis;
+        classes.put(group, entry);
+    }
+
+    public synchronized void addAll(DecompileQuarantine other) {
+        synchronized (other) {
+            classes.putAll(other.classes);
+        }
+    }
+
+    public synchronized int size() {
+        return classes.size();
+    }
+
+    /**
+     * Write the quarantine file, or remove it when nothing is quarantined.
+     */
+    public synchronized void save(Path path, long budgetSeconds) throws IOException {
+        if (classes.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        QuarantineFile file = new QuarantineFile();
+        file.budget_seconds = budgetSeconds;
+        file.classes = new ArrayList<>(classes.values());
+
+        Gson gson = new GsonBuilder()
+            .setPrettyPrinting()
+            .disableHtmlEscaping()
+            .create();
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, gson.toJson(file));
+    }
+
+    // ---- JSON model ----
+
+    static class QuarantineFile {
+        long budget_seconds;
+        List<QuarantinedClass> classes;
+    }
+
+    static class QuarantinedClass {
+        String fqcn;
+        String key;
+        long elapsed_ms;
+    }
+}
@@ -1,16 +1,29 @@
 package com.hytale.indexer;
 
-import org.jetbrains.java.decompiler.main.decompiler.ConsoleDecompiler;
+import org.jetbrains.java.decompiler.main.decompiler.BaseDecompiler;
+import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
+import org.jetbrains.java.decompiler.main.extern.IResultSaver;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 
 /**
@@ -19,6 +32,39 @@ import java.util.jar.Manifest;
  * Only Hytale's own packages are decompiled. Third-party dependencies
  * (fastutil, Netty, Gson, Guava, etc.) are excluded to avoid OOM errors
  * on massive generated classes and to keep the index focused.
+ *
+ * Vineflower is driven through its embedding API: classes are read straight
+ * from the input JAR through a {@link FilteredJarSource} and every decompiled
+ * compilation unit is handed back as an in-memory {@link SourceUnit}. Writing
+ * the units to a directory is an optional side output.
+ *
+ * Pending classes are decompiled in batches of {@link #BATCH_SIZE} class groups,
+ * each in its own Vineflower context with the rest of the JAR as a lazy library.
+ * Vineflower only releases a context's output once every class in it is done,
+ * so batching is what lets consumers (see {@link ClassIndexer.Pipeline}) start
+ * parsing while later batches are still decompiling.
+ *
+ * Each class file is inflated from the JAR once: bytes read to compute cache
+ * keys and cost estimates are kept for the pending groups and handed to
+ * Vineflower from memory until their batch is done.
+ *
+ * Pending groups are scheduled longest first by their {@link DecompileCost}
+ * estimate, both across batches and within each batch's context, so giant
+ * classes start while every thread is busy instead of running alone at the
+ * end. Measured times are kept as {@link #costSamples()} for recalibration.
+ *
+ * Vineflower runs one thread per processor, but a {@link ConcurrencyController}
+ * caps how many classes are decompiled at once, lowering the cap when the heap
+ * stays full after garbage collection and raising it again as it drains.
+ *
+ * When constructed with a cache directory, sources of class groups whose bytes
+ * are unchanged since a previous run are restored from a {@link DecompileCache}
+ * and only the changed groups go through Vineflower.
+ *
+ * Each top-level class gets a wall-clock budget (see {@link BudgetLogger}). A class
+ * that exceeds it is cancelled, replaced by a signature-only {@link BytecodeStubs}
+ * stub and added to the {@link DecompileQuarantine}, so later runs stub it
+ * straight away instead of spending the budget again.
  */
 public class Decompiler {
 
@@ -27,105 +73,476 @@ public class Decompiler {
         "com/hypixel/hytale/"
     );
 
+    // Vineflower options (also part of the cache key — changing them invalidates the cache):
+    //   decompile-generics=1 (-dgs) : decompile generic signatures
+    //   ascii-strings=1      (-asc) : escape non-ASCII characters in string literals
+    //   remove-synthetic=1   (-rsy) : remove synthetic methods/fields
+    //   indent-string        (-ind) : use spaces for indentation
+    //   log-level=warn       (-log) : reduce noise, only show warnings and errors
+    private static final Map<String, Object> VINEFLOWER_OPTIONS = new TreeMap<>(Map.of(
+        IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1",
+        IFernflowerPreferences.ASCII_STRING_CHARACTERS, "1",
+        IFernflowerPreferences.REMOVE_SYNTHETIC, "1",
+        IFernflowerPreferences.INDENT_STRING, "    ",
+        IFernflowerPreferences.LOG_LEVEL, "warn"
+    ));
+
+    /** Class groups (top-level classes with their inner classes) per Vineflower context. */
+    static final int BATCH_SIZE = 256;
+
+    private static final String BUDGET_STUB_REASON = "decompilation exceeded the per-class time budget";
+    private static final String SURFACE_STUB_REASON = "outside the API surface, not decompiled in surface-only mode";
+
+    /** A decompiled compilation unit: path relative to the source root, and its source text. */
+    public record SourceUnit(String path, String content) {}
+
+    private final String fingerprint;
+    private final DecompileCache cache;
+    private final long classBudgetMillis;
+    private final DecompileQuarantine quarantine;
+    private final List<DecompileCost.Sample> costSamples = Collections.synchronizedList(new ArrayList<>());
+
+    /** Create a decompiler without a persistent cache or time budget. */
+    public Decompiler() {
+        this(null);
+    }
+
+    /**
+     * @param cacheDir  Directory for the per-class-group source cache, or null to disable caching
+     */
+    public Decompiler(Path cacheDir) {
+        this(cacheDir, 0, new DecompileQuarantine());
+    }
+
+    /**
+     * @param cacheDir           Directory for the per-class-group source cache, or null to disable caching
+     * @param classBudgetMillis  Decompile time allowed per top-level class, or 0 for no limit
+     * @param quarantine         Classes to stub without decompiling; classes that exceed the budget are added
+     */
+    public Decompiler(Path cacheDir, long classBudgetMillis, DecompileQuarantine quarantine) {
+        this.fingerprint = optionsFingerprint();
+        this.cache = cacheDir != null ? new DecompileCache(cacheDir, fingerprint) : null;
+        this.classBudgetMillis = classBudgetMillis;
+        this.quarantine = quarantine;
+    }
+
     /**
      * Decompile a JAR file to a target directory.
      * Only classes under the included package prefixes are decompiled.
      *
      * @param jarPath       Path to the JAR file to decompile
      * @param outputDir     Directory to write decompiled .java files
-     * @throws IOException  if the output directory cannot be created or the JAR cannot be filtered
+     * @throws IOException  if the output directory cannot be created or the JAR cannot be read
      */
     public void decompile(Path jarPath, Path outputDir) throws IOException {
-        Files.createDirectories(outputDir);
+        decompile(jarPath, outputDir, unit -> {});
+    }
 
-        // Create a filtered JAR with only Hytale's own classes
-        Path filteredJar = Files.createTempFile("hytale-filtered-", ".jar");
-        try {
-            long originalCount = filterJar(jarPath, filteredJar);
-            System.out.println("Input JAR: " + jarPath);
-            System.out.println("Filtered to " + originalCount + " entries (packages: " +
-                String.join(", ", INCLUDE_PREFIXES) + ")");
-            System.out.println("Output:    " + outputDir);
-
-            // Vineflower CLI arguments:
-            //   -dgs=1  : decompile generic signatures
-            //   -asc=1  : allow synthetic class access (for inner classes)
-            //   -rsy=1  : remove synthetic methods/fields
-            //   -ind=    : use spaces for indentation
-            //   -log=WARN : reduce noise, only show warnings and errors
-            //   -thr=N  : use available processors for parallel decompilation
-            String threads = String.valueOf(Runtime.getRuntime().availableProcessors());
-
-            String[] args = {
-                "-dgs=1",
-                "-asc=1",
-                "-rsy=1",
-                "-ind=    ",
-                "-log=WARN",
-                "-thr=" + threads,
-                filteredJar.toString(),
-                outputDir.toString()
+    /**
+     * Decompile a JAR file, handing each compilation unit to {@code sink}.
+     * Only classes under the included package prefixes are decompiled.
+     *
+     * @param jarPath       Path to the JAR file to decompile
+     * @param outputDir     Directory to also write decompiled .java files to, or null for none
+     * @param sink          Receives every compilation unit, restored from cache or freshly decompiled
+     * @throws IOException  if the output directory cannot be created or the JAR cannot be read
+     */
+    public void decompile(Path jarPath, Path outputDir, Consumer<SourceUnit> sink) throws IOException {
+        decompile(jarPath, null, outputDir, sink);
+    }
+
+    /**
+     * Decompile a subset of a JAR's class groups, handing each compilation unit to {@code sink}.
+     * Classes outside the subset remain visible to Vineflower as context.
+     *
+     * @param jarPath       Path to the JAR file to decompile
+     * @param onlyGroups    Top-level class groups to decompile (internal names, see {@link #groupOf}),
+     *                      or null for every class under the included package prefixes
+     * @param outputDir     Directory to also write decompiled .java files to, or null for none
+     * @param sink          Receives every compilation unit, restored from cache or freshly decompiled
+     * @throws IOException  if the output directory cannot be created or the JAR cannot be read
+     */
+    public void decompile(Path jarPath, Set<String> onlyGroups, Path outputDir,
+                          Consumer<SourceUnit> sink) throws IOException {
+        Consumer<SourceUnit> out = sink;
+        if (outputDir != null) {
+            Files.createDirectories(outputDir);
+            out = sink.andThen(unit -> writeSource(outputDir, unit));
+        }
+
+        System.out.println("Input JAR: " + jarPath);
+        System.out.println("Output:    " + (outputDir != null ? outputDir : "(in memory only)"));
+
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            // Stub quarantined class groups and restore unchanged ones from the cache;
+            // remember the keys of the rest
+            Map<String, List<JarEntry>> groups = groupClasses(jf);
+            if (onlyGroups != null) {
+                groups.keySet().retainAll(onlyGroups);
+            }
+            List<String> pending = new ArrayList<>();
+            Map<String, String> pendingKeys = new HashMap<>();
+            Map<String, byte[]> pendingBytes = new ConcurrentHashMap<>();
+            Map<String, DecompileCost.Estimate> estimates = new HashMap<>();
+            int stubbed = 0;
+            boolean needKeys = cache != null || quarantine.size() > 0;
+            for (Map.Entry<String, List<JarEntry>> group : groups.entrySet()) {
+                SortedMap<String, byte[]> contents = readGroup(jf, group.getValue(), Map.of());
+                if (needKeys) {
+                    String key = DecompileCache.key(fingerprint, contents);
+                    if (quarantine.contains(group.getKey(), key)) {
+                        out.accept(new SourceUnit(group.getKey() + ".java", BytecodeStubs.generate(contents, BUDGET_STUB_REASON)));
+                        stubbed++;
+                        continue;
+                    }
+                    if (cache != null) {
+                        String cached = cache.load(key);
+                        if (cached != null) {
+                            out.accept(new SourceUnit(group.getKey() + ".java", cached));
+                            continue;
+                        }
+                        pendingKeys.put(group.getKey(), key);
+                    }
+                }
+                pendingBytes.putAll(contents);
+                estimates.put(group.getKey(), DecompileCost.estimate(contents.values()));
+                pending.add(group.getKey());
+            }
+            // Longest first (ties by name, for a stable batch split)
+            pending.sort(Comparator.comparingLong((String g) -> estimates.get(g).cost()).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+            if (cache != null) {
+                System.out.println("Decompile cache: " + cache.hits() + " hits, "
+                    + cache.misses() + " misses");
+            }
+            if (stubbed > 0) {
+                System.out.println("Quarantine: " + stubbed + " class groups stubbed from bytecode without decompiling");
+            }
+
+            System.out.println("Decompiling " + pending.size() + " of " + groups.size()
+                + " class groups (packages: " + String.join(", ", INCLUDE_PREFIXES) + ")");
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // thread-count (-thr) : one Vineflower thread per available processor; how many
+            // of them decompile at once follows heap pressure (see ConcurrencyController)
+            int threadCount = Runtime.getRuntime().availableProcessors();
+            Map<String, Object> options = new TreeMap<>(VINEFLOWER_OPTIONS);
+            options.put(IFernflowerPreferences.THREADS, String.valueOf(threadCount));
+            ConcurrencyController concurrency = new ConcurrencyController(
+                threadCount, ConcurrencyController.DEFAULT_TARGET, System.out);
+
+            // Freshly decompiled units go to the sink and populate the cache; units of
+            // classes cancelled for exceeding the budget are replaced after their batch
+            BudgetLogger logger = new BudgetLogger(System.out, classBudgetMillis, concurrency);
+            Consumer<SourceUnit> emit = out;
+            AtomicInteger decompiled = new AtomicInteger(0);
+            Consumer<SourceUnit> decompiledSink = unit -> {
+                if (logger.overruns().containsKey(groupOfSource(unit.path()))) {
+                    return;
+                }
+                emit.accept(unit);
+                decompiled.incrementAndGet();
+                String key = pendingKeys.get(groupOfSource(unit.path()));
+                if (key != null) {
+                    try {
+                        cache.store(key, unit.content());
+                    } catch (IOException e) {
+                        System.err.println("WARN: Failed to cache " + unit.path() + ": " + e.getMessage());
+                    }
+                }
             };
 
-            System.out.println("Starting Vineflower with " + threads + " threads...");
+            int batchCount = (pending.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+            System.out.println("Starting Vineflower with " + threadCount + " threads (heap target "
+                + Math.round(ConcurrencyController.DEFAULT_TARGET * 100) + "%), "
+                + batchCount + " batches of up to " + BATCH_SIZE + " class groups"
+                + (classBudgetMillis > 0 ? ", " + classBudgetMillis / 1000 + " s per class..." : "..."));
             long start = System.currentTimeMillis();
 
+            // Within a context, classes are listed (and so dispatched to threads) by group cost
+            Comparator<String> mostExpensiveFirst = Comparator
+                .comparingLong((String name) -> estimates.get(groupOf(name)).cost()).reversed()
+                .thenComparing(Comparator.naturalOrder());
+
             try {
-                ConsoleDecompiler.main(args);
-            } catch (Exception e) {
-                throw new RuntimeException("Vineflower decompilation failed: " + e.getMessage(), e);
+                for (int b = 0; b < batchCount; b++) {
+                    Set<String> batch = new HashSet<>(
+                        pending.subList(b * BATCH_SIZE, Math.min(pending.size(), (b + 1) * BATCH_SIZE)));
+                    long batchStart = System.currentTimeMillis();
+
+                    BaseDecompiler vineflower = new BaseDecompiler(NO_OP_SAVER, options, logger);
+                    vineflower.addSource(new FilteredJarSource(jf,
+                        name -> shouldInclude(name) && batch.contains(groupOf(name)), false, decompiledSink,
+                        pendingBytes::get, mostExpensiveFirst));
+                    // Every other class stays visible as a lazy library (context only, not decompiled)
+                    // so Vineflower resolves supertypes and inner classes exactly as in a full run
+                    vineflower.addLibrary(new FilteredJarSource(jf,
+                        name -> shouldInclude(name) && !batch.contains(groupOf(name)), true, null,
+                        pendingBytes::get, null));
+
+                    try {
+                        vineflower.decompileContext();
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Vineflower decompilation failed: " + e.getMessage(), e);
+                    }
+
+                    // Classes that ran over the budget: stub from bytecode and quarantine.
+                    // The others report their measured time against the estimate
+                    for (String group : batch) {
+                        Long overrun = logger.overruns().get(group);
+                        Long elapsed = logger.timings().get(group);
+                        if (overrun == null && elapsed != null) {
+                            costSamples.add(new DecompileCost.Sample(group, estimates.get(group), elapsed));
+                        }
+                        if (overrun != null) {
+                            SortedMap<String, byte[]> contents = readGroup(jf, groups.get(group), pendingBytes);
+                            quarantine.add(group, DecompileCache.key(fingerprint, contents), overrun);
+                            out.accept(new SourceUnit(group + ".java", BytecodeStubs.generate(contents, BUDGET_STUB_REASON)));
+                        }
+                    }
+                    // Later batches see this batch's classes as library context only; let them
+                    // inflate on demand rather than pinning every class for the whole run
+                    for (String group : batch) {
+                        for (JarEntry entry : groups.get(group)) {
+                            pendingBytes.remove(entry.getName());
+                        }
+                    }
+
+                    // Every worker is idle now; drop permits whose end hook was skipped
+                    concurrency.releaseAll();
+
+                    System.out.printf("  Batch %d/%d: %d class groups in %.1f seconds%n",
+                        b + 1, batchCount, batch.size(), (System.currentTimeMillis() - batchStart) / 1000.0);
+                }
+            } finally {
+                concurrency.close();
             }
 
             long elapsed = System.currentTimeMillis() - start;
-            System.out.printf("Decompilation completed in %.1f seconds%n", elapsed / 1000.0);
-        } finally {
-            Files.deleteIfExists(filteredJar);
+            System.out.printf("Decompilation completed in %.1f seconds (%d compilation units)%n",
+                elapsed / 1000.0, decompiled.get());
+            if (!logger.overruns().isEmpty()) {
+                System.out.println("Quarantined " + logger.overruns().size()
+                    + " class groups that exceeded the time budget (replaced by bytecode stubs)");
+            }
         }
     }
 
     /**
-     * Create a filtered copy of the JAR containing only entries that match
-     * the included package prefixes.
+     * Source of one class group without running Vineflower: its bytecode stub if the
+     * group is quarantined, or its cached source. Prints nothing.
      *
-     * @return the number of entries written to the filtered JAR
-     */
-    private long filterJar(Path sourceJar, Path targetJar) throws IOException {
-        long count = 0;
-
-        try (JarFile jf = new JarFile(sourceJar.toFile());
-             OutputStream os = Files.newOutputStream(targetJar);
-             JarOutputStream jos = new JarOutputStream(os, new Manifest())) {
-
-            var entries = jf.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String name = entry.getName();
-
-                // Include META-INF (manifest, etc.) and matching packages
-                if (shouldInclude(name)) {
-                    jos.putNextEntry(new JarEntry(name));
-                    if (!entry.isDirectory()) {
-                        try (InputStream is = jf.getInputStream(entry)) {
-                            is.transferTo(jos);
-                        }
-                    }
-                    jos.closeEntry();
-                    count++;
+     * @param jf       Open JAR holding the group (owned by the caller)
+     * @param group    Top-level class group (internal name, see {@link #groupOf})
+     * @param entries  The group's class entries, as listed by {@link #groupClasses}
+     * @return the unit, or null if the group has to be decompiled
+     */
+    SourceUnit restoreGroup(JarFile jf, String group, List<JarEntry> entries) throws IOException {
+        if (cache == null && quarantine.size() == 0) {
+            return null;
+        }
+        SortedMap<String, byte[]> contents = readGroup(jf, entries, Map.of());
+        String key = DecompileCache.key(fingerprint, contents);
+        if (quarantine.contains(group, key)) {
+            return new SourceUnit(group + ".java", BytecodeStubs.generate(contents, BUDGET_STUB_REASON));
+        }
+        String cached = cache != null ? cache.load(key) : null;
+        return cached != null ? new SourceUnit(group + ".java", cached) : null;
+    }
+
+    /**
+     * Decompile one class group of an already open JAR, for on-demand use: no
+     * progress output, no batching and no heap-driven concurrency control, with
+     * every other group of {@code groups} visible to Vineflower as context. The
+     * result is cached; a group over the time budget is quarantined and stubbed.
+     * Callers check {@link #restoreGroup} first.
+     *
+     * @param jf      Open JAR (owned by the caller)
+     * @param groups  The JAR's class groups, as listed by {@link #groupClasses}
+     * @param group   Top-level class group to decompile
+     * @return the decompiled unit, or its bytecode stub if it exceeded the budget
+     * @throws IOException  if the JAR cannot be read or Vineflower produced no source
+     */
+    SourceUnit decompileGroup(JarFile jf, Map<String, List<JarEntry>> groups, String group) throws IOException {
+        SortedMap<String, byte[]> contents = readGroup(jf, groups.get(group), Map.of());
+        String key = DecompileCache.key(fingerprint, contents);
+
+        Map<String, Object> options = new TreeMap<>(VINEFLOWER_OPTIONS);
+        options.put(IFernflowerPreferences.THREADS, String.valueOf(Runtime.getRuntime().availableProcessors()));
+        // Vineflower only logs warnings (see VINEFLOWER_OPTIONS); keep them off stdout
+        BudgetLogger logger = new BudgetLogger(System.err, classBudgetMillis, null);
+        List<SourceUnit> units = new ArrayList<>(1);
+        BaseDecompiler vineflower = new BaseDecompiler(NO_OP_SAVER, options, logger);
+        vineflower.addSource(new FilteredJarSource(jf,
+            name -> shouldInclude(name) && group.equals(groupOf(name)), false, units::add, contents::get, null));
+        vineflower.addLibrary(new FilteredJarSource(jf,
+            name -> shouldInclude(name) && !group.equals(groupOf(name)), true, null, null, null));
+        try {
+            vineflower.decompileContext();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (Exception e) {
+            throw new RuntimeException("Vineflower decompilation failed: " + e.getMessage(), e);
+        }
+
+        Long overrun = logger.overruns().get(group);
+        if (overrun != null) {
+            quarantine.add(group, key, overrun);
+            return new SourceUnit(group + ".java", BytecodeStubs.generate(contents, BUDGET_STUB_REASON));
+        }
+        if (units.isEmpty()) {
+            throw new IOException("Vineflower produced no source for " + group.replace('/', '.'));
+        }
+        SourceUnit unit = units.get(0);
+        if (cache != null) {
+            try {
+                cache.store(key, unit.content());
+            } catch (IOException e) {
+                System.err.println("WARN: Failed to cache " + unit.path() + ": " + e.getMessage());
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * Estimated against measured decompile time of every class group Vineflower
+     * completed so far, for {@link DecompileCost#writeLog}.
+     */
+    public List<DecompileCost.Sample> costSamples() {
+        synchronized (costSamples) {
+            return new ArrayList<>(costSamples);
+        }
+    }
+
+    /**
+     * Emit signature-only {@link BytecodeStubs} stubs for class groups without decompiling
+     * them, so they are still indexed from their bytecode signatures.
+     *
+     * @param jarPath       Path to the JAR file
+     * @param groups        Top-level class groups to stub (internal names, see {@link #groupOf})
+     * @param outputDir     Directory to also write the stubs to, or null for none
+     * @param sink          Receives every stub
+     * @throws IOException  if the output directory cannot be created or the JAR cannot be read
+     */
+    public void stub(Path jarPath, Set<String> groups, Path outputDir, Consumer<SourceUnit> sink) throws IOException {
+        Map<String, String> reasons = new TreeMap<>();
+        for (String group : groups) {
+            reasons.put(group, SURFACE_STUB_REASON);
+        }
+        stub(jarPath, reasons, outputDir, sink);
+    }
+
+    /**
+     * Emit {@link BytecodeStubs} stubs for class groups, each stating its own reason
+     * for not being decompiled.
+     *
+     * @param reasons  Top-level class group (internal name) -> why it was not decompiled
+     */
+    void stub(Path jarPath, Map<String, String> reasons, Path outputDir, Consumer<SourceUnit> sink) throws IOException {
+        Consumer<SourceUnit> out = sink;
+        if (outputDir != null) {
+            Files.createDirectories(outputDir);
+            out = sink.andThen(unit -> writeSource(outputDir, unit));
+        }
+        long start = System.currentTimeMillis();
+        int stubbed = 0;
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            for (Map.Entry<String, List<JarEntry>> group : groupClasses(jf).entrySet()) {
+                String reason = reasons.get(group.getKey());
+                if (reason != null) {
+                    SortedMap<String, byte[]> contents = readGroup(jf, group.getValue(), Map.of());
+                    out.accept(new SourceUnit(group.getKey() + ".java", BytecodeStubs.generate(contents, reason)));
+                    stubbed++;
                 }
             }
         }
+        System.out.printf("Stubbed %d class groups from bytecode in %.1f seconds%n",
+            stubbed, (System.currentTimeMillis() - start) / 1000.0);
+    }
 
-        return count;
+    /**
+     * Group the included class entries by top-level class. The key is the internal
+     * name of the top-level class (e.g. "com/hypixel/hytale/Foo" for Foo$Bar.class).
+     */
+    static Map<String, List<JarEntry>> groupClasses(JarFile jf) {
+        Map<String, List<JarEntry>> groups = new TreeMap<>();
+        var entries = jf.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (shouldInclude(name)) {
+                groups.computeIfAbsent(groupOf(name), k -> new ArrayList<>()).add(entry);
+            }
+        }
+        return groups;
     }
 
-    private boolean shouldInclude(String entryName) {
-        // Skip manifest — JarOutputStream already writes one
-        if (entryName.equals("META-INF/MANIFEST.MF")) {
-            return false;
+    /**
+     * Read a class group's bytes, taking entries from {@code preloaded} where present.
+     */
+    static SortedMap<String, byte[]> readGroup(JarFile jf, List<JarEntry> entries,
+                                               Map<String, byte[]> preloaded) throws IOException {
+        SortedMap<String, byte[]> contents = new TreeMap<>();
+        for (JarEntry entry : entries) {
+            byte[] bytes = preloaded.get(entry.getName());
+            if (bytes == null) {
+                try (InputStream is = jf.getInputStream(entry)) {
+                    bytes = is.readAllBytes();
+                }
+            }
+            contents.put(entry.getName(), bytes);
         }
-        // Include other META-INF entries (services, licenses, etc.)
-        if (entryName.startsWith("META-INF/")) {
-            return true;
+        return contents;
+    }
+
+    private static void writeSource(Path outputDir, SourceUnit unit) {
+        try {
+            Path target = outputDir.resolve(unit.path());
+            Files.createDirectories(target.getParent());
+            Files.writeString(target, unit.content());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Map a class file entry to its top-level class: "a/b/Outer$Inner$1.class" -> "a/b/Outer".
+     */
+    static String groupOf(String classEntryName) {
+        String name = classEntryName.substring(0, classEntryName.length() - ".class".length());
+        int slash = name.lastIndexOf('/');
+        int dollar = name.indexOf('$', slash + 1);
+        return dollar > slash + 1 ? name.substring(0, dollar) : name;
+    }
+
+    /**
+     * Map a decompiled source path to its class group: "a/b/Outer.java" -> "a/b/Outer".
+     */
+    private static String groupOfSource(String sourcePath) {
+        return sourcePath.endsWith(".java")
+            ? sourcePath.substring(0, sourcePath.length() - ".java".length())
+            : sourcePath;
+    }
+
+    /**
+     * Fingerprint of everything besides the class bytes that affects decompiled output.
+     */
+    private static String optionsFingerprint() {
+        String version = BaseDecompiler.class.getPackage().getImplementationVersion();
+        StringBuilder sb = new StringBuilder("vineflower=").append(version != null ? version : "unknown");
+        for (Map.Entry<String, Object> option : VINEFLOWER_OPTIONS.entrySet()) {
+            sb.append(';').append(option.getKey()).append('=').append(option.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static boolean shouldInclude(String entryName) {
+        if (!entryName.endsWith(".class")) {
+            return false;
         }
         // Include entries matching our target packages
         for (String prefix : INCLUDE_PREFIXES) {
@@ -135,4 +552,42 @@ public class Decompiler {
         }
         return false;
     }
+
+    /**
+     * Output goes through {@link FilteredJarSource}'s sink, so Vineflower's own
+     * saver is never asked to write anything.
+     */
+    private static final IResultSaver NO_OP_SAVER = new IResultSaver() {
+        @Override
+        public void saveFolder(String path) {
+        }
+
+        @Override
+        public void copyFile(String source, String path, String entryName) {
+        }
+
+        @Override
+        public void saveClassFile(String path, String qualifiedName, String entryName, String content, int[] mapping) {
+        }
+
+        @Override
+        public void createArchive(String path, String archiveName, Manifest manifest) {
+        }
+
+        @Override
+        public void saveDirEntry(String path, String archiveName, String entryName) {
+        }
+
+        @Override
+        public void copyEntry(String source, String path, String archiveName, String entry) {
+        }
+
+        @Override
+        public void saveClassEntry(String path, String archiveName, String qualifiedName, String entryName, String content) {
+        }
+
+        @Override
+        public void closeArchive(String path, String archiveName) {
+        }
+    };
 }
@@ -0,0 +1,141 @@
+package com.hytale.indexer;
+
+import org.jetbrains.java.decompiler.main.extern.IContextSource;
+import org.jetbrains.java.decompiler.main.extern.IResultSaver;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Vineflower context source that reads class files straight out of an open JAR,
+ * exposing only the entries accepted by a filter.
+ *
+ * This replaces the temp filtered JAR: nothing is copied, and instead of letting
+ * Vineflower write .java files, each decompiled compilation unit is handed to a
+ * callback as an in-memory {@link Decompiler.SourceUnit}.
+ *
+ * A lazy source lists no entries up front; Vineflower asks for classes by name
+ * when it needs them for type context. That is how library (context-only)
+ * classes are supplied.
+ *
+ * Listed classes can be put in a given order; Vineflower hands them to its
+ * worker threads in listing order, which is how expensive classes are started first.
+ *
+ * Class bytes the caller has already inflated (e.g. to compute cache keys) can
+ * be supplied through {@code preloaded}, so those entries are served from memory
+ * instead of being inflated from the JAR a second time.
+ */
+class FilteredJarSource implements IContextSource {
+
+    private final JarFile jar;
+    private final Predicate<String> filter;
+    private final boolean lazy;
+    private final Consumer<Decompiler.SourceUnit> sink;
+    private final Function<String, byte[]> preloaded;
+    private final Comparator<String> order;
+
+    /**
+     * @param jar     Open JAR to read from (owned by the caller)
+     * @param filter  Accepts JAR entry names ("com/foo/Bar.class") visible through this source
+     * @param lazy    Resolve classes on demand instead of listing them (library use)
+     * @param sink    Receives decompiled units, or null for a context-only source
+     * @param preloaded  Already-read bytes by entry name (null when not preloaded), or null for none
+     * @param order   Order of listed entry names, or null for JAR order
+     */
+    FilteredJarSource(JarFile jar, Predicate<String> filter, boolean lazy,
+                      Consumer<Decompiler.SourceUnit> sink, Function<String, byte[]> preloaded,
+                      Comparator<String> order) {
+        this.jar = jar;
+        this.filter = filter;
+        this.lazy = lazy;
+        this.sink = sink;
+        this.preloaded = preloaded;
+        this.order = order;
+    }
+
+    @Override
+    public String getName() {
+        return "filtered view of " + jar.getName();
+    }
+
+    @Override
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    @Override
+    public Entries getEntries() {
+        if (lazy) {
+            return Entries.EMPTY;
+        }
+        List<String> names = new ArrayList<>();
+        var entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (!entry.isDirectory() && name.endsWith(CLASS_SUFFIX) && filter.test(name)) {
+                names.add(name);
+            }
+        }
+        if (order != null) {
+            names.sort(order);
+        }
+        List<Entry> classes = new ArrayList<>();
+        for (String name : names) {
+            classes.add(Entry.parse(name.substring(0, name.length() - CLASS_SUFFIX.length())));
+        }
+        return new Entries(classes, List.of(), List.of());
+    }
+
+    @Override
+    public InputStream getInputStream(String resource) throws IOException {
+        if (!filter.test(resource)) {
+            return null;
+        }
+        byte[] bytes = preloaded != null ? preloaded.apply(resource) : null;
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        JarEntry entry = jar.getJarEntry(resource);
+        return entry != null ? jar.getInputStream(entry) : null;
+    }
+
+    @Override
+    public IOutputSink createOutputSink(IResultSaver saver) {
+        return new IOutputSink() {
+            @Override
+            public void begin() {
+            }
+
+            @Override
+            public void acceptClass(String qualifiedName, String fileName, String content, int[] mapping) {
+                if (sink == null || content == null) {
+                    return;
+                }
+                String path = fileName != null ? fileName : qualifiedName + ".java";
+                sink.accept(new Decompiler.SourceUnit(path, content));
+            }
+
+            @Override
+            public void acceptDirectory(String directory) {
+            }
+
+            @Override
+            public void acceptOther(String path) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,415 @@
+package com.hytale.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Content hashes of a JAR: the whole file, every entry, every package, and a
+ * Merkle root over the packages.
+ *
+ * {@link #scan} reads the JAR once, front to back, through memory-mapped
+ * chunks. Each chunk feeds the whole-file SHA-256 and, for the entries whose data
+ * lies in it, the per-entry SHA-256. Entry positions come from the ZIP central
+ * directory, and the JAR is never held on the heap.
+ *
+ * That read is not shared with the rest of Phase 1: the call graph, component
+ * access and string constant indexes (each only when the JAR hash changed), the
+ * decompiler and the type-reference pass of the class indexer each open the JAR
+ * again and inflate its class entries themselves. A run over a changed JAR
+ * therefore inflates every class about six times, one over an unchanged JAR
+ * about three; --surface-only adds two more.
+ *
+ * Entry hashes cover the name, CRC-32, uncompressed size and the uncompressed
+ * bytes (deflated entries are inflated as their data streams past), so an
+ * identical JAR recompressed with other settings hashes the same. A package hash
+ * covers its entries' names and hashes in order, and the root covers the package
+ * names and hashes. Comparing two manifests ({@link #changedPackages}) tells
+ * which packages changed between JARs; Phase 1 only reports them, since the
+ * decompile and parse caches already skip unchanged classes by content.
+ *
+ * Stored as artifacts/jar-manifest.json.
+ */
+public class JarManifest {
+
+    /** Mapping window; the JAR is mapped and hashed one chunk at a time. */
+    private static final long CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIR_SIG = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    final ManifestFile data;
+
+    private JarManifest(ManifestFile data) {
+        this.data = data;
+    }
+
+    /** "sha256:<hex>" of the whole JAR file. */
+    public String jarHash() {
+        return data.jar_hash;
+    }
+
+    public String merkleRoot() {
+        return data.merkle_root;
+    }
+
+    /** Package (internal form, "" for the root) -> package hash. */
+    public Map<String, String> packageHashes() {
+        Map<String, String> hashes = new TreeMap<>();
+        for (Map.Entry<String, PackageNode> e : data.packages.entrySet()) {
+            hashes.put(e.getKey(), e.getValue().hash);
+        }
+        return hashes;
+    }
+
+    /**
+     * Packages that were added, removed or whose contents differ from {@code previous}.
+     */
+    public Set<String> changedPackages(JarManifest previous) {
+        Set<String> changed = new TreeSet<>();
+        Map<String, String> mine = packageHashes();
+        Map<String, String> theirs = previous.packageHashes();
+        for (Map.Entry<String, String> e : mine.entrySet()) {
+            if (!e.getValue().equals(theirs.get(e.getKey()))) {
+                changed.add(e.getKey());
+            }
+        }
+        for (String pkg : theirs.keySet()) {
+            if (!mine.containsKey(pkg)) {
+                changed.add(pkg);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Load a manifest written by {@link #write}, or null if the file does not exist.
+     */
+    public static JarManifest load(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ManifestFile data = new Gson().fromJson(Files.readString(path), ManifestFile.class);
+        return data != null && data.packages != null ? new JarManifest(data) : null;
+    }
+
+    public void write(Path path) throws IOException {
+        Gson gson = new GsonBuilder()
+            .setPrettyPrinting()
+            .disableHtmlEscaping()
+            .create();
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, gson.toJson(data));
+    }
+
+    /**
+     * Hash a JAR, reading it front to back once.
+     */
+    public static JarManifest scan(Path jarPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(jarPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<ZipEntryData> entries = readCentralDirectory(channel, size);
+            entries.sort(Comparator.comparingLong(e -> e.localHeaderOffset));
+            for (ZipEntryData entry : entries) {
+                entry.dataStart = dataStart(channel, entry);
+            }
+
+            MessageDigest fileDigest = sha256();
+            byte[] buf = new byte[64 * 1024];
+            int next = 0;
+            for (long chunkStart = 0; chunkStart < size; chunkStart += CHUNK_SIZE) {
+                long chunkEnd = Math.min(size, chunkStart + CHUNK_SIZE);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+
+                // Whole-file digest
+                ByteBuffer whole = chunk.duplicate();
+                while (whole.hasRemaining()) {
+                    int n = Math.min(buf.length, whole.remaining());
+                    whole.get(buf, 0, n);
+                    fileDigest.update(buf, 0, n);
+                }
+
+                // Entry digests for the entry data overlapping this chunk
+                while (next < entries.size() && entries.get(next).dataStart < chunkEnd) {
+                    ZipEntryData entry = entries.get(next);
+                    long from = Math.max(entry.dataStart, chunkStart);
+                    long to = Math.min(entry.dataStart + entry.compressedSize, chunkEnd);
+                    if (to > from) {
+                        ByteBuffer slice = chunk.duplicate();
+                        slice.position((int) (from - chunkStart)).limit((int) (to - chunkStart));
+                        entry.update(slice, buf);
+                    }
+                    if (entry.dataStart + entry.compressedSize > chunkEnd) {
+                        break; // continues in the next chunk
+                    }
+                    entry.finish();
+                    next++;
+                }
+            }
+
+            return build("sha256:" + HexFormat.of().formatHex(fileDigest.digest()), entries);
+        }
+    }
+
+    private static JarManifest build(String jarHash, List<ZipEntryData> entries) {
+        HexFormat hex = HexFormat.of();
+        Map<String, TreeMap<String, String>> byPackage = new TreeMap<>();
+        for (ZipEntryData entry : entries) {
+            if (entry.name.endsWith("/")) {
+                continue; // directory entries carry no content
+            }
+            int slash = entry.name.lastIndexOf('/');
+            String pkg = slash < 0 ? "" : entry.name.substring(0, slash);
+            byPackage.computeIfAbsent(pkg, k -> new TreeMap<>())
+                .put(entry.name, hex.formatHex(entry.digest().digest()));
+        }
+
+        ManifestFile data = new ManifestFile();
+        data.jar_hash = jarHash;
+        data.packages = new TreeMap<>();
+        MessageDigest root = sha256();
+        for (Map.Entry<String, TreeMap<String, String>> pkg : byPackage.entrySet()) {
+            MessageDigest digest = sha256();
+            for (Map.Entry<String, String> entry : pkg.getValue().entrySet()) {
+                update(digest, entry.getKey(), entry.getValue());
+            }
+            PackageNode node = new PackageNode();
+            node.hash = hex.formatHex(digest.digest());
+            node.entries = pkg.getValue();
+            data.packages.put(pkg.getKey(), node);
+            update(root, pkg.getKey(), node.hash);
+        }
+        data.merkle_root = hex.formatHex(root.digest());
+        return new JarManifest(data);
+    }
+
+    private static void update(MessageDigest digest, String name, String hash) {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) '\n');
+    }
+
+    // ---- ZIP structure ----
+
+    private static List<ZipEntryData> readCentralDirectory(FileChannel channel, long size) throws IOException {
+        // The end-of-central-directory record is in the last 22 + 65535 (max comment) bytes
+        int tailLength = (int) Math.min(size, 22 + 0xFFFF);
+        ByteBuffer tail = read(channel, size - tailLength, tailLength);
+        int eocd = -1;
+        for (int i = tailLength - 22; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIR_SIG) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new IOException("Not a ZIP file (no end of central directory record)");
+        }
+        long count = Short.toUnsignedLong(tail.getShort(eocd + 10));
+        long cdSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+        long cdOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+
+        // ZIP64: the real values live in the ZIP64 end record, found through its locator
+        if (eocd >= 20 && tail.getInt(eocd - 20) == ZIP64_LOCATOR_SIG) {
+            long zip64Offset = tail.getLong(eocd - 20 + 8);
+            ByteBuffer zip64 = read(channel, zip64Offset, 56);
+            if (zip64.getInt(0) == ZIP64_END_OF_CENTRAL_DIR_SIG) {
+                count = zip64.getLong(32);
+                cdSize = zip64.getLong(40);
+                cdOffset = zip64.getLong(48);
+            }
+        }
+
+        ByteBuffer cd = read(channel, cdOffset, Math.toIntExact(cdSize));
+        List<ZipEntryData> entries = new ArrayList<>((int) Math.min(count, 1 << 20));
+        int pos = 0;
+        while (pos + 46 <= cd.limit() && cd.getInt(pos) == CENTRAL_HEADER_SIG) {
+            ZipEntryData entry = new ZipEntryData();
+            entry.method = Short.toUnsignedInt(cd.getShort(pos + 10));
+            entry.crc = Integer.toUnsignedLong(cd.getInt(pos + 16));
+            entry.compressedSize = Integer.toUnsignedLong(cd.getInt(pos + 20));
+            entry.size = Integer.toUnsignedLong(cd.getInt(pos + 24));
+            int nameLength = Short.toUnsignedInt(cd.getShort(pos + 28));
+            int extraLength = Short.toUnsignedInt(cd.getShort(pos + 30));
+            int commentLength = Short.toUnsignedInt(cd.getShort(pos + 32));
+            entry.localHeaderOffset = Integer.toUnsignedLong(cd.getInt(pos + 42));
+
+            byte[] name = new byte[nameLength];
+            cd.get(pos + 46, name);
+            entry.name = new String(name, StandardCharsets.UTF_8);
+            readZip64Extra(cd, pos + 46 + nameLength, extraLength, entry);
+
+            entries.add(entry);
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /** Replace 0xFFFFFFFF placeholders with the values from the ZIP64 extended information field. */
+    private static void readZip64Extra(ByteBuffer cd, int start, int length, ZipEntryData entry) {
+        int pos = start;
+        while (pos + 4 <= start + length) {
+            int id = Short.toUnsignedInt(cd.getShort(pos));
+            int size = Short.toUnsignedInt(cd.getShort(pos + 2));
+            if (id == 0x0001) {
+                int field = pos + 4;
+                if (entry.size == 0xFFFFFFFFL) {
+                    entry.size = cd.getLong(field);
+                    field += 8;
+                }
+                if (entry.compressedSize == 0xFFFFFFFFL) {
+                    entry.compressedSize = cd.getLong(field);
+                    field += 8;
+                }
+                if (entry.localHeaderOffset == 0xFFFFFFFFL) {
+                    entry.localHeaderOffset = cd.getLong(field);
+                }
+                return;
+            }
+            pos += 4 + size;
+        }
+    }
+
+    private static long dataStart(FileChannel channel, ZipEntryData entry) throws IOException {
+        ByteBuffer header = read(channel, entry.localHeaderOffset, 30);
+        if (header.getInt(0) != LOCAL_HEADER_SIG) {
+            throw new IOException("Bad local header for " + entry.name);
+        }
+        int nameLength = Short.toUnsignedInt(header.getShort(26));
+        int extraLength = Short.toUnsignedInt(header.getShort(28));
+        return entry.localHeaderOffset + 30 + nameLength + extraLength;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of file at " + (position + buf.position()));
+            }
+        }
+        return buf.flip();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** One central directory record, plus the running digest of its uncompressed data. */
+    private static class ZipEntryData {
+        String name;
+        int method;
+        long crc;
+        long compressedSize;
+        long size;
+        long localHeaderOffset;
+        long dataStart;
+        private MessageDigest digest;
+        private Inflater inflater;
+
+        MessageDigest digest() {
+            if (digest == null) {
+                digest = sha256();
+                // Entries in a method we cannot inflate are hashed as stored, so the method is part of them
+                String header = method == STORED || method == DEFLATED
+                    ? name + '\0' + crc + '\0' + size + '\0'
+                    : name + '\0' + crc + '\0' + size + '\0' + compressedSize + '\0' + method + '\0';
+                digest.update(header.getBytes(StandardCharsets.UTF_8));
+            }
+            return digest;
+        }
+
+        /** Feed the next piece of the entry's stored data, inflating it through {@code buf} if deflated. */
+        void update(ByteBuffer data, byte[] buf) throws IOException {
+            if (method != DEFLATED) {
+                digest().update(data);
+                return;
+            }
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+            inflater.setInput(data);
+            try {
+                // A full buffer can leave output pending after the input is used up,
+                // so drain until the inflater stops producing, not until it needs input
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(buf);
+                    if (n == 0) {
+                        if (inflater.needsInput()) {
+                            break;
+                        }
+                        throw new IOException("Corrupt deflated data in " + name + ": preset dictionary required");
+                    }
+                    digest().update(buf, 0, n);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt deflated data in " + name + ": " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Release the inflater once the entry's data has been fed.
+         *
+         * @throws IOException if a deflated entry's data ended before its deflate stream did
+         */
+        void finish() throws IOException {
+            if (method != DEFLATED) {
+                return;
+            }
+            try {
+                if (inflater == null || !inflater.finished()) {
+                    throw new IOException("Truncated deflated data in " + name);
+                }
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                    inflater = null;
+                }
+            }
+        }
+    }
+
+    // ---- JSON model ----
+
+    static class ManifestFile {
+        String jar_hash;
+        String merkle_root;
+        Map<String, PackageNode> packages;
+    }
+
+    static class PackageNode {
+        String hash;
+        Map<String, String> entries;
+    }
+}
@@ -3,29 +3,151 @@ package com.hytale.indexer;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
 
 /**
  * CLI entry point for the Hytale JAR indexer.
  *
- * Usage: java -jar hytale-indexer.jar <path-to-jar>
+ * Usage: java -jar hytale-indexer.jar [options] <path-to-jar>
  *
- * Performs two steps:
- * 1. Decompiles the JAR using Vineflower to artifacts/decompiled/
- * 2. Parses the decompiled source with JavaParser to produce artifacts/class-index.json
+ * Performs two steps, pipelined so parsing overlaps with decompilation:
+ * 1. Decompiles the JAR in memory using Vineflower, optionally also writing
+ *    artifacts/decompiled/ (unchanged classes are restored from artifacts/decompile-cache/;
+ *    classes over the time budget are stubbed and listed in artifacts/decompile-quarantine.json;
+ *    estimated against measured decompile times go to artifacts/decompile-costs.tsv).
+ *    With --surface-only, only classes reachable from the API surface seeds are
+ *    decompiled; the rest are stubbed from their bytecode signatures
+ * 2. Parses each decompiled unit with JavaParser as soon as it is produced
+ *    (units unchanged since an earlier run are restored from artifacts/parse-cache/),
+ *    adds the exact type references read from the bytecode, then writes
+ *    artifacts/class-index.json
+ *
+ * With --from-bytecode, artifacts/class-index.json is built straight from the
+ * class files instead (see {@link BytecodeIndexer}) and nothing is decompiled.
+ *
+ * Either way, the caller -> callee edges of every method are extracted from the
+ * bytecode first and written to artifacts/call-graph.bin (see {@link CallGraph}),
+ * and the ECS component and field accesses of every method to
+ * artifacts/component-access.bin (see {@link ComponentAccessIndex}), and the
+ * string literals of every method and class to artifacts/string-constants.bin
+ * (see {@link StringConstantIndex}). Each of these files is kept as it is when
+ * its header already records the JAR's hash.
+ *
+ * With --sharded-index, the class index is also written split by package subtree
+ * into artifacts/class-index/ (see {@link ShardedClassIndex}).
  */
 public class Main {
 
+    /**
+     * Decompiled units waiting for a parser. A few hundred sources is a few MB of
+     * heap; when parsers fall behind, the decompiler blocks instead of piling up
+     * the whole tree inside the -Xmx4g budget.
+     */
+    private static final int PIPELINE_QUEUE_CAPACITY = 256;
+
+    /** Heap limit per child JVM in sharded mode; two children fit beside the parent. */
+    private static final String DEFAULT_SHARD_HEAP = "2g";
+
+    /**
+     * Decompile time allowed per top-level class. Typical classes take well under
+     * a second; the few that run for minutes are stubbed and quarantined instead.
+     */
+    private static final int DEFAULT_CLASS_BUDGET_SECONDS = 60;
+
+    /** Child JVMs running at once in sharded mode. */
+    private static final int SHARD_PARALLELISM = 2;
+
+    /** Hops beyond the bytecode-reachable surface that are still decompiled with --surface-only. */
+    private static final int DEFAULT_SURFACE_MARGIN = 1;
+
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Usage: hytale-indexer <path-to-jar>");
+        String jarArg = null;
+        boolean useCache = true;
+        boolean writeSources = true;
+        int shards = 0;
+        String shardHeap = DEFAULT_SHARD_HEAP;
+        int classBudgetSeconds = DEFAULT_CLASS_BUDGET_SECONDS;
+        boolean surfaceOnly = false;
+        boolean fromBytecode = false;
+        int surfaceMargin = DEFAULT_SURFACE_MARGIN;
+        int parserThreads = 0;
+        ClassIndexer.ParseMode parseMode = ClassIndexer.ParseMode.FULL;
+        boolean shardedIndex = false;
+        for (String arg : args) {
+            if (arg.equals("--no-cache")) {
+                useCache = false;
+            } else if (arg.equals("--no-decompiled-output")) {
+                writeSources = false;
+            } else if (arg.startsWith("--shards=")) {
+                shards = parsePositiveInt(arg, arg.substring("--shards=".length()));
+            } else if (arg.startsWith("--shard-heap=")) {
+                shardHeap = arg.substring("--shard-heap=".length());
+            } else if (arg.equals("--class-budget=0")) {
+                classBudgetSeconds = 0;
+            } else if (arg.startsWith("--class-budget=")) {
+                classBudgetSeconds = parsePositiveInt(arg, arg.substring("--class-budget=".length()));
+            } else if (arg.equals("--from-bytecode")) {
+                fromBytecode = true;
+            } else if (arg.equals("--surface-only")) {
+                surfaceOnly = true;
+            } else if (arg.equals("--surface-margin=0")) {
+                surfaceMargin = 0;
+            } else if (arg.startsWith("--surface-margin=")) {
+                surfaceMargin = parsePositiveInt(arg, arg.substring("--surface-margin=".length()));
+            } else if (arg.equals("--fast-parse")) {
+                parseMode = ClassIndexer.ParseMode.SIGNATURES;
+            } else if (arg.equals("--verify-fast-parse")) {
+                parseMode = ClassIndexer.ParseMode.VERIFY;
+            } else if (arg.startsWith("--parser-threads=")) {
+                parserThreads = parsePositiveInt(arg, arg.substring("--parser-threads=".length()));
+            } else if (arg.equals("--sharded-index")) {
+                shardedIndex = true;
+            } else if (arg.startsWith("--")) {
+                System.err.println("ERROR: Unknown option: " + arg);
+                System.exit(1);
+            } else {
+                jarArg = arg;
+            }
+        }
+
+        if (jarArg == null) {
+            System.err.println("Usage: hytale-indexer [options] <path-to-jar>");
             System.err.println("  <path-to-jar>  Path to the HytaleServer.jar file");
+            System.err.println("  --no-cache     Decompile and parse every class and rebuild the bytecode"
+                + " indexes, ignoring artifacts/decompile-cache/ and artifacts/parse-cache/");
+            System.err.println("  --no-decompiled-output  Keep decompiled sources in memory only (skip artifacts/decompiled/)");
+            System.err.println("  --shards=N     Decompile in N child JVMs, isolating classes that crash or exhaust the heap");
+            System.err.println("  --shard-heap=SIZE  Heap limit per child JVM with --shards (default " + DEFAULT_SHARD_HEAP + ")");
+            System.err.println("  --class-budget=SECONDS  Decompile time per class before it is stubbed from bytecode"
+                + " and quarantined (default " + DEFAULT_CLASS_BUDGET_SECONDS + ", 0 = no limit)");
+            System.err.println("  --from-bytecode  Build the class index from class files without decompiling");
+            System.err.println("  --surface-only Decompile only classes reachable from the API surface seeds;"
+                + " stub the rest from bytecode");
+            System.err.println("  --surface-margin=N  Extra reference hops decompiled beyond the surface with --surface-only"
+                + " (default " + DEFAULT_SURFACE_MARGIN + ")");
+            System.err.println("  --parser-threads=N  JavaParser threads (default: all cores with --shards,"
+                + " a quarter of them while decompiling)");
+            System.err.println("  --fast-parse   Parse declarations only, skipping method bodies and comment attribution");
+            System.err.println("  --verify-fast-parse  Parse declarations only and check every file against a full parse");
+            System.err.println("  --sharded-index  Also write the class index as per-package NDJSON shards in artifacts/class-index/");
             System.exit(1);
         }
 
-        Path jarPath = Path.of(args[0]).toAbsolutePath();
+        if (shards > 0 && !writeSources) {
+            System.err.println("ERROR: --shards writes artifacts/decompiled/ and cannot be combined with --no-decompiled-output");
+            System.exit(1);
+        }
+
+        if (fromBytecode && (shards > 0 || surfaceOnly)) {
+            System.err.println("ERROR: --from-bytecode does not decompile and cannot be combined with --shards or --surface-only");
+            System.exit(1);
+        }
+
+        Path jarPath = Path.of(jarArg).toAbsolutePath();
         if (!Files.isRegularFile(jarPath)) {
             System.err.println("ERROR: File not found: " + jarPath);
             System.exit(1);
@@ -41,28 +163,125 @@ public class Main {
         Path artifactsDir = projectRoot.resolve("artifacts");
         Path decompiledDir = artifactsDir.resolve("decompiled");
         Path classIndexPath = artifactsDir.resolve("class-index.json");
+        Path shardDir = ShardedClassIndex.dirFor(classIndexPath);
+        Path cacheDir = useCache ? artifactsDir.resolve("decompile-cache") : null;
+        Path parseCacheDir = useCache ? artifactsDir.resolve("parse-cache") : null;
+        Path quarantinePath = artifactsDir.resolve("decompile-quarantine.json");
+        Path manifestPath = artifactsDir.resolve("jar-manifest.json");
+        Path costLogPath = artifactsDir.resolve("decompile-costs.tsv");
+        Path callGraphPath = artifactsDir.resolve("call-graph.bin");
+        Path componentAccessPath = artifactsDir.resolve("component-access.bin");
+        Path stringConstantsPath = artifactsDir.resolve("string-constants.bin");
+        long classBudgetMillis = classBudgetSeconds * 1000L;
 
         try {
-            // Compute JAR hash for change detection
-            String jarHash = computeSha256(jarPath);
+            // Hash the JAR (whole file, entries, packages) for change detection
+            JarManifest manifest = JarManifest.scan(jarPath);
+            String jarHash = manifest.jarHash();
             System.out.println("JAR SHA-256: " + jarHash);
+            reportChangedPackages(manifest, JarManifest.load(manifestPath));
+            writeCallGraph(jarPath, jarHash, callGraphPath, useCache);
+            writeComponentAccess(jarPath, jarHash, componentAccessPath, useCache);
+            writeStringConstants(jarPath, jarHash, stringConstantsPath, useCache);
+            if (fromBytecode) {
+                System.out.println();
+                System.out.println("=== Phase 1: Indexing class files ===");
+                new BytecodeIndexer().index(jarPath, classIndexPath, jarHash);
+                if (shardedIndex) {
+                    writeShardedIndex(classIndexPath, shardDir);
+                }
+                // Only a completed run becomes the baseline the next run is compared with
+                manifest.write(manifestPath);
+                System.out.println();
+                System.out.println("=== Phase 1 complete ===");
+                System.out.println("  Class index:       " + classIndexPath);
+                if (shardedIndex) {
+                    System.out.println("  Sharded index:     " + shardDir);
+                }
+                System.out.println("  Call graph:        " + callGraphPath);
+                System.out.println("  Component access:  " + componentAccessPath);
+                System.out.println("  String constants:  " + stringConstantsPath);
+                return;
+            }
 
-            // Step 1: Decompile
-            System.out.println();
-            System.out.println("=== Phase 1a: Decompiling JAR with Vineflower ===");
-            Decompiler decompiler = new Decompiler();
-            decompiler.decompile(jarPath, decompiledDir);
+            DecompileQuarantine quarantine = DecompileQuarantine.load(quarantinePath);
 
-            // Step 2: Parse and index
-            System.out.println();
-            System.out.println("=== Phase 1b: Parsing decompiled source with JavaParser ===");
-            ClassIndexer indexer = new ClassIndexer();
-            indexer.index(decompiledDir, classIndexPath, jarHash);
+            // Surface-only: decompile the reachable class groups, stub everything else
+            Set<String> surfaceGroups = null;
+            Set<String> stubGroups = Set.of();
+            if (surfaceOnly) {
+                System.out.println();
+                System.out.println("=== Phase 1 (surface-only): Computing API reachability from bytecode ===");
+                try (JarFile jf = new JarFile(jarPath.toFile())) {
+                    surfaceGroups = SurfaceReachability.load(jf).reachableGroups(surfaceMargin);
+                    stubGroups = new TreeSet<>(Decompiler.groupClasses(jf).keySet());
+                    stubGroups.removeAll(surfaceGroups);
+                }
+            }
+
+            if (shards > 0) {
+                // Step 1: Decompile in child JVMs, then Step 2: index the merged tree
+                System.out.println();
+                System.out.println("=== Phase 1a: Decompiling with Vineflower (" + shards + " shards) ===");
+                ShardedDecompiler decompiler =
+                    new ShardedDecompiler(shards, shardHeap, SHARD_PARALLELISM, cacheDir, classBudgetMillis, quarantine);
+                decompiler.decompile(jarPath, surfaceGroups, decompiledDir);
+                if (!stubGroups.isEmpty()) {
+                    new Decompiler().stub(jarPath, stubGroups, decompiledDir, unit -> {});
+                }
+                quarantine.save(quarantinePath, classBudgetSeconds);
+                DecompileCost.writeLog(costLogPath, decompiler.costSamples());
+
+                System.out.println();
+                System.out.println("=== Phase 1b: Parsing with JavaParser ===");
+                int threads = parserThreads > 0 ? parserThreads : Runtime.getRuntime().availableProcessors();
+                new ClassIndexer(jarPath, parseMode, parseCacheDir).index(decompiledDir, classIndexPath, jarHash, threads);
+            } else {
+                // Step 1 + 2: Decompile, feeding each unit to the parser workers as it is produced
+                System.out.println();
+                System.out.println("=== Phase 1a/1b: Decompiling with Vineflower, parsing with JavaParser ===");
+                Decompiler decompiler = new Decompiler(cacheDir, classBudgetMillis, quarantine);
+                ClassIndexer indexer = new ClassIndexer(jarPath, parseMode, parseCacheDir);
+                int threads = parserThreads > 0 ? parserThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+                ClassIndexer.Pipeline pipeline = indexer.startPipeline(threads, PIPELINE_QUEUE_CAPACITY);
+                try {
+                    Path outputDir = writeSources ? decompiledDir : null;
+                    decompiler.decompile(jarPath, surfaceGroups, outputDir, pipeline);
+                    if (!stubGroups.isEmpty()) {
+                        decompiler.stub(jarPath, stubGroups, outputDir, pipeline);
+                    }
+                } catch (Exception e) {
+                    pipeline.abort();
+                    throw e;
+                }
+                quarantine.save(quarantinePath, classBudgetSeconds);
+                DecompileCost.writeLog(costLogPath, decompiler.costSamples());
+
+                System.out.println();
+                System.out.println("=== Phase 1b: Finishing JavaParser pass ===");
+                pipeline.finish(classIndexPath, jarHash);
+            }
+            if (shardedIndex) {
+                writeShardedIndex(classIndexPath, shardDir);
+            }
+            // Only a completed run becomes the baseline the next run is compared with
+            manifest.write(manifestPath);
 
             System.out.println();
             System.out.println("=== Phase 1 complete ===");
-            System.out.println("  Decompiled source: " + decompiledDir);
+            if (writeSources) {
+                System.out.println("  Decompiled source: " + decompiledDir);
+            }
             System.out.println("  Class index:       " + classIndexPath);
+            if (shardedIndex) {
+                System.out.println("  Sharded index:     " + shardDir);
+            }
+            System.out.println("  Call graph:        " + callGraphPath);
+            System.out.println("  Component access:  " + componentAccessPath);
+            System.out.println("  String constants:  " + stringConstantsPath);
+            if (quarantine.size() > 0) {
+                System.out.println("  Quarantine:        " + quarantinePath + " (" + quarantine.size() + " classes)");
+            }
 
         } catch (Exception e) {
             System.err.println("FATAL: " + e.getMessage());
@@ -75,7 +294,7 @@ public class Main {
      * Resolve the project root directory. We look for the artifacts/ directory
      * relative to the JAR path or the current working directory.
      */
-    private static Path resolveProjectRoot(Path jarPath) {
+    static Path resolveProjectRoot(Path jarPath) {
         // Try: parent of input/ directory (if JAR is in input/)
         Path jarParent = jarPath.getParent();
         if (jarParent != null && jarParent.getFileName() != null
@@ -86,10 +305,100 @@ public class Main {
         return Path.of("").toAbsolutePath();
     }
 
-    static String computeSha256(Path file) throws IOException, NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] bytes = Files.readAllBytes(file);
-        byte[] hash = digest.digest(bytes);
-        return "sha256:" + HexFormat.of().formatHex(hash);
+    private static int parsePositiveInt(String arg, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("ERROR: Expected a positive number: " + arg);
+        System.exit(1);
+        return 0;
+    }
+
+    /**
+     * Extract caller -> callee edges from the bytecode for Phase 3 lookups (see {@link Xref}),
+     * unless {@code reuse} is set and the call graph at {@code path} was built from the same JAR.
+     */
+    private static void writeCallGraph(Path jarPath, String jarHash, Path path, boolean reuse) throws IOException {
+        if (reuse && jarHash.equals(CallGraph.storedJarHash(path))) {
+            System.out.println("Call graph: unchanged JAR, keeping " + path.getFileName());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CallGraph graph = CallGraph.build(jarPath, jarHash);
+        graph.write(path);
+        System.out.printf("Call graph: %d symbols, %d edges in %.1f seconds%n",
+            graph.symbolCount(), graph.edgeCount(), (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    /**
+     * Index which methods read, write or remove each ECS component for Phase 3b (see {@link Xref}),
+     * unless {@code reuse} is set and the index at {@code path} was built from the same JAR.
+     */
+    private static void writeComponentAccess(Path jarPath, String jarHash, Path path, boolean reuse) throws IOException {
+        if (reuse && jarHash.equals(ComponentAccessIndex.storedJarHash(path))) {
+            System.out.println("Component access: unchanged JAR, keeping " + path.getFileName());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        ComponentAccessIndex index = ComponentAccessIndex.build(jarPath, jarHash);
+        index.write(path);
+        System.out.printf("Component access: %d keys, %d entries in %.1f seconds%n",
+            index.keyCount(), index.entryCount(), (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    /**
+     * Index the string literals of every method and class for Phase 3 lookups (see {@link Xref}),
+     * unless {@code reuse} is set and the index at {@code path} was built from the same JAR.
+     */
+    private static void writeStringConstants(Path jarPath, String jarHash, Path path, boolean reuse) throws IOException {
+        if (reuse && jarHash.equals(StringConstantIndex.storedJarHash(path))) {
+            System.out.println("String constants: unchanged JAR, keeping " + path.getFileName());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int strings = StringConstantIndex.build(jarPath, jarHash, path);
+        System.out.printf("String constants: %d strings in %.1f seconds%n",
+            strings, (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    /**
+     * Split the class index just written into per-package shards, reading it back
+     * from class-index.bin rather than parsing the JSON.
+     */
+    private static void writeShardedIndex(Path classIndexPath, Path shardDir) throws IOException {
+        long start = System.currentTimeMillis();
+        ShardedClassIndex.Manifest manifest;
+        try (BinaryClassIndex index = BinaryClassIndex.open(BinaryClassIndex.pathFor(classIndexPath))) {
+            manifest = ShardedClassIndex.write(index.types(), index.jarHash(), index.generatedAt(), shardDir);
+        }
+        System.out.printf("Sharded index: %d types in %d shards in %.1f seconds%n",
+            manifest.shards.stream().mapToInt(s -> s.types).sum(), manifest.shards.size(),
+            (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    private static void reportChangedPackages(JarManifest manifest, JarManifest previous) {
+        System.out.println("JAR Merkle root: " + manifest.merkleRoot()
+            + " (" + manifest.packageHashes().size() + " packages)");
+        if (previous == null) {
+            return;
+        }
+        if (previous.merkleRoot().equals(manifest.merkleRoot())) {
+            System.out.println("No package changes since the previous run");
+            return;
+        }
+        Set<String> changed = manifest.changedPackages(previous);
+        System.out.println(changed.size() + " packages changed since the previous run:");
+        List<String> shown = new ArrayList<>(changed).subList(0, Math.min(changed.size(), 20));
+        for (String pkg : shown) {
+            System.out.println("  " + (pkg.isEmpty() ? "(root)" : pkg.replace('/', '.')));
+        }
+        if (changed.size() > shown.size()) {
+            System.out.println("  ... and " + (changed.size() - shown.size()) + " more");
+        }
     }
 }
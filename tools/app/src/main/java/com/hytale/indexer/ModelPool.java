@@ -0,0 +1,216 @@
+package com.hytale.indexer;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonical instances of the strings and string lists in the class index model.
+ *
+ * The same type names ("String", "void"), parameter names ("var1") and
+ * modifier or annotation lists (["public", "static", "final"]) occur tens of
+ * thousands of times across the index. The pool keeps one copy of each: lists
+ * become immutable and shared, so nothing may modify a list after it has been
+ * pooled. Entries are pooled once built ({@link #canonicalize}), and loaded
+ * through the Gson adapters from {@link #register}, so indexing and Phase 2
+ * retain the same single copies.
+ *
+ * A pool serves one index build or load and is dropped (or {@link #clear}ed)
+ * with it; the entries keep their shared instances, the lookup maps do not
+ * outlive the work that needed them. The pool counts the duplicates it dropped
+ * and their approximate size, for reporting what pooling saved.
+ */
+final class ModelPool {
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<List<String>, List<String>> lists = new ConcurrentHashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder duplicateBytes = new LongAdder();
+
+    String string(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.putIfAbsent(value, value);
+        if (existing == null) {
+            return value;
+        }
+        if (existing != value) {
+            duplicates.increment();
+            duplicateBytes.add(stringBytes(value));
+        }
+        return existing;
+    }
+
+    /**
+     * An immutable, shared list equal to {@code values}, its elements pooled too.
+     * A list holding nulls cannot be made immutable and is returned as it is.
+     */
+    List<String> list(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> existing = lists.get(values);
+        if (existing != null) {
+            if (existing != values) {
+                duplicates.increment();
+                duplicateBytes.add(listBytes(values.size()));
+            }
+            return existing;
+        }
+        List<String> pooled = new ArrayList<>(values.size());
+        for (String value : values) {
+            if (value == null) {
+                return values;
+            }
+            pooled.add(string(value));
+        }
+        List<String> copy = List.copyOf(pooled);
+        existing = lists.putIfAbsent(copy, copy);
+        return existing != null ? existing : copy;
+    }
+
+    int stringCount() {
+        return strings.size();
+    }
+
+    int listCount() {
+        return lists.size();
+    }
+
+    /** Strings and lists replaced by an equal pooled instance. */
+    long duplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Approximate heap the replaced duplicates would have retained: shallow sizes
+     * of Latin-1 strings and array lists with compressed references.
+     */
+    long duplicateBytes() {
+        return duplicateBytes.sum();
+    }
+
+    /** Drop the lookup maps once the entries are built or loaded; pooled instances stay shared. */
+    void clear() {
+        strings.clear();
+        lists.clear();
+    }
+
+    private static long stringBytes(String value) {
+        return 24 + align(16 + value.length());
+    }
+
+    private static long listBytes(int size) {
+        return 24 + align(16 + 4L * size);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Replace the strings and lists of a built entry, its fields, methods and
+     * parameters, with their pooled instances. Nested entries are separate
+     * entries and are pooled on their own.
+     */
+    void canonicalize(ClassIndexer.ClassEntry entry) {
+        entry.fqcn = string(entry.fqcn);
+        entry.package_ = string(entry.package_);
+        entry.name = string(entry.name);
+        entry.kind = string(entry.kind);
+        entry.modifiers = list(entry.modifiers);
+        entry.superclass = string(entry.superclass);
+        entry.interfaces = list(entry.interfaces);
+        entry.type_parameters = list(entry.type_parameters);
+        entry.annotations = list(entry.annotations);
+        entry.superclass_ref = string(entry.superclass_ref);
+        entry.interface_refs = list(entry.interface_refs);
+        entry.annotation_refs = list(entry.annotation_refs);
+        if (entry.fields != null) {
+            for (ClassIndexer.FieldEntry f : entry.fields) {
+                f.name = string(f.name);
+                f.type = string(f.type);
+                f.modifiers = list(f.modifiers);
+                f.annotations = list(f.annotations);
+                f.type_refs = list(f.type_refs);
+            }
+        }
+        if (entry.methods != null) {
+            for (ClassIndexer.MethodEntry m : entry.methods) {
+                m.name = string(m.name);
+                m.return_type = string(m.return_type);
+                m.modifiers = list(m.modifiers);
+                m.annotations = list(m.annotations);
+                m.throws_ = list(m.throws_);
+                m.return_refs = list(m.return_refs);
+                m.throws_refs = list(m.throws_refs);
+                if (m.parameters != null) {
+                    for (ClassIndexer.ParameterEntry p : m.parameters) {
+                        p.name = string(p.name);
+                        p.type = string(p.type);
+                        p.type_refs = list(p.type_refs);
+                    }
+                }
+            }
+        }
+        entry.inner_classes = list(entry.inner_classes);
+        entry.source_file = string(entry.source_file);
+        entry.outer_class = string(entry.outer_class);
+        entry.enclosing_classes = list(entry.enclosing_classes);
+        entry.imports = list(entry.imports);
+    }
+
+    /**
+     * Have {@code builder}'s Gson read every string and list of strings through
+     * this pool; writing is unchanged.
+     */
+    GsonBuilder register(GsonBuilder builder) {
+        TypeAdapter<String> stringAdapter = new TypeAdapter<String>() {
+            @Override
+            public void write(JsonWriter out, String value) throws IOException {
+                out.value(value);
+            }
+
+            @Override
+            public String read(JsonReader in) throws IOException {
+                // Numbers and booleans are read as strings too, as Gson's own adapter does
+                return string(in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString());
+            }
+        }.nullSafe();
+        TypeAdapter<List<String>> listAdapter = new TypeAdapter<List<String>>() {
+            @Override
+            public void write(JsonWriter out, List<String> values) throws IOException {
+                out.beginArray();
+                for (String value : values) {
+                    stringAdapter.write(out, value);
+                }
+                out.endArray();
+            }
+
+            @Override
+            public List<String> read(JsonReader in) throws IOException {
+                List<String> values = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    values.add(stringAdapter.read(in));
+                }
+                in.endArray();
+                return list(values);
+            }
+        }.nullSafe();
+        return builder
+            .registerTypeAdapter(String.class, stringAdapter)
+            .registerTypeAdapter(TypeToken.getParameterized(List.class, String.class).getType(), listAdapter);
+    }
+}
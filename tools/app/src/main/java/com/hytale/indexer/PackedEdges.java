@@ -0,0 +1,224 @@
+package com.hytale.indexer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Storage shared by the bytecode lookup artifacts ({@link CallGraph},
+ * {@link ComponentAccessIndex}): a sorted symbol table and (target, source, kind)
+ * edges between symbols.
+ *
+ * A symbol's id is its position in the sorted table, so all members of a class
+ * ("owner.name...") form one contiguous id range. Each edge packs target, source
+ * and kind into one long; sorted, the edges into one target are a contiguous run
+ * (an inverted index keyed by target). On disk the edges are delta-encoded as
+ * variable-length integers, a few bytes each.
+ */
+final class PackedEdges {
+
+    static final int KIND_BITS = 3;
+    private static final int SOURCE_BITS = 29;
+
+    /** Sorted symbols; a symbol's index is its id. */
+    final String[] symbols;
+    /** Packed (target, source, kind), ascending and distinct. */
+    final long[] edges;
+    private final Map<String, Integer> ids;
+
+    private PackedEdges(String[] symbols, long[] edges) {
+        this.symbols = symbols;
+        this.edges = edges;
+        this.ids = new HashMap<>(symbols.length * 2);
+        for (int i = 0; i < symbols.length; i++) {
+            ids.put(symbols[i], i);
+        }
+    }
+
+    /** Collects symbols and edges by name; ids are assigned in {@link #build()}. */
+    static final class Builder {
+
+        private final TreeSet<String> names = new TreeSet<>();
+        private final List<String[]> raw = new ArrayList<>();
+        private final List<Integer> kinds = new ArrayList<>();
+
+        /** Make sure {@code symbol} has an id even if no edge mentions it. */
+        void symbol(String symbol) {
+            names.add(symbol);
+        }
+
+        void edge(String source, String target, int kind) {
+            names.add(source);
+            names.add(target);
+            raw.add(new String[] {source, target});
+            kinds.add(kind);
+        }
+
+        PackedEdges build() throws IOException {
+            String[] symbols = names.toArray(new String[0]);
+            if (symbols.length >= 1 << SOURCE_BITS) {
+                throw new IOException("Too many symbols for the packed edge format: " + symbols.length);
+            }
+            Map<String, Integer> ids = new HashMap<>(symbols.length * 2);
+            for (int i = 0; i < symbols.length; i++) {
+                ids.put(symbols[i], i);
+            }
+            long[] edges = new long[raw.size()];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = pack(ids.get(raw.get(i)[1]), ids.get(raw.get(i)[0]), kinds.get(i));
+            }
+            Arrays.sort(edges);
+            int n = 0;
+            for (int i = 0; i < edges.length; i++) {
+                if (i == 0 || edges[i] != edges[i - 1]) {
+                    edges[n++] = edges[i];
+                }
+            }
+            return new PackedEdges(symbols, Arrays.copyOf(edges, n));
+        }
+    }
+
+    private static long pack(int target, int source, int kind) {
+        return ((long) target << (SOURCE_BITS + KIND_BITS)) | ((long) source << KIND_BITS) | kind;
+    }
+
+    static int target(long edge) {
+        return (int) (edge >>> (SOURCE_BITS + KIND_BITS));
+    }
+
+    static int source(long edge) {
+        return (int) (edge >>> KIND_BITS) & ((1 << SOURCE_BITS) - 1);
+    }
+
+    static int kind(long edge) {
+        return (int) edge & ((1 << KIND_BITS) - 1);
+    }
+
+    /** @return the id of {@code symbol}, or -1 */
+    int id(String symbol) {
+        return ids.getOrDefault(symbol, -1);
+    }
+
+    /** Index of the first edge into {@code target}; the run ends where {@link #target} changes. */
+    int firstEdge(int target) {
+        long key = (long) target << (SOURCE_BITS + KIND_BITS);
+        int lo = 0;
+        int hi = edges.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (edges[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Id of the first symbol at or after {@code prefix}; symbols sharing the prefix follow it. */
+    int firstSymbol(String prefix) {
+        int i = Arrays.binarySearch(symbols, prefix);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Ids of the methods "owner.name(...)" whose name matches {@code namePattern}.
+     */
+    List<Integer> methods(String owner, Pattern namePattern) {
+        List<Integer> result = new ArrayList<>();
+        String prefix = owner + ".";
+        for (int id = firstSymbol(prefix); id < symbols.length && symbols[id].startsWith(prefix); id++) {
+            String rest = symbols[id].substring(prefix.length());
+            int paren = rest.indexOf('(');
+            if (paren > 0 && namePattern.matcher(rest.substring(0, paren)).matches()) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(symbols.length);
+        for (String symbol : symbols) {
+            out.writeUTF(symbol);
+        }
+        out.writeInt(edges.length);
+        long previous = 0;
+        for (long edge : edges) {
+            writeVarLong(out, edge - previous);
+            previous = edge;
+        }
+    }
+
+    static PackedEdges read(DataInputStream in) throws IOException {
+        String[] symbols = new String[in.readInt()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = in.readUTF();
+        }
+        long[] edges = new long[in.readInt()];
+        long previous = 0;
+        for (int i = 0; i < edges.length; i++) {
+            previous += readVarLong(in);
+            edges[i] = previous;
+        }
+        return new PackedEdges(symbols, edges);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /** A "*" wildcard pattern as a regex. */
+    static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (String part : glob.split("\\*", -1)) {
+            if (!regex.isEmpty()) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(part));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * A symbol as a reader writes it: "a/b/Outer$Inner.run(ILjava/lang/String;)V"
+     * -> "a.b.Outer.Inner.run(int, String)", "a/b/C.field" -> "a.b.C.field".
+     */
+    static String display(String symbol) {
+        int paren = symbol.indexOf('(');
+        if (paren < 0) {
+            return symbol.replace('/', '.').replace('$', '.');
+        }
+        String member = symbol.substring(0, paren);
+        MethodTypeDesc desc = MethodTypeDesc.ofDescriptor(symbol.substring(paren));
+        List<String> params = new ArrayList<>();
+        for (ClassDesc p : desc.parameterList()) {
+            params.add(p.displayName());
+        }
+        return member.replace('/', '.').replace('$', '.') + "(" + String.join(", ", params) + ")";
+    }
+}
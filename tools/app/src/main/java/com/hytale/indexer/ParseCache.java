@@ -0,0 +1,146 @@
+package com.hytale.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent, content-addressed cache of parsed sources.
+ *
+ * Maps one .java file to the {@link ClassIndexer.ClassEntry} list parsed from it,
+ * inner types included. The key is a SHA-256 over the entry format version, the
+ * {@link ClassIndexer.ParseMode}, the source file path (it is recorded in every
+ * entry) and the file's content, so an edited or moved file simply misses,
+ * exactly like {@link DecompileCache}, and a file parsed in one mode is never
+ * served to a run in another. Entries
+ * hold the parse results before bytecode type refs are attached, and the time the
+ * parse took, so a hit can report the time it saved.
+ *
+ * Layout: {@code <cacheDir>/<first two hex chars>/<key>.json}
+ */
+public class ParseCache {
+
+    /** Bump whenever ClassIndexer would produce different entries for the same source. */
+    private static final String FORMAT = "class-entries-4";
+
+
+    /** What is stored per source file. */
+    private static class CachedParse {
+        long parse_nanos;
+        List<ClassIndexer.ClassEntry> classes;
+    }
+
+    private final Path cacheDir;
+    private final Gson gson;
+    private final AtomicInteger hits = new AtomicInteger(0);
+    private final AtomicInteger misses = new AtomicInteger(0);
+    private final AtomicLong savedNanos = new AtomicLong(0);
+
+    /**
+     * @param cacheDir  Directory holding cached entries (created on first store)
+     * @param pool      Pool of the index the cached entries are read into
+     */
+    public ParseCache(Path cacheDir, ModelPool pool) {
+        this.cacheDir = cacheDir;
+        this.gson = pool.register(new GsonBuilder().disableHtmlEscaping()).create();
+    }
+
+    /**
+     * Compute the cache key for one source file parsed in {@code mode}.
+     */
+    public String key(ClassIndexer.ParseMode mode, String sourceFile, String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        digest.update(FORMAT.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(mode.name().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(sourceFile.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Look up the entries cached for {@code key}.
+     *
+     * @return the parsed entries on a cache hit, or null if nothing usable is cached for the key
+     */
+    public List<ClassIndexer.ClassEntry> load(String key) throws IOException {
+        long start = System.nanoTime();
+        Path cached = pathFor(key);
+        if (!Files.isRegularFile(cached)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        CachedParse parse;
+        try {
+            parse = gson.fromJson(Files.readString(cached), CachedParse.class);
+        } catch (JsonParseException e) {
+            parse = null;
+        }
+        if (parse == null || parse.classes == null) {
+            // Unreadable entry: parse again and overwrite it
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        savedNanos.addAndGet(parse.parse_nanos - (System.nanoTime() - start));
+        return parse.classes;
+    }
+
+    /**
+     * Store freshly parsed entries under {@code key}. Writes go through a temp
+     * file and an atomic move so an interrupted run never leaves a truncated
+     * entry behind.
+     *
+     * @param parseNanos  How long parsing the source took
+     */
+    public void store(String key, List<ClassIndexer.ClassEntry> classes, long parseNanos) throws IOException {
+        CachedParse parse = new CachedParse();
+        parse.parse_nanos = parseNanos;
+        parse.classes = classes;
+        Path cached = pathFor(key);
+        Files.createDirectories(cached.getParent());
+        Path tmp = Files.createTempFile(cached.getParent(), key, ".tmp");
+        try {
+            Files.writeString(tmp, gson.toJson(parse));
+            Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+
+    /** Parse time recorded for the hits, less the time spent reading them. */
+    public long savedNanos() {
+        return savedNanos.get();
+    }
+
+    private Path pathFor(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+}
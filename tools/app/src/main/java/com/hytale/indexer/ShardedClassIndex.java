@@ -0,0 +1,313 @@
+package com.hytale.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The class index split by package subtree, for tools that need a few packages
+ * rather than the whole of class-index.json.
+ *
+ * Each shard is one NDJSON file, one {@link ClassIndexer.ClassEntry} per line in
+ * index order, holding the types of a package and its subpackages. Subtrees with
+ * more than {@link #MAX_SHARD_TYPES} types are split along their subpackages, the
+ * package's own types then getting a shard of their own; a shard therefore holds
+ * the types under its package that no deeper shard holds.
+ * manifest.json lists every shard's package, file, type count, byte size and
+ * SHA-256, so {@link #load} reads only the shards covering the requested
+ * packages, in parallel, and rejects a shard that changed since it was written.
+ *
+ * Layout: {@code artifacts/class-index/manifest.json} and
+ * {@code artifacts/class-index/<package>.ndjson}
+ */
+final class ShardedClassIndex {
+
+    /** Subtrees larger than this are split along their subpackages. */
+    static final int MAX_SHARD_TYPES = 500;
+
+    static final String MANIFEST = "manifest.json";
+
+    private static final String SHARD_SUFFIX = ".ndjson";
+    private static final int VERSION = 1;
+
+    private static final Gson LINE_GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final Gson MANIFEST_GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    // Repeated names, types and modifier lists are loaded as shared instances
+
+    private ShardedClassIndex() {
+    }
+
+    /** artifacts/class-index/ for artifacts/class-index.json. */
+    static Path dirFor(Path jsonPath) {
+        String name = jsonPath.getFileName().toString();
+        return jsonPath.resolveSibling(name.endsWith(".json") ? name.substring(0, name.length() - 5) : name + ".d");
+    }
+
+    /**
+     * Write {@code classes} as shards and a manifest into {@code dir}, replacing
+     * the shards of an earlier run.
+     *
+     * @return the manifest written
+     */
+    static Manifest write(List<ClassIndexer.ClassEntry> classes, String jarHash, String generatedAt, Path dir)
+            throws IOException {
+        Map<String, List<ClassIndexer.ClassEntry>> byShard = assign(classes);
+
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, "*" + SHARD_SUFFIX)) {
+            for (Path path : stale) {
+                Files.delete(path);
+            }
+        }
+
+        List<Shard> shards;
+        try {
+            shards = byShard.entrySet().parallelStream()
+                .map(e -> {
+                    try {
+                        return writeShard(dir, e.getKey(), e.getValue());
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                })
+                .sorted(Comparator.comparing(s -> s.package_))
+                .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.version = VERSION;
+        manifest.jar_hash = jarHash;
+        manifest.generated_at = generatedAt;
+        manifest.max_shard_types = MAX_SHARD_TYPES;
+        manifest.shards = shards;
+        Files.writeString(dir.resolve(MANIFEST), MANIFEST_GSON.toJson(manifest));
+        return manifest;
+    }
+
+    /**
+     * Load the manifest of a sharded index, or null if {@code dir} has none.
+     */
+    static Manifest loadManifest(Path dir) throws IOException {
+        Path path = dir.resolve(MANIFEST);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Manifest manifest = new Gson().fromJson(Files.readString(path), Manifest.class);
+        if (manifest == null || manifest.shards == null) {
+            throw new IOException("Malformed shard manifest: " + path + " (re-run Phase 1)");
+        }
+        if (manifest.version != VERSION) {
+            throw new IOException("Unsupported shard manifest version " + manifest.version + " in " + path
+                + " (expected " + VERSION + "; re-run Phase 1)");
+        }
+        return manifest;
+    }
+
+    /**
+     * The shards holding types under any of {@code packages}; all of them when
+     * {@code packages} is empty.
+     */
+    static List<Shard> shardsFor(Manifest manifest, Collection<String> packages) {
+        List<Shard> selected = new ArrayList<>();
+        for (Shard shard : manifest.shards) {
+            if (packages.isEmpty() || packages.stream().anyMatch(
+                    p -> isUnder(p, shard.package_) || isUnder(shard.package_, p))) {
+                selected.add(shard);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Load the types in {@code packages} and their subpackages, reading only the
+     * shards that hold them, in parallel. An empty {@code packages} loads the
+     * whole index. Classes are in FQCN order.
+     *
+     * @throws IOException if there is no manifest in {@code dir}, or a shard does
+     *                     not match the size and hash the manifest records
+     */
+    static ClassIndexer.ClassIndex load(Path dir, Collection<String> packages) throws IOException {
+        Manifest manifest = loadManifest(dir);
+        if (manifest == null) {
+            throw new IOException("Sharded class index not found: " + dir.resolve(MANIFEST) + " (run Phase 1 with --sharded-index)");
+        }
+        // One pool per load, so repeated strings are shared across shards but not kept after
+        Gson gson = new ModelPool().register(new GsonBuilder()).create();
+        List<ClassIndexer.ClassEntry> classes;
+        try {
+            classes = shardsFor(manifest, packages).parallelStream()
+                .flatMap(shard -> {
+                    try {
+                        return readShard(dir, shard, gson).stream();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                // An ancestor shard also holds packages next to the requested ones
+                .filter(c -> packages.isEmpty() || packages.stream().anyMatch(p -> isUnder(packageOf(c), p)))
+                .sorted(Comparator.comparing(c -> c.fqcn))
+                .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        ClassIndexer.ClassIndex index = new ClassIndexer.ClassIndex();
+        index.jar_hash = manifest.jar_hash;
+        index.generated_at = manifest.generated_at;
+        index.classes = new ArrayList<>(classes);
+        return index;
+    }
+
+    /**
+     * Group classes into shards: a package subtree stays whole up to
+     * {@link #MAX_SHARD_TYPES} types and is split along its subpackages beyond that.
+     */
+    private static Map<String, List<ClassIndexer.ClassEntry>> assign(List<ClassIndexer.ClassEntry> classes) {
+        NavigableMap<String, Integer> packageCounts = new TreeMap<>();
+        for (ClassIndexer.ClassEntry c : classes) {
+            packageCounts.merge(packageOf(c), 1, Integer::sum);
+        }
+        TreeSet<String> shardPackages = new TreeSet<>();
+        split("", packageCounts, shardPackages);
+
+        Map<String, List<ClassIndexer.ClassEntry>> byShard = new TreeMap<>();
+        for (ClassIndexer.ClassEntry c : classes) {
+            byShard.computeIfAbsent(shardOf(packageOf(c), shardPackages), k -> new ArrayList<>()).add(c);
+        }
+        return byShard;
+    }
+
+    private static void split(String prefix, NavigableMap<String, Integer> packageCounts, TreeSet<String> shardPackages) {
+        int total = 0;
+        TreeSet<String> children = new TreeSet<>();
+        for (Map.Entry<String, Integer> e : packageCounts.entrySet()) {
+            String pkg = e.getKey();
+            if (!isUnder(pkg, prefix)) {
+                continue;
+            }
+            total += e.getValue();
+            if (!pkg.equals(prefix)) {
+                int start = prefix.isEmpty() ? 0 : prefix.length() + 1;
+                int dot = pkg.indexOf('.', start);
+                children.add(dot < 0 ? pkg : pkg.substring(0, dot));
+            }
+        }
+        if (total <= MAX_SHARD_TYPES || children.isEmpty()) {
+            shardPackages.add(prefix);
+            return;
+        }
+        if (packageCounts.containsKey(prefix)) {
+            shardPackages.add(prefix);
+        }
+        for (String child : children) {
+            split(child, packageCounts, shardPackages);
+        }
+    }
+
+    /** The deepest shard package at or above {@code pkg}. */
+    private static String shardOf(String pkg, TreeSet<String> shardPackages) {
+        String candidate = pkg;
+        while (!shardPackages.contains(candidate)) {
+            int dot = candidate.lastIndexOf('.');
+            candidate = dot < 0 ? "" : candidate.substring(0, dot);
+        }
+        return candidate;
+    }
+
+    private static Shard writeShard(Path dir, String pkg, List<ClassIndexer.ClassEntry> classes) throws IOException {
+        String file = (pkg.isEmpty() ? "(default)" : pkg) + SHARD_SUFFIX;
+        Path path = dir.resolve(file);
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            for (ClassIndexer.ClassEntry c : classes) {
+                LINE_GSON.toJson(c, ClassIndexer.ClassEntry.class, out);
+                out.write('\n');
+            }
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        Shard shard = new Shard();
+        shard.package_ = pkg;
+        shard.file = file;
+        shard.types = classes.size();
+        shard.bytes = bytes.length;
+        shard.sha256 = sha256(bytes);
+        return shard;
+    }
+
+    private static List<ClassIndexer.ClassEntry> readShard(Path dir, Shard shard, Gson gson) throws IOException {
+        Path path = dir.resolve(shard.file);
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length != shard.bytes || !sha256(bytes).equals(shard.sha256)) {
+            throw new IOException("Shard " + path + " does not match " + MANIFEST + " (re-run Phase 1)");
+        }
+        List<ClassIndexer.ClassEntry> classes = new ArrayList<>(shard.types);
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                classes.add(gson.fromJson(line, ClassIndexer.ClassEntry.class));
+            } catch (JsonParseException e) {
+                throw new IOException("Malformed entry in " + path + ": " + e.getMessage(), e);
+            }
+        }
+        return classes;
+    }
+
+    /** Whether {@code pkg} is {@code prefix} or one of its subpackages; every package is under "". */
+    private static boolean isUnder(String pkg, String prefix) {
+        return prefix.isEmpty() || pkg.equals(prefix)
+            || (pkg.length() > prefix.length() && pkg.startsWith(prefix) && pkg.charAt(prefix.length()) == '.');
+    }
+
+    private static String packageOf(ClassIndexer.ClassEntry c) {
+        return c.package_ != null ? c.package_ : "";
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return "sha256:" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ---- JSON model ----
+
+    static class Manifest {
+        int version;
+        String jar_hash;
+        String generated_at;
+        int max_shard_types;
+        List<Shard> shards;
+    }
+
+    static class Shard {
+        @com.google.gson.annotations.SerializedName("package")
+        String package_;
+        String file;
+        int types;
+        long bytes;
+        String sha256;
+    }
+}
@@ -0,0 +1,401 @@
+package com.hytale.indexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@link Decompiler} in child JVMs, one per shard of the class set.
+ *
+ * A single pathological class can exhaust the heap and take the whole run down
+ * with it. Here the included class groups are split by package into shards, and
+ * each shard is decompiled by a separate JVM with its own heap limit. The parent
+ * merges every shard's output into the decompiled directory.
+ *
+ * A shard whose child crashes or runs out of memory is retried once, then split
+ * in half — by package while it spans several packages, by class group after
+ * that — until the offending class group is isolated. A shard that times out is
+ * split straight away: a hanging class hangs again, and every retry at the same
+ * size would cost another full timeout. Only that group fails, and the rest
+ * of the run carries on. A failed group is written as a {@link BytecodeStubs}
+ * stub whose header says why, so its classes stay in the class index.
+ *
+ * Children see the current {@link DecompileQuarantine} and report the classes
+ * they quarantined back to the parent, which merges them. They also report their
+ * measured decompile times, which the parent collects as {@link #costSamples()}.
+ */
+public class ShardedDecompiler {
+
+    /** Attempts per shard before it is split, when its child crashed rather than timed out. */
+    private static final int ATTEMPTS = 2;
+
+    /** Wall-clock limit for a single child JVM. */
+    private static final long CHILD_TIMEOUT_MINUTES = 30;
+
+    /** How a child JVM ended. */
+    private enum ChildResult { SUCCEEDED, FAILED, TIMED_OUT }
+
+    private static final String CRASH_STUB_REASON =
+        "decompilation crashed or ran out of memory in a child JVM on every attempt";
+    private static final String TIMEOUT_STUB_REASON =
+        "decompilation did not finish within " + CHILD_TIMEOUT_MINUTES + " minutes in a child JVM";
+
+    private final int shardCount;
+    private final String childHeap;
+    private final int parallelism;
+    private final Path cacheDir;
+    private final long classBudgetMillis;
+    private final DecompileQuarantine quarantine;
+    /** Class groups no child could decompile -> the reason stated in their stubs. */
+    private final SortedMap<String, String> failedGroups = Collections.synchronizedSortedMap(new TreeMap<>());
+    private final List<DecompileCost.Sample> costSamples = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param shardCount   Number of shards to split the class set into
+     * @param childHeap    Heap limit for each child JVM, in -Xmx syntax (e.g. "2g")
+     * @param parallelism  Number of child JVMs running at once
+     * @param cacheDir     Decompile cache shared by all children, or null for none
+     * @param classBudgetMillis  Decompile time allowed per top-level class, or 0 for no limit
+     * @param quarantine   Classes to stub without decompiling; children's new entries are merged in
+     */
+    public ShardedDecompiler(int shardCount, String childHeap, int parallelism, Path cacheDir,
+                             long classBudgetMillis, DecompileQuarantine quarantine) {
+        this.shardCount = shardCount;
+        this.childHeap = childHeap;
+        this.parallelism = parallelism;
+        this.cacheDir = cacheDir;
+        this.classBudgetMillis = classBudgetMillis;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Child JVM entry point.
+     *
+     * Usage: ShardedDecompiler <jar> <groups-file> <output-dir> <budget-ms>
+     *                            <quarantine-in> <quarantine-out> <costs-out> [cache-dir]
+     * where groups-file lists one top-level class group (internal name) per line.
+     */
+    public static void main(String[] args) {
+        if (args.length < 7) {
+            System.err.println("Usage: sharded-decompiler <jar> <groups-file> <output-dir> <budget-ms>"
+                + " <quarantine-in> <quarantine-out> <costs-out> [cache-dir]");
+            System.exit(1);
+        }
+        try {
+            Set<String> groups = new HashSet<>(Files.readAllLines(Path.of(args[1])));
+            long budgetMillis = Long.parseLong(args[3]);
+            DecompileQuarantine quarantine = DecompileQuarantine.load(Path.of(args[4]));
+            Path cache = args.length > 7 ? Path.of(args[7]) : null;
+            Decompiler decompiler = new Decompiler(cache, budgetMillis, quarantine);
+            decompiler.decompile(Path.of(args[0]), groups, Path.of(args[2]), unit -> {});
+            quarantine.save(Path.of(args[5]), budgetMillis / 1000);
+            DecompileCost.writeSamples(Path.of(args[6]), decompiler.costSamples());
+        } catch (Exception e) {
+            System.err.println("FATAL: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Decompile all included classes of {@code jarPath} into {@code outputDir} using child JVMs.
+     */
+    public void decompile(Path jarPath, Path outputDir) throws IOException {
+        decompile(jarPath, null, outputDir);
+    }
+
+    /**
+     * Decompile a subset of the included class groups of {@code jarPath} into {@code outputDir}
+     * using child JVMs.
+     *
+     * @param onlyGroups  Top-level class groups to decompile (internal names), or null for all
+     */
+    public void decompile(Path jarPath, Set<String> onlyGroups, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+
+        List<List<String>> shards = planShards(jarPath, onlyGroups);
+        System.out.println("Input JAR: " + jarPath);
+        System.out.println("Output:    " + outputDir);
+        System.out.println("Split into " + shards.size() + " shards, " + parallelism
+            + " child JVMs at a time (-Xmx" + childHeap + " each)");
+
+        Path workDir = Files.createTempDirectory("hytale-shards-");
+        Path quarantineSnapshot = workDir.resolve("quarantine.json");
+        quarantine.save(quarantineSnapshot, classBudgetMillis / 1000);
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                List<String> shard = shards.get(i);
+                String name = "shard-" + i;
+                futures.add(pool.submit(() -> {
+                    runShard(jarPath, outputDir, workDir, quarantineSnapshot, name, shard);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Shard failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+            deleteRecursively(workDir);
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.printf("Sharded decompilation completed in %.1f seconds%n", elapsed / 1000.0);
+        if (!failedGroups.isEmpty()) {
+            System.err.println("WARN: " + failedGroups.size() + " class groups could not be decompiled"
+                + " and are stubbed from bytecode:");
+            for (String group : failedGroups.keySet()) {
+                System.err.println("  " + group.replace('/', '.'));
+            }
+            new Decompiler().stub(jarPath, failedGroups, outputDir, unit -> {});
+        }
+    }
+
+    /**
+     * Estimated against measured decompile time of every class group decompiled by a
+     * child that succeeded, for {@link DecompileCost#writeLog}.
+     */
+    public List<DecompileCost.Sample> costSamples() {
+        synchronized (costSamples) {
+            return new ArrayList<>(costSamples);
+        }
+    }
+
+    /**
+     * Split the included class groups into shards by package, balancing the total
+     * {@link DecompileCost} estimate per shard (most expensive package first onto
+     * the lightest shard). Shards are returned most expensive first, so they are
+     * the first to be handed to a child JVM.
+     */
+    private List<List<String>> planShards(Path jarPath, Set<String> onlyGroups) throws IOException {
+        Map<String, List<String>> groupsByPackage = new TreeMap<>();
+        Map<String, Long> packageCost = new TreeMap<>();
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            for (Map.Entry<String, List<JarEntry>> group : Decompiler.groupClasses(jf).entrySet()) {
+                if (onlyGroups != null && !onlyGroups.contains(group.getKey())) {
+                    continue;
+                }
+                String pkg = packageOf(group.getKey());
+                groupsByPackage.computeIfAbsent(pkg, k -> new ArrayList<>()).add(group.getKey());
+                long cost = DecompileCost.estimate(Decompiler.readGroup(jf, group.getValue(), Map.of()).values()).cost();
+                packageCost.merge(pkg, cost, Long::sum);
+            }
+        }
+
+        int count = Math.max(1, Math.min(shardCount, groupsByPackage.size()));
+        List<List<String>> shards = new ArrayList<>();
+        long[] shardCost = new long[count];
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayList<>());
+        }
+
+        List<String> packages = new ArrayList<>(groupsByPackage.keySet());
+        packages.sort(Comparator.comparing((String p) -> packageCost.get(p)).reversed());
+        for (String pkg : packages) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (shardCost[i] < shardCost[lightest]) {
+                    lightest = i;
+                }
+            }
+            shards.get(lightest).addAll(groupsByPackage.get(pkg));
+            shardCost[lightest] += packageCost.get(pkg);
+        }
+        List<Integer> byCost = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Collections.sort(shards.get(i));
+            byCost.add(i);
+        }
+        byCost.sort(Comparator.comparingLong((Integer i) -> shardCost[i]).reversed());
+        List<List<String>> ordered = new ArrayList<>();
+        for (int i : byCost) {
+            if (!shards.get(i).isEmpty()) {
+                ordered.add(shards.get(i));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Run one shard, retrying and then splitting it on failure; splitting at once on a timeout.
+     */
+    private void runShard(Path jarPath, Path outputDir, Path workDir, Path quarantineSnapshot,
+                          String name, List<String> groups) throws IOException, InterruptedException {
+        ChildResult result = ChildResult.FAILED;
+        for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+            result = runChild(jarPath, outputDir, workDir, quarantineSnapshot, name, groups);
+            if (result == ChildResult.SUCCEEDED) {
+                return;
+            }
+            if (result == ChildResult.TIMED_OUT) {
+                break;
+            }
+            System.err.println("WARN: " + name + " (" + groups.size() + " class groups) failed, attempt "
+                + attempt + "/" + ATTEMPTS);
+        }
+
+        if (groups.size() == 1) {
+            failedGroups.put(groups.get(0), result == ChildResult.TIMED_OUT ? TIMEOUT_STUB_REASON : CRASH_STUB_REASON);
+            return;
+        }
+
+        List<List<String>> halves = split(groups);
+        System.err.println("WARN: Splitting " + name + " into " + halves.get(0).size()
+            + " + " + halves.get(1).size() + " class groups");
+        runShard(jarPath, outputDir, workDir, quarantineSnapshot, name + "a", halves.get(0));
+        runShard(jarPath, outputDir, workDir, quarantineSnapshot, name + "b", halves.get(1));
+    }
+
+    /**
+     * Launch a child JVM for one shard and merge its output on success.
+     *
+     * @return SUCCEEDED if the child exited cleanly and its output was merged
+     */
+    private ChildResult runChild(Path jarPath, Path outputDir, Path workDir, Path quarantineSnapshot,
+                             String name, List<String> groups) throws IOException, InterruptedException {
+        Path shardDir = workDir.resolve(name);
+        deleteRecursively(shardDir);
+        Path shardOutput = shardDir.resolve("decompiled");
+        Files.createDirectories(shardOutput);
+        Path groupsFile = shardDir.resolve("groups.txt");
+        Files.write(groupsFile, groups);
+        Path log = shardDir.resolve("child.log");
+        Path shardQuarantine = shardDir.resolve("quarantine.json");
+        Path shardCosts = shardDir.resolve("decompile-costs.tsv");
+
+        // Give each child its share of the cores so concurrent children don't oversubscribe
+        int cores = Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism);
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + childHeap);
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-XX:ActiveProcessorCount=" + cores);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardedDecompiler.class.getName());
+        command.add(jarPath.toString());
+        command.add(groupsFile.toString());
+        command.add(shardOutput.toString());
+        command.add(String.valueOf(classBudgetMillis));
+        command.add(quarantineSnapshot.toString());
+        command.add(shardQuarantine.toString());
+        command.add(shardCosts.toString());
+        if (cacheDir != null) {
+            command.add(cacheDir.toString());
+        }
+
+        long start = System.currentTimeMillis();
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+
+        boolean finished = process.waitFor(CHILD_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        if (!finished) {
+            process.destroyForcibly().waitFor();
+            System.err.println("WARN: " + name + " timed out after " + CHILD_TIMEOUT_MINUTES + " minutes");
+            printLogTail(log);
+            return ChildResult.TIMED_OUT;
+        }
+        if (process.exitValue() != 0) {
+            System.err.println("WARN: " + name + " exited with status " + process.exitValue());
+            printLogTail(log);
+            return ChildResult.FAILED;
+        }
+
+        quarantine.addAll(DecompileQuarantine.load(shardQuarantine));
+        costSamples.addAll(DecompileCost.readSamples(shardCosts));
+        int merged = merge(shardOutput, outputDir);
+        System.out.printf("  %s: %d class groups, %d files in %.1f seconds%n",
+            name, groups.size(), merged, (System.currentTimeMillis() - start) / 1000.0);
+        deleteRecursively(shardDir);
+        return ChildResult.SUCCEEDED;
+    }
+
+    /**
+     * Split a shard in two: by package while it spans several, otherwise by class group.
+     */
+    private static List<List<String>> split(List<String> groups) {
+        List<String> packages = new ArrayList<>(new LinkedHashSet<>(groups.stream().map(ShardedDecompiler::packageOf).toList()));
+        if (packages.size() > 1) {
+            Set<String> firstHalf = new HashSet<>(packages.subList(0, packages.size() / 2));
+            List<String> a = new ArrayList<>();
+            List<String> b = new ArrayList<>();
+            for (String group : groups) {
+                (firstHalf.contains(packageOf(group)) ? a : b).add(group);
+            }
+            return List.of(a, b);
+        }
+        int mid = groups.size() / 2;
+        return List.of(new ArrayList<>(groups.subList(0, mid)), new ArrayList<>(groups.subList(mid, groups.size())));
+    }
+
+    /** Move every file of a shard's output tree into the merged output directory. */
+    private static int merge(Path shardOutput, Path outputDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(shardOutput)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            Path target = outputDir.resolve(shardOutput.relativize(file).toString());
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return files.size();
+    }
+
+    private static void printLogTail(Path log) {
+        try {
+            List<String> lines = Files.readAllLines(log);
+            for (String line : lines.subList(Math.max(0, lines.size() - 10), lines.size())) {
+                System.err.println("    | " + line);
+            }
+        } catch (IOException e) {
+            // Nothing more to show
+        }
+    }
+
+    private static String packageOf(String group) {
+        int slash = group.lastIndexOf('/');
+        return slash < 0 ? "" : group.substring(0, slash);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
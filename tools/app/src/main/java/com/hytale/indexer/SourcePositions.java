@@ -0,0 +1,158 @@
+package com.hytale.indexer;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns JavaParser node positions into {@link ClassIndexer.SourceRange}s in the
+ * source file as written to artifacts/decompiled/.
+ *
+ * JavaParser reports 1-based lines and columns in the text it parsed. That text
+ * is either the source itself or, in signature-only mode, the source with bodies
+ * elided by {@link BodyElider}; the blocks it replaced map elided offsets back to
+ * the original, so both modes record the same ranges. Byte offsets are into the
+ * UTF-8 file, found per line for sources that are not plain ASCII.
+ */
+final class SourcePositions {
+
+    private final int[] parsedLineStarts;
+    private final List<BodyElider.Block> blocks;
+    private final int[] lineStarts;
+    // UTF-8 offset of every line start; null when the source is ASCII and bytes are chars
+    private final int[] lineByteStarts;
+    private final String source;
+
+    /**
+     * @param parsed  The text JavaParser parsed
+     * @param source  The source file's content
+     * @param blocks  The blocks {@link BodyElider} replaced to turn {@code source}
+     *                into {@code parsed}; empty when the two are the same
+     */
+    SourcePositions(String parsed, String source, List<BodyElider.Block> blocks) {
+        this.parsedLineStarts = lineStarts(parsed);
+        this.blocks = blocks;
+        this.lineStarts = parsed == source ? parsedLineStarts : lineStarts(source);
+        this.lineByteStarts = isAscii(source) ? null : byteStarts(source, lineStarts);
+        this.source = source;
+    }
+
+    /**
+     * The range {@code node} covers in the source file, annotations and modifiers
+     * included, comments not; or null if the node has no position.
+     */
+    ClassIndexer.SourceRange range(Node node) {
+        Range range = node.getRange().orElse(null);
+        if (range == null) {
+            return null;
+        }
+        int begin = originalOffset(parsedOffset(range.begin));
+        // JavaParser's end position is the node's last character
+        int end = originalOffset(parsedOffset(range.end)) + 1;
+        ClassIndexer.SourceRange r = new ClassIndexer.SourceRange();
+        r.begin_line = lineOf(begin) + 1;
+        r.end_line = lineOf(end - 1) + 1;
+        r.begin_byte = byteOffset(begin);
+        r.end_byte = byteOffset(end);
+        return r;
+    }
+
+    private int parsedOffset(Position position) {
+        return parsedLineStarts[position.line - 1] + position.column - 1;
+    }
+
+    /** Map an offset in the parsed text to the source; a {@code {}} maps to the braces of the block it replaced. */
+    private int originalOffset(int parsed) {
+        int lo = 0;
+        int hi = blocks.size() - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blocks.get(mid).elidedStart() <= parsed) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return parsed;
+        }
+        BodyElider.Block block = blocks.get(found);
+        if (parsed == block.elidedStart()) {
+            return block.originalStart();
+        }
+        if (parsed == block.elidedStart() + 1) {
+            return block.originalEnd() - 1;
+        }
+        return parsed - block.elidedStart() - 2 + block.originalEnd();
+    }
+
+    /** 0-based line holding {@code offset}. */
+    private int lineOf(int offset) {
+        int line = Arrays.binarySearch(lineStarts, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+
+    private int byteOffset(int offset) {
+        if (lineByteStarts == null) {
+            return offset;
+        }
+        int line = lineOf(offset);
+        return lineByteStarts[line] + utf8Length(source, lineStarts[line], offset);
+    }
+
+    /** Offsets where lines start, with JavaParser's line terminators: \n, \r\n and \r. */
+    private static int[] lineStarts(String text) {
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static int[] byteStarts(String text, int[] lineStarts) {
+        int[] starts = new int[lineStarts.length];
+        for (int i = 1; i < lineStarts.length; i++) {
+            starts[i] = starts[i - 1] + utf8Length(text, lineStarts[i - 1], lineStarts[i]);
+        }
+        return starts;
+    }
+
+    private static int utf8Length(String text, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
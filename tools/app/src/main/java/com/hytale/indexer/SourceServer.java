@@ -0,0 +1,269 @@
+package com.hytale.indexer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Long-lived service that decompiles single classes on demand.
+ *
+ * Phase 3 exploration and gap-fill pages need the source of individual classes
+ * at arbitrary times; keeping a full decompiled tree of every version around is
+ * wasteful. The server opens the JAR and lists its class groups (a top-level class
+ * with its inner classes) once, keeps both for its lifetime, and decompiles a
+ * requested group only when it is first asked for.
+ *
+ * Sources are held in an in-memory LRU bounded by total size. Every decompiled
+ * group is also written to the content-addressed {@link DecompileCache}, which is
+ * the disk spill: a group evicted from memory is restored from there without
+ * running Vineflower again, and groups already decompiled by a Phase 1 run that
+ * shares the cache directory are hits from the start. Only requests that have to
+ * run Vineflower are serialised; memory and disk hits are served concurrently.
+ *
+ * Protocol (localhost TCP, one request per line, any number per connection):
+ * the client sends a fully qualified class name ("a.b.Outer", "a.b.Outer.Inner"
+ * or "a.b.Outer$Inner"); the server answers "OK &lt;n&gt;" followed by n bytes of
+ * UTF-8 source, or "ERR &lt;message&gt;".
+ */
+public class SourceServer implements AutoCloseable {
+
+    static final int DEFAULT_PORT = 7391;
+    static final int DEFAULT_CACHE_MB = 256;
+
+    private final Path jarPath;
+    private final Decompiler decompiler;
+    private final DecompileQuarantine quarantine;
+    private final Path quarantinePath;
+    private final long classBudgetMillis;
+    private final JarFile jar;
+    private final Map<String, List<JarEntry>> groups;
+    private final SourceLru lru;
+
+    /**
+     * @param jarPath            JAR to serve sources from
+     * @param cacheDir           Decompile cache used as disk spill (shared with Phase 1 runs)
+     * @param maxCacheBytes      Upper bound for sources held in memory (UTF-16 size)
+     * @param classBudgetMillis  Decompile time allowed per class group, or 0 for no limit
+     * @param quarantinePath     Quarantine file; groups over the budget are served as stubs and added
+     */
+    public SourceServer(Path jarPath, Path cacheDir, long maxCacheBytes, long classBudgetMillis,
+                        Path quarantinePath) throws IOException {
+        this.jarPath = jarPath;
+        this.quarantine = DecompileQuarantine.load(quarantinePath);
+        this.quarantinePath = quarantinePath;
+        this.classBudgetMillis = classBudgetMillis;
+        this.decompiler = new Decompiler(cacheDir, classBudgetMillis, quarantine);
+        this.lru = new SourceLru(maxCacheBytes);
+        this.jar = new JarFile(jarPath.toFile());
+        this.groups = Decompiler.groupClasses(jar);
+    }
+
+    /**
+     * Entry point.
+     *
+     * Usage: SourceServer <path-to-jar> [--port=N] [--cache-mb=N] [--class-budget=SECONDS]
+     */
+    public static void main(String[] args) {
+        String jarArg = null;
+        int port = DEFAULT_PORT;
+        int cacheMb = DEFAULT_CACHE_MB;
+        int classBudgetSeconds = 60;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--cache-mb=")) {
+                cacheMb = Integer.parseInt(arg.substring("--cache-mb=".length()));
+            } else if (arg.startsWith("--class-budget=")) {
+                classBudgetSeconds = Integer.parseInt(arg.substring("--class-budget=".length()));
+            } else if (arg.startsWith("--")) {
+                System.err.println("ERROR: Unknown option: " + arg);
+                System.exit(1);
+            } else {
+                jarArg = arg;
+            }
+        }
+        if (jarArg == null) {
+            System.err.println("Usage: source-server <path-to-jar> [--port=N] [--cache-mb=N] [--class-budget=SECONDS]");
+            System.err.println("  --port=N        Localhost port to listen on (default " + DEFAULT_PORT + ")");
+            System.err.println("  --cache-mb=N    Sources kept in memory, in MB (default " + DEFAULT_CACHE_MB + ")");
+            System.err.println("  --class-budget=SECONDS  Decompile time per class before it is stubbed (default 60, 0 = no limit)");
+            System.exit(1);
+        }
+
+        Path jarPath = Path.of(jarArg).toAbsolutePath();
+        if (!Files.isRegularFile(jarPath)) {
+            System.err.println("ERROR: File not found: " + jarPath);
+            System.exit(1);
+        }
+        Path artifactsDir = Main.resolveProjectRoot(jarPath).resolve("artifacts");
+
+        try (SourceServer server = new SourceServer(jarPath, artifactsDir.resolve("decompile-cache"),
+                cacheMb * 1024L * 1024L, classBudgetSeconds * 1000L,
+                artifactsDir.resolve("decompile-quarantine.json"))) {
+            server.serve(port);
+        } catch (Exception e) {
+            System.err.println("FATAL: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Accept connections on localhost until the process is killed.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+             ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("Serving sources of " + groups.size() + " class groups from " + jarPath
+                + " on " + socket.getLocalSocketAddress());
+            while (true) {
+                Socket client = socket.accept();
+                connections.submit(() -> handle(client));
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream out = client.getOutputStream()) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String fqcn = line.trim();
+                if (fqcn.isEmpty()) {
+                    continue;
+                }
+                String response;
+                byte[] body = new byte[0];
+                try {
+                    long start = System.nanoTime();
+                    String source = source(fqcn);
+                    System.out.printf("%s: %.1f ms%n", fqcn, (System.nanoTime() - start) / 1e6);
+                    if (source == null) {
+                        response = "ERR no such class: " + fqcn;
+                    } else {
+                        body = source.getBytes(StandardCharsets.UTF_8);
+                        response = "OK " + body.length;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    response = "ERR " + String.valueOf(e.getMessage()).replace('\n', ' ');
+                }
+                out.write((response + "\n").getBytes(StandardCharsets.UTF_8));
+                out.write(body);
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("WARN: Connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Source of the compilation unit declaring {@code fqcn}, decompiling it if needed.
+     *
+     * @return the source, or null if the JAR has no such included class
+     */
+    public String source(String fqcn) throws IOException {
+        String group = groupOf(fqcn);
+        if (group == null) {
+            return null;
+        }
+        String cached = lru.get(group);
+        if (cached != null) {
+            return cached;
+        }
+        Decompiler.SourceUnit restored = decompiler.restoreGroup(jar, group, groups.get(group));
+        if (restored != null) {
+            lru.put(group, restored.content());
+            return restored.content();
+        }
+        // Decompiles are serialised: Vineflower already spreads one context over all
+        // cores, and concurrent requests for the same group decompile it only once
+        synchronized (this) {
+            cached = lru.get(group);
+            if (cached != null) {
+                return cached;
+            }
+            int quarantined = quarantine.size();
+            String source = decompiler.decompileGroup(jar, groups, group).content();
+            lru.put(group, source);
+            if (quarantine.size() != quarantined) {
+                quarantine.save(quarantinePath, classBudgetMillis / 1000);
+            }
+            return source;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        jar.close();
+    }
+
+    /**
+     * Map a class name to its class group: the longest prefix of the name that is
+     * a top-level class of the JAR ("a.b.Outer.Inner" -> "a/b/Outer").
+     */
+    private String groupOf(String fqcn) {
+        String name = fqcn.replace('$', '.').replace('.', '/');
+        while (true) {
+            if (groups.containsKey(name)) {
+                return name;
+            }
+            int slash = name.lastIndexOf('/');
+            if (slash < 0) {
+                return null;
+            }
+            name = name.substring(0, slash);
+        }
+    }
+
+    /**
+     * Access-ordered map of class group -> source, evicting the least recently
+     * used groups once the total size exceeds the bound.
+     */
+    static final class SourceLru {
+
+        private final long maxBytes;
+        private final LinkedHashMap<String, String> sources = new LinkedHashMap<>(256, 0.75f, true);
+        private long bytes;
+
+        SourceLru(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized String get(String group) {
+            return sources.get(group);
+        }
+
+        synchronized void put(String group, String source) {
+            String previous = sources.put(group, source);
+            if (previous != null) {
+                bytes -= sizeOf(previous);
+            }
+            bytes += sizeOf(source);
+            var eldest = sources.entrySet().iterator();
+            while (bytes > maxBytes && sources.size() > 1) {
+                Map.Entry<String, String> e = eldest.next();
+                bytes -= sizeOf(e.getValue());
+                eldest.remove();
+            }
+        }
+
+        private static long sizeOf(String source) {
+            return 2L * source.length();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.hytale.indexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Source text of indexed types, fields and methods, sliced out of the decompiled
+ * files by the {@link ClassIndexer.SourceRange}s recorded in the class index.
+ *
+ * Each source file is memory-mapped the first time one of its declarations is
+ * asked for and stays mapped until the snippets are closed, so a snippet costs a
+ * map lookup and a copy of its own bytes: nothing is parsed and no file is read
+ * whole. The ranges are only valid for the artifacts/decompiled/ tree written by
+ * the same Phase 1 run as the index.
+ */
+final class SourceSnippets implements AutoCloseable {
+
+    private final Path artifactsDir;
+    private final Arena arena = Arena.ofShared();
+    private final Map<String, MemorySegment> files = new ConcurrentHashMap<>();
+
+    /**
+     * @param artifactsDir  Directory the index's source_file paths are relative to
+     */
+    SourceSnippets(Path artifactsDir) {
+        this.artifactsDir = artifactsDir;
+    }
+
+    /** The whole declaration of {@code type}, nested types included, or null if it has no source range. */
+    String of(ClassIndexer.ClassEntry type) throws IOException {
+        return slice(type.source_file, type.source_range);
+    }
+
+    /** The declaration of a field of {@code owner} (shared by variables declared together), or null. */
+    String of(ClassIndexer.ClassEntry owner, ClassIndexer.FieldEntry field) throws IOException {
+        return slice(owner.source_file, field.source_range);
+    }
+
+    /** The declaration and body of a method of {@code owner}, or null. */
+    String of(ClassIndexer.ClassEntry owner, ClassIndexer.MethodEntry method) throws IOException {
+        return slice(owner.source_file, method.source_range);
+    }
+
+    /**
+     * @return the text {@code range} covers in {@code sourceFile}, or null if either is null
+     * @throws IOException if the file cannot be mapped or is shorter than the range
+     *                     (it changed since the index was written)
+     */
+    String slice(String sourceFile, ClassIndexer.SourceRange range) throws IOException {
+        if (sourceFile == null || range == null) {
+            return null;
+        }
+        MemorySegment file = map(sourceFile);
+        if (range.begin_byte < 0 || range.end_byte < range.begin_byte || range.end_byte > file.byteSize()) {
+            throw new IOException("Source range " + range.begin_byte + "-" + range.end_byte + " is outside "
+                + sourceFile + " (" + file.byteSize() + " bytes; re-run Phase 1)");
+        }
+        byte[] bytes = file.asSlice(range.begin_byte, range.end_byte - range.begin_byte).toArray(ValueLayout.JAVA_BYTE);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Number of source files mapped so far. */
+    int fileCount() {
+        return files.size();
+    }
+
+    private MemorySegment map(String sourceFile) throws IOException {
+        try {
+            return files.computeIfAbsent(sourceFile, f -> {
+                try (FileChannel channel = FileChannel.open(artifactsDir.resolve(f), StandardOpenOption.READ)) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
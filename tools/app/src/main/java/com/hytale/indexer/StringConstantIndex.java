@@ -0,0 +1,468 @@
+package com.hytale.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.classfile.Annotation;
+import java.lang.classfile.AnnotationElement;
+import java.lang.classfile.AnnotationValue;
+import java.lang.classfile.AttributedElement;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.constantpool.PoolEntry;
+import java.lang.classfile.constantpool.StringEntry;
+import java.lang.classfile.instruction.ConstantInstruction;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.constant.ConstantDesc;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+/**
+ * Every string literal in the JAR and where it is used, read from the constant pools.
+ *
+ * Command names, asset keys, codec field names and permission nodes are string
+ * constants; this index answers "who uses this string" without the decompiled
+ * tree. A literal loaded by a method ({@code ldc}, or a constant part of a string
+ * concatenation) is attributed to that method, lambdas to the method declaring
+ * them; any other string in a class's constant pool ({@code static final}
+ * constants) is attributed to the class. String values of annotations, which
+ * the constant pool holds as plain UTF-8 rather than string constants, are
+ * attributed to the annotated method (an annotation element's default to the
+ * element) or otherwise to the class.
+ *
+ * Stored as artifacts/string-constants.bin and read through a memory mapping,
+ * so a lookup touches only the pages it needs:
+ * <pre>
+ *   int magic, int version, int hash length, UTF-8 JAR hash (padded to 4 bytes)
+ *   int string count S, int owner count O, int posting count P
+ *   int[S + 1] string offsets, int[O + 1] owner offsets, int[S + 1] posting starts
+ *   int[P] postings (owner ids of each string, ascending)
+ *   UTF-8 strings (sorted by bytes), UTF-8 owner symbols (sorted)
+ * </pre>
+ * Sorted strings give prefix lookups by binary search; substring lookups scan the
+ * string section once.
+ */
+final class StringConstantIndex {
+
+    private static final int MAGIC = 0x48595343; // "HYSC"
+    private static final int VERSION = 1;
+
+    /** Placeholders StringConcatFactory recipes use for the non-constant parts. */
+    private static final String RECIPE_ARGUMENTS = "[\u0001\u0002]";
+
+    /** One use: {@code owner} (a class or "owner.name(descriptor)" method) uses {@code value}. */
+    record Use(String value, String owner) {}
+
+    private final String jarHash;
+    private final MappedByteBuffer buffer;
+    private final int stringCount;
+    private final int ownerCount;
+    private final int stringOffsets;
+    private final int ownerOffsets;
+    private final int postingStarts;
+    private final int postings;
+    private final int stringData;
+    private final int ownerData;
+
+    private StringConstantIndex(String jarHash, MappedByteBuffer buffer, int header) {
+        this.jarHash = jarHash;
+        this.buffer = buffer;
+        this.stringCount = buffer.getInt(header);
+        this.ownerCount = buffer.getInt(header + 4);
+        int postingCount = buffer.getInt(header + 8);
+        this.stringOffsets = header + 12;
+        this.ownerOffsets = stringOffsets + (stringCount + 1) * 4;
+        this.postingStarts = ownerOffsets + (ownerCount + 1) * 4;
+        this.postings = postingStarts + (stringCount + 1) * 4;
+        this.stringData = postings + postingCount * 4;
+        this.ownerData = stringData + buffer.getInt(ownerOffsets - 4);
+    }
+
+    /**
+     * Scan every class the decompiler would include, in parallel by class group,
+     * and write the index to {@code path}.
+     *
+     * @return the number of distinct strings written
+     */
+    static int build(Path jarPath, String jarHash, Path path) throws IOException {
+        Map<String, Map<String, Set<String>>> scans = new ConcurrentHashMap<>();
+        try (JarFile jf = new JarFile(jarPath.toFile())) {
+            Map<String, List<JarEntry>> groups = Decompiler.groupClasses(jf);
+            groups.entrySet().parallelStream().forEach(group -> {
+                try {
+                    Map<String, Set<String>> uses = new HashMap<>();
+                    for (byte[] bytes : Decompiler.readGroup(jf, group.getValue(), Map.of()).values()) {
+                        scanClass(ClassFile.of().parse(bytes), uses);
+                    }
+                    scans.put(group.getKey(), uses);
+                } catch (Exception e) {
+                    System.err.println("WARN: Failed to scan " + group.getKey().replace('/', '.') + ": " + e.getMessage());
+                }
+            });
+        }
+
+        Map<String, Set<String>> uses = new HashMap<>();
+        TreeSet<String> owners = new TreeSet<>();
+        for (Map<String, Set<String>> scan : scans.values()) {
+            for (Map.Entry<String, Set<String>> e : scan.entrySet()) {
+                uses.computeIfAbsent(e.getKey(), k -> new HashSet<>()).addAll(e.getValue());
+                owners.addAll(e.getValue());
+            }
+        }
+
+        // Strings sort by their UTF-8 bytes so lookups can compare the mapped bytes directly
+        List<byte[]> strings = new ArrayList<>();
+        Map<byte[], String> values = new HashMap<>();
+        for (String value : uses.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            strings.add(bytes);
+            values.put(bytes, value);
+        }
+        strings.sort(Arrays::compareUnsigned);
+        String[] ownerTable = owners.toArray(new String[0]);
+        Map<String, Integer> ownerIds = new HashMap<>(ownerTable.length * 2);
+        for (int i = 0; i < ownerTable.length; i++) {
+            ownerIds.put(ownerTable[i], i);
+        }
+
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream ownerBytes = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.size() + 1];
+        int[] ownerOffsets = new int[ownerTable.length + 1];
+        int[] postingStarts = new int[strings.size() + 1];
+        List<int[]> postings = new ArrayList<>();
+        int postingCount = 0;
+        for (int i = 0; i < strings.size(); i++) {
+            byte[] bytes = strings.get(i);
+            stringBytes.write(bytes);
+            stringOffsets[i + 1] = stringBytes.size();
+            int[] ids = uses.get(values.get(bytes)).stream().mapToInt(ownerIds::get).sorted().toArray();
+            postings.add(ids);
+            postingCount += ids.length;
+            postingStarts[i + 1] = postingCount;
+        }
+        for (int i = 0; i < ownerTable.length; i++) {
+            ownerBytes.write(ownerTable[i].getBytes(StandardCharsets.UTF_8));
+            ownerOffsets[i + 1] = ownerBytes.size();
+        }
+
+        // Written to a temp file and moved into place, so a reader never maps a half-written
+        // index and a file whose header names the current JAR can be kept by the next run
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                byte[] hash = jarHash.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(hash.length);
+                out.write(hash);
+                out.write(new byte[(4 - hash.length % 4) % 4]);
+                out.writeInt(strings.size());
+                out.writeInt(ownerTable.length);
+                out.writeInt(postingCount);
+                for (int[] table : List.of(stringOffsets, ownerOffsets, postingStarts)) {
+                    for (int v : table) {
+                        out.writeInt(v);
+                    }
+                }
+                for (int[] ids : postings) {
+                    for (int id : ids) {
+                        out.writeInt(id);
+                    }
+                }
+                stringBytes.writeTo(out);
+                ownerBytes.writeTo(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return strings.size();
+    }
+
+    private static void scanClass(ClassModel cm, Map<String, Set<String>> uses) {
+        String self = cm.thisClass().asInternalName();
+        Map<String, String> lambdaOwners = CallGraph.lambdaOwners(cm);
+        Set<String> inMethods = new HashSet<>();
+        for (MethodModel m : cm.methods()) {
+            String method = CallGraph.enclosingMethod(CallGraph.methodSymbol(self, m), lambdaOwners);
+            for (CodeElement element : CallGraph.code(m)) {
+                if (element instanceof ConstantInstruction.LoadConstantInstruction ldc
+                        && ldc.constantEntry() instanceof StringEntry s) {
+                    add(uses, s.stringValue(), method);
+                    inMethods.add(s.stringValue());
+                } else if (element instanceof InvokeDynamicInstruction indy) {
+                    boolean concat = indy.bootstrapMethod().owner().descriptorString()
+                        .equals("Ljava/lang/invoke/StringConcatFactory;");
+                    for (ConstantDesc arg : indy.bootstrapArgs()) {
+                        if (arg instanceof String value) {
+                            // Attributed to the method only, a concatenation recipe by its constant parts
+                            inMethods.add(value);
+                            for (String part : concat ? value.split(RECIPE_ARGUMENTS) : new String[] {value}) {
+                                if (!part.isEmpty()) {
+                                    add(uses, part, method);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            addAnnotationStrings(m, method, uses);
+        }
+        addAnnotationStrings(cm, self, uses);
+        for (FieldModel f : cm.fields()) {
+            addAnnotationStrings(f, self, uses);
+        }
+        for (PoolEntry entry : cm.constantPool()) {
+            if (entry instanceof StringEntry s && !inMethods.contains(s.stringValue())) {
+                add(uses, s.stringValue(), self);
+            }
+        }
+    }
+
+    /** String values in the annotations on {@code element} and its parameters, and in its annotation default. */
+    private static void addAnnotationStrings(AttributedElement element, String owner, Map<String, Set<String>> uses) {
+        List<Annotation> annotations = new ArrayList<>();
+        element.findAttribute(Attributes.runtimeVisibleAnnotations()).ifPresent(a -> annotations.addAll(a.annotations()));
+        element.findAttribute(Attributes.runtimeInvisibleAnnotations()).ifPresent(a -> annotations.addAll(a.annotations()));
+        element.findAttribute(Attributes.runtimeVisibleParameterAnnotations())
+            .ifPresent(a -> a.parameterAnnotations().forEach(annotations::addAll));
+        element.findAttribute(Attributes.runtimeInvisibleParameterAnnotations())
+            .ifPresent(a -> a.parameterAnnotations().forEach(annotations::addAll));
+        for (Annotation annotation : annotations) {
+            addStrings(annotation, owner, uses);
+        }
+        element.findAttribute(Attributes.annotationDefault())
+            .ifPresent(a -> addStrings(a.defaultValue(), owner, uses));
+    }
+
+    private static void addStrings(Annotation annotation, String owner, Map<String, Set<String>> uses) {
+        for (AnnotationElement e : annotation.elements()) {
+            addStrings(e.value(), owner, uses);
+        }
+    }
+
+    private static void addStrings(AnnotationValue value, String owner, Map<String, Set<String>> uses) {
+        switch (value) {
+            case AnnotationValue.OfString s -> add(uses, s.stringValue(), owner);
+            case AnnotationValue.OfAnnotation nested -> addStrings(nested.annotation(), owner, uses);
+            case AnnotationValue.OfArray array -> {
+                for (AnnotationValue v : array.values()) {
+                    addStrings(v, owner, uses);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private static void add(Map<String, Set<String>> uses, String value, String owner) {
+        uses.computeIfAbsent(value, k -> new HashSet<>()).add(owner);
+    }
+
+    /**
+     * Map the index at {@code path}; the file stays mapped for the life of the index.
+     */
+    static StringConstantIndex load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a string constant index: " + path);
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported string constant index version " + version + " in " + path
+                    + " (expected " + VERSION + "; re-run Phase 1)");
+            }
+            int hashLength = buffer.getInt(8);
+            byte[] hash = new byte[hashLength];
+            buffer.get(12, hash);
+            int header = 12 + hashLength + (4 - hashLength % 4) % 4;
+            return new StringConstantIndex(new String(hash, StandardCharsets.UTF_8), buffer, header);
+        }
+    }
+
+    /**
+     * @return the JAR hash in the header of the index at {@code path}, or null if
+     *         there is no readable index of the current version there. Only the
+     *         header is read, without mapping the file.
+     */
+    static String storedJarHash(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            if (channel.read(header, 0) < 12 || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return null;
+            }
+            int hashLength = header.getInt(8);
+            if (hashLength < 0 || 12L + hashLength > channel.size()) {
+                return null;
+            }
+            ByteBuffer hash = ByteBuffer.allocate(hashLength);
+            while (hash.hasRemaining() && channel.read(hash, 12L + hash.position()) > 0) {
+                // keep reading
+            }
+            return hash.hasRemaining() ? null : new String(hash.array(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    int stringCount() {
+        return stringCount;
+    }
+
+    int ownerCount() {
+        return ownerCount;
+    }
+
+    // --- Lookups ---
+
+    /**
+     * Uses of the strings matching {@code pattern}: the exact string, a prefix
+     * ("hytale.command.*"), or any "*" pattern ("*.permission.*"), matched case-sensitively.
+     */
+    List<Use> find(String pattern) {
+        List<Integer> ids = new ArrayList<>();
+        int star = pattern.indexOf('*');
+        if (star < 0 || star == pattern.length() - 1) {
+            byte[] prefix = pattern.substring(0, star < 0 ? pattern.length() : star).getBytes(StandardCharsets.UTF_8);
+            for (int i = lowerBound(prefix); i < stringCount && startsWith(i, prefix); i++) {
+                if (star >= 0 || stringLength(i) == prefix.length) {
+                    ids.add(i);
+                }
+            }
+        } else {
+            // Scan for the longest literal part, then check the whole pattern on the candidates
+            String longest = "";
+            for (String part : pattern.split("\\*")) {
+                if (part.length() > longest.length()) {
+                    longest = part;
+                }
+            }
+            Pattern glob = PackedEdges.glob(pattern);
+            for (int i : containing(longest.getBytes(StandardCharsets.UTF_8))) {
+                if (glob.matcher(string(i)).matches()) {
+                    ids.add(i);
+                }
+            }
+        }
+
+        List<Use> result = new ArrayList<>();
+        for (int i : ids) {
+            String value = string(i);
+            for (int p = buffer.getInt(postingStarts + i * 4); p < buffer.getInt(postingStarts + (i + 1) * 4); p++) {
+                result.add(new Use(value, owner(buffer.getInt(postings + p * 4))));
+            }
+        }
+        return result;
+    }
+
+    /** Ids of the strings containing {@code needle}, each once, in one pass over the string section. */
+    private List<Integer> containing(byte[] needle) {
+        List<Integer> ids = new ArrayList<>();
+        int end = stringData + stringOffset(stringCount);
+        int id = 0;
+        for (int pos = stringData; pos + needle.length <= end; pos++) {
+            if (!matchesAt(pos, needle)) {
+                continue;
+            }
+            while (stringData + stringOffset(id + 1) <= pos) {
+                id++;
+            }
+            if (pos + needle.length <= stringData + stringOffset(id + 1)) {
+                ids.add(id);
+                pos = stringData + stringOffset(id + 1) - 1;
+                id++;
+            }
+        }
+        return ids;
+    }
+
+    private boolean matchesAt(int pos, byte[] needle) {
+        for (int j = 0; j < needle.length; j++) {
+            if (buffer.get(pos + j) != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** First string id not less than {@code key}. */
+    private int lowerBound(byte[] key) {
+        int lo = 0;
+        int hi = stringCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compare(int id, byte[] key) {
+        int start = stringData + stringOffset(id);
+        int length = stringLength(id);
+        for (int j = 0; j < Math.min(length, key.length); j++) {
+            int c = Byte.compareUnsigned(buffer.get(start + j), key[j]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private boolean startsWith(int id, byte[] prefix) {
+        return stringLength(id) >= prefix.length && matchesAt(stringData + stringOffset(id), prefix);
+    }
+
+    private int stringOffset(int id) {
+        return buffer.getInt(stringOffsets + id * 4);
+    }
+
+    private int stringLength(int id) {
+        return stringOffset(id + 1) - stringOffset(id);
+    }
+
+    private String string(int id) {
+        byte[] bytes = new byte[stringLength(id)];
+        buffer.get(stringData + stringOffset(id), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String owner(int id) {
+        int start = buffer.getInt(ownerOffsets + id * 4);
+        byte[] bytes = new byte[buffer.getInt(ownerOffsets + (id + 1) * 4) - start];
+        buffer.get(ownerData + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -6,6 +6,8 @@ import com.google.gson.annotations.SerializedName;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -140,6 +142,9 @@ public class SurfaceClassifier {
     private final List<String> allSeedFqcns = new ArrayList<>();
     // Maps FQCN -> set of imported FQCNs (extracted from decompiled source files)
     private final Map<String, Set<String>> importMap = new HashMap<>();
+    // Expansion edges followed by exact reference vs by simple-name resolution
+    private int exactEdges;
+    private int resolvedEdges;
 
     public static void main(String[] args) {
         if (args.length < 1) {
@@ -167,38 +172,20 @@ public class SurfaceClassifier {
 
     public void run(Path indexPath, Path outputDir) throws IOException {
         System.out.println("=== Phase 2: Classify API Surface ===");
-        System.out.println("Loading class-index.json...");
-
-        Path decompiledDir = outputDir.resolve("decompiled");
-
-        // Load index
-        Gson gson = new GsonBuilder().create();
-        ClassIndexer.ClassIndex index;
-        try (Reader reader = Files.newBufferedReader(indexPath)) {
-            index = gson.fromJson(reader, ClassIndexer.ClassIndex.class);
-        }
-
-        System.out.println("Loaded " + index.classes.size() + " types");
+        ClassIndexer.ClassIndex index = loadIndex(indexPath);
 
         // Build lookup maps
         buildLookupMaps(index.classes);
 
-        // Build import map from decompiled source files for accurate type resolution
-        buildImportMap(index.classes, decompiledDir);
+        // Build import map from the imports Phase 1 recorded, for accurate type resolution
+        buildImportMap(index.classes);
 
         // Collect all seeds
-        Map<String, String> allSeeds = new LinkedHashMap<>();
-        allSeeds.putAll(TIER1_SEEDS);
-        allSeeds.putAll(TIER2_SEEDS);
-        allSeeds.putAll(TIER3_SEEDS);
+        Map<String, String> allSeeds = seedTypes();
 
         // Tier 4: all types in event packages
         for (ClassIndexer.ClassEntry entry : index.classes) {
-            if (entry.package_ != null && (
-                    entry.package_.equals("com.hypixel.hytale.server.core.event") ||
-                    entry.package_.startsWith("com.hypixel.hytale.server.core.event.") ||
-                    entry.package_.equals("com.hypixel.hytale.event") ||
-                    entry.package_.startsWith("com.hypixel.hytale.event."))) {
+            if (entry.package_ != null && isEventPackage(entry.package_)) {
                 allSeeds.putIfAbsent(entry.fqcn, "seed:tier4");
             }
         }
@@ -218,6 +205,7 @@ public class SurfaceClassifier {
         // BFS expansion
         System.out.println("Expanding API surface...");
         expand(allSeeds);
+        System.out.println("Expansion edges: " + exactEdges + " exact, " + resolvedEdges + " resolved by simple name");
 
         System.out.println("API surface (pre-dedup): " + apiSurface.size() + " types");
 
@@ -268,6 +256,26 @@ public class SurfaceClassifier {
         }
     }
 
+    /**
+     * Seed types of tiers 1-3 (FQCN -> inclusion reason). Tier 4 is every type in
+     * an event package, see {@link #isEventPackage}.
+     */
+    static Map<String, String> seedTypes() {
+        Map<String, String> seeds = new LinkedHashMap<>();
+        seeds.putAll(TIER1_SEEDS);
+        seeds.putAll(TIER2_SEEDS);
+        seeds.putAll(TIER3_SEEDS);
+        return seeds;
+    }
+
+    /** Whether all types in {@code pkg} (dotted) are tier-4 seeds. */
+    static boolean isEventPackage(String pkg) {
+        return pkg.equals("com.hypixel.hytale.server.core.event")
+            || pkg.startsWith("com.hypixel.hytale.server.core.event.")
+            || pkg.equals("com.hypixel.hytale.event")
+            || pkg.startsWith("com.hypixel.hytale.event.");
+    }
+
     private void buildLookupMaps(List<ClassIndexer.ClassEntry> classes) {
         for (ClassIndexer.ClassEntry entry : classes) {
             fqcnToEntry.put(entry.fqcn, entry);
@@ -280,49 +288,99 @@ public class SurfaceClassifier {
     }
 
     /**
-     * Build a map of FQCN -> imported FQCNs by reading import statements from decompiled source.
-     * This allows accurate disambiguation of simple type names.
+     * Load the class index, from class-index.bin when Phase 1 wrote it together
+     * with the JSON (no parsing; each distinct string is decoded once), otherwise
+     * from class-index.json. The two belong together when their headers name the
+     * same JAR hash and generation time; file times are not trusted, since copies
+     * and checkouts do not keep them.
+     *
+     * Reports the heap the loaded index retains, measured after full collections
+     * before and after the load.
      */
-    private void buildImportMap(List<ClassIndexer.ClassEntry> classes, Path decompiledDir) {
-        int loaded = 0;
-        for (ClassIndexer.ClassEntry entry : classes) {
-            if (entry.source_file == null) continue;
-            // source_file is relative to artifacts/ parent, like "decompiled/com/hypixel/..."
-            // The decompiled dir is artifacts/decompiled, so strip the "decompiled/" prefix
-            String relPath = entry.source_file;
-            if (relPath.startsWith("decompiled/")) {
-                relPath = relPath.substring("decompiled/".length());
-            }
-            Path sourceFile = decompiledDir.resolve(relPath);
-            if (!Files.isRegularFile(sourceFile)) continue;
-
-            Set<String> imports = new HashSet<>();
-            try {
-                List<String> lines = Files.readAllLines(sourceFile);
-                for (String line : lines) {
-                    String trimmed = line.trim();
-                    if (trimmed.startsWith("import ") && trimmed.endsWith(";")) {
-                        String importStr = trimmed.substring(7, trimmed.length() - 1).trim();
-                        if (importStr.startsWith("static ")) continue; // skip static imports
-                        imports.add(importStr);
-                    }
-                    // Stop at class/interface/enum declaration (optimization)
-                    if (trimmed.startsWith("public ") || trimmed.startsWith("abstract ")
-                            || trimmed.startsWith("final ") || trimmed.startsWith("sealed ")
-                            || trimmed.startsWith("class ") || trimmed.startsWith("interface ")
-                            || trimmed.startsWith("enum ") || trimmed.startsWith("record ")) {
-                        break;
-                    }
+    private static ClassIndexer.ClassIndex loadIndex(Path indexPath) throws IOException {
+        long heapBefore = usedHeapAfterGc();
+        long start = System.currentTimeMillis();
+        Path binaryPath = BinaryClassIndex.pathFor(indexPath);
+        if (Files.isRegularFile(binaryPath)) {
+            ClassIndexer.ClassIndex header = ClassIndexer.readHeader(indexPath);
+            try (BinaryClassIndex binary = BinaryClassIndex.open(binaryPath)) {
+                if (Objects.equals(binary.jarHash(), header.jar_hash)
+                        && Objects.equals(binary.generatedAt(), header.generated_at)) {
+                    System.out.println("Loading " + binaryPath.getFileName() + "...");
+                    ClassIndexer.ClassIndex index = new ClassIndexer.ClassIndex();
+                    index.jar_hash = binary.jarHash();
+                    index.generated_at = binary.generatedAt();
+                    index.classes = binary.types();
+                    System.out.println("Loaded " + index.classes.size() + " types in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                    System.out.printf("Class index retains %.1f MB of heap%n", (usedHeapAfterGc() - heapBefore) / 1e6);
+                    return index;
                 }
-            } catch (IOException e) {
-                // Skip files that can't be read
-                continue;
             }
+            System.out.println("Ignoring " + binaryPath.getFileName() + ": its JAR hash or generation time differs from "
+                + indexPath.getFileName());
+        }
+
+        System.out.println("Loading " + indexPath.getFileName() + "...");
+        PooledLoad load = readPooled(indexPath);
+        System.out.println("Loaded " + load.index().classes.size() + " types in "
+            + (System.currentTimeMillis() - start) + " ms (" + load.strings() + " distinct strings, "
+            + load.lists() + " distinct lists)");
+        // Measured once the pool's lookup maps are garbage; the duplicates pooling dropped are
+        // what a plain load would retain on top
+        long retained = usedHeapAfterGc() - heapBefore;
+        System.out.printf("Class index retains %.1f MB of heap, about %.1f MB without pooling"
+                + " (%d duplicate strings and lists shared)%n",
+            retained / 1e6, (retained + load.duplicateBytes()) / 1e6, load.duplicates());
+        return load.index();
+    }
 
-            importMap.put(entry.fqcn, imports);
+    /** A class index read from JSON through a {@link ModelPool}, and what the pool shared. */
+    private record PooledLoad(ClassIndexer.ClassIndex index, int strings, int lists,
+                              long duplicates, long duplicateBytes) {}
+
+    private static PooledLoad readPooled(Path indexPath) throws IOException {
+        // Repeated names, types and modifier lists are loaded as shared instances
+        ModelPool pool = new ModelPool();
+        Gson gson = pool.register(new GsonBuilder()).create();
+        ClassIndexer.ClassIndex index;
+        try (Reader reader = Files.newBufferedReader(indexPath)) {
+            index = gson.fromJson(reader, ClassIndexer.ClassIndex.class);
+        }
+        return new PooledLoad(index, pool.stringCount(), pool.listCount(), pool.duplicateCount(), pool.duplicateBytes());
+    }
+
+    /** Heap in use after a full collection. */
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Build a map of FQCN -> imported FQCNs from the imports recorded in the index.
+     * This allows accurate disambiguation of simple type names.
+     */
+    private void buildImportMap(List<ClassIndexer.ClassEntry> classes) {
+        int loaded = 0;
+        for (ClassIndexer.ClassEntry entry : classes) {
+            if (entry.imports == null) continue;
+            importMap.put(entry.fqcn, new HashSet<>(entry.imports));
             loaded++;
         }
-        System.out.println("Built import map: " + loaded + " source files scanned");
+        System.out.println("Built import map: " + loaded + " compilation units");
+    }
+
+    /**
+     * Add the types of one member element: its exact references when the index
+     * has them, else the simple names in its declared type.
+     */
+    private static void collectTypes(String type, List<String> refs, Set<String> fqcns, Set<String> simpleNames) {
+        if (refs != null) {
+            fqcns.addAll(refs);
+        } else {
+            extractTypeNames(type, simpleNames);
+        }
     }
 
     private void expand(Map<String, String> allSeeds) {
@@ -372,25 +430,34 @@ public class SurfaceClassifier {
             st.category = categorize(item.fqcn);
             apiSurface.put(item.fqcn, st);
 
-            // Expand: extract all referenced types from public/protected members
+            // Expand: collect all referenced types from public/protected members. Exact
+            // references recorded in the index are used as they are; only elements
+            // without them fall back to resolving simple names
+            Set<String> referencedFqcns = new LinkedHashSet<>();
             Set<String> referencedSimpleNames = new LinkedHashSet<>();
 
             // Superclass
-            if (entry.superclass != null && !entry.superclass.equals("java.lang.Object")
+            if (entry.superclass_ref != null) {
+                referencedFqcns.add(entry.superclass_ref);
+            } else if (entry.superclass != null && !entry.superclass.equals("java.lang.Object")
                     && !entry.superclass.equals("java.lang.Enum")
                     && !entry.superclass.equals("java.lang.Record")) {
                 extractTypeNames(entry.superclass, referencedSimpleNames);
             }
 
             // Interfaces
-            if (entry.interfaces != null) {
+            if (entry.interface_refs != null) {
+                referencedFqcns.addAll(entry.interface_refs);
+            } else if (entry.interfaces != null) {
                 for (String iface : entry.interfaces) {
                     extractTypeNames(iface, referencedSimpleNames);
                 }
             }
 
             // Annotations
-            if (entry.annotations != null) {
+            if (entry.annotation_refs != null) {
+                referencedFqcns.addAll(entry.annotation_refs);
+            } else if (entry.annotations != null) {
                 for (String ann : entry.annotations) {
                     referencedSimpleNames.add(ann);
                 }
@@ -400,13 +467,15 @@ public class SurfaceClassifier {
             if (entry.methods != null) {
                 for (ClassIndexer.MethodEntry method : entry.methods) {
                     if (!isPublicOrProtected(method.modifiers)) continue;
-                    extractTypeNames(method.return_type, referencedSimpleNames);
+                    collectTypes(method.return_type, method.return_refs, referencedFqcns, referencedSimpleNames);
                     if (method.parameters != null) {
                         for (ClassIndexer.ParameterEntry param : method.parameters) {
-                            extractTypeNames(param.type, referencedSimpleNames);
+                            collectTypes(param.type, param.type_refs, referencedFqcns, referencedSimpleNames);
                         }
                     }
-                    if (method.throws_ != null) {
+                    if (method.throws_refs != null) {
+                        referencedFqcns.addAll(method.throws_refs);
+                    } else if (method.throws_ != null) {
                         for (String thrown : method.throws_) {
                             extractTypeNames(thrown, referencedSimpleNames);
                         }
@@ -418,7 +487,17 @@ public class SurfaceClassifier {
             if (entry.fields != null) {
                 for (ClassIndexer.FieldEntry field : entry.fields) {
                     if (!isPublicOrProtected(field.modifiers)) continue;
-                    extractTypeNames(field.type, referencedSimpleNames);
+                    collectTypes(field.type, field.type_refs, referencedFqcns, referencedSimpleNames);
+                }
+            }
+
+            // Exact references: direct lookup, no resolution
+            for (String referencedFqcn : referencedFqcns) {
+                if (fqcnToEntry.containsKey(referencedFqcn) && !visited.contains(referencedFqcn)) {
+                    exactEdges++;
+                    List<String> newPath = new ArrayList<>(item.expansionPath);
+                    newPath.add(item.fqcn);
+                    frontier.add(new ExpansionItem(referencedFqcn, "expansion", newPath));
                 }
             }
 
@@ -427,6 +506,7 @@ public class SurfaceClassifier {
                 List<String> resolved = resolveSimpleName(simpleName, entry);
                 for (String resolvedFqcn : resolved) {
                     if (!visited.contains(resolvedFqcn)) {
+                        resolvedEdges++;
                         List<String> newPath = new ArrayList<>(item.expansionPath);
                         newPath.add(item.fqcn);
                         String reason = item.expansionPath.isEmpty() ? "expansion" : "expansion";
@@ -660,7 +740,10 @@ public class SurfaceClassifier {
     private Set<String> getEffectiveImports(ClassIndexer.ClassEntry context) {
         // Inner classes share the source file with their outermost class.
         // The import map is keyed by FQCN, so for inner classes we need
-        // to look up the outermost enclosing class.
+        // to look up the outermost enclosing class, recorded by Phase 1.
+        if (context.outer_class != null) {
+            return importMap.get(context.outer_class);
+        }
         String lookupFqcn = context.fqcn;
         if (isInnerClass(lookupFqcn)) {
             // Walk up to the outermost class
@@ -701,14 +784,14 @@ public class SurfaceClassifier {
         return String.join(".", Arrays.copyOf(parts, depth));
     }
 
-    private static boolean isExternal(String fqcn) {
+    static boolean isExternal(String fqcn) {
         for (String prefix : EXTERNAL_PREFIXES) {
             if (fqcn.startsWith(prefix)) return true;
         }
         return false;
     }
 
-    private static boolean isExcludedPackage(String fqcn) {
+    static boolean isExcludedPackage(String fqcn) {
         for (String prefix : EXCLUDED_PACKAGES) {
             if (fqcn.startsWith(prefix)) return true;
         }
@@ -0,0 +1,253 @@
+package com.hytale.indexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.classfile.Annotation;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodSignature;
+import java.lang.classfile.Signature;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.constant.ClassDesc;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Approximates the Phase 2 API surface straight from class files, before anything
+ * is decompiled.
+ *
+ * Starts from the {@link SurfaceClassifier} seed tiers and follows the same edges
+ * its expansion follows — superclass, interfaces, class annotations, and the
+ * types in public/protected field, method and throws signatures — but reads them
+ * from descriptors and Signature attributes, so names are exact rather than
+ * resolved from simple names. Excluded packages stop the expansion as they do in
+ * the classifier.
+ *
+ * Because the classifier's simple-name resolution can over-approximate, the
+ * result is widened by a margin: that many further hops along the same edges,
+ * through excluded packages too. Only the class groups reached this way need
+ * decompiling for the doc-generation workflow.
+ */
+final class SurfaceReachability {
+
+    private final Map<String, ClassModel> classes = new HashMap<>();
+    private final Map<String, Set<String>> edges = new HashMap<>();
+
+    private SurfaceReachability() {
+    }
+
+    /**
+     * Parse every class the decompiler would include.
+     */
+    static SurfaceReachability load(JarFile jf) throws IOException {
+        SurfaceReachability reachability = new SurfaceReachability();
+        for (List<JarEntry> group : Decompiler.groupClasses(jf).values()) {
+            for (JarEntry entry : group) {
+                try (InputStream is = jf.getInputStream(entry)) {
+                    ClassModel model = ClassFile.of().parse(is.readAllBytes());
+                    reachability.classes.put(model.thisClass().asInternalName(), model);
+                }
+            }
+        }
+        return reachability;
+    }
+
+    /**
+     * @param margin  Extra hops to follow beyond the surface
+     * @return top-level class groups (internal names) to decompile
+     */
+    Set<String> reachableGroups(int margin) {
+        // Map seed FQCNs ("a.b.Outer.Inner") to internal names ("a/b/Outer$Inner")
+        Map<String, String> byFqcn = new HashMap<>();
+        for (String name : classes.keySet()) {
+            byFqcn.put(fqcn(name), name);
+        }
+        Deque<String> frontier = new ArrayDeque<>();
+        int seeds = 0;
+        for (String seed : SurfaceClassifier.seedTypes().keySet()) {
+            String name = byFqcn.get(seed);
+            if (name != null) {
+                frontier.add(name);
+                seeds++;
+            }
+        }
+        for (String name : classes.keySet()) {
+            int slash = name.lastIndexOf('/');
+            if (slash > 0 && SurfaceClassifier.isEventPackage(name.substring(0, slash).replace('/', '.'))) {
+                frontier.add(name);
+                seeds++;
+            }
+        }
+
+        // Surface closure: excluded packages are reached but not expanded
+        Set<String> surface = new LinkedHashSet<>();
+        Set<String> reached = new LinkedHashSet<>();
+        while (!frontier.isEmpty()) {
+            String name = frontier.poll();
+            if (!reached.add(name)) {
+                continue;
+            }
+            if (SurfaceClassifier.isExcludedPackage(fqcn(name))) {
+                continue;
+            }
+            surface.add(name);
+            frontier.addAll(edges(name));
+        }
+
+        // Margin: further hops from everything reached, excluded packages included
+        Set<String> level = new LinkedHashSet<>(reached);
+        for (int hop = 0; hop < margin && !level.isEmpty(); hop++) {
+            Set<String> next = new LinkedHashSet<>();
+            for (String name : level) {
+                for (String ref : edges(name)) {
+                    if (reached.add(ref)) {
+                        next.add(ref);
+                    }
+                }
+            }
+            level = next;
+        }
+
+        Set<String> groups = new TreeSet<>();
+        for (String name : reached) {
+            groups.add(Decompiler.groupOf(name + ".class"));
+        }
+        System.out.println("Surface reachability: " + seeds + " seeds, " + surface.size() + " surface classes, "
+            + reached.size() + " classes within a margin of " + margin + " -> "
+            + groups.size() + " class groups to decompile");
+        return groups;
+    }
+
+    /** Classes of the JAR referenced by {@code name}'s API, mirroring the classifier's expansion. */
+    private Set<String> edges(String name) {
+        Set<String> cached = edges.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        ClassModel cm = classes.get(name);
+        Set<String> refs = new LinkedHashSet<>();
+        if (cm != null) {
+            var classSig = cm.findAttribute(Attributes.signature()).map(s -> s.asClassSignature());
+            if (classSig.isPresent()) {
+                collect(classSig.get().superclassSignature(), refs);
+                for (Signature itf : classSig.get().superinterfaceSignatures()) {
+                    collect(itf, refs);
+                }
+            } else {
+                cm.superclass().ifPresent(s -> refs.add(s.asInternalName()));
+                for (ClassEntry itf : cm.interfaces()) {
+                    refs.add(itf.asInternalName());
+                }
+            }
+            cm.findAttribute(Attributes.runtimeVisibleAnnotations())
+                .ifPresent(a -> collectAnnotations(a.annotations(), refs));
+            cm.findAttribute(Attributes.runtimeInvisibleAnnotations())
+                .ifPresent(a -> collectAnnotations(a.annotations(), refs));
+
+            boolean isInterface = (cm.flags().flagsMask() & ClassFile.ACC_INTERFACE) != 0;
+            for (MethodModel m : cm.methods()) {
+                int flags = m.flags().flagsMask();
+                if (!isApi(flags, isInterface) || (flags & (ClassFile.ACC_SYNTHETIC | ClassFile.ACC_BRIDGE)) != 0) {
+                    continue;
+                }
+                MethodSignature sig = m.findAttribute(Attributes.signature())
+                    .map(s -> s.asMethodSignature()).orElse(null);
+                if (sig != null) {
+                    collect(sig.result(), refs);
+                    for (Signature arg : sig.arguments()) {
+                        collect(arg, refs);
+                    }
+                    for (Signature thrown : sig.throwableSignatures()) {
+                        collect(thrown, refs);
+                    }
+                } else {
+                    collect(m.methodTypeSymbol().returnType(), refs);
+                    for (ClassDesc param : m.methodTypeSymbol().parameterList()) {
+                        collect(param, refs);
+                    }
+                }
+                m.findAttribute(Attributes.exceptions()).ifPresent(e -> {
+                    for (ClassEntry thrown : e.exceptions()) {
+                        refs.add(thrown.asInternalName());
+                    }
+                });
+            }
+            for (FieldModel f : cm.fields()) {
+                int flags = f.flags().flagsMask();
+                if (!isApi(flags, isInterface) || (flags & ClassFile.ACC_SYNTHETIC) != 0) {
+                    continue;
+                }
+                var sig = f.findAttribute(Attributes.signature()).map(s -> s.asTypeSignature());
+                if (sig.isPresent()) {
+                    collect(sig.get(), refs);
+                } else {
+                    collect(f.fieldTypeSymbol(), refs);
+                }
+            }
+        }
+        // Nested classes live in their outer class's source file
+        for (String ref : new ArrayList<>(refs)) {
+            int dollar = ref.indexOf('$', ref.lastIndexOf('/') + 1);
+            if (dollar > 0) {
+                refs.add(ref.substring(0, dollar));
+            }
+        }
+        refs.retainAll(classes.keySet());
+        refs.remove(name);
+        edges.put(name, refs);
+        return refs;
+    }
+
+    private static boolean isApi(int flags, boolean inInterface) {
+        return (flags & (ClassFile.ACC_PUBLIC | ClassFile.ACC_PROTECTED)) != 0
+            || (inInterface && (flags & ClassFile.ACC_PRIVATE) == 0);
+    }
+
+    private static void collectAnnotations(List<Annotation> annotations, Set<String> out) {
+        for (Annotation annotation : annotations) {
+            collect(annotation.classSymbol(), out);
+        }
+    }
+
+    private static void collect(ClassDesc desc, Set<String> out) {
+        while (desc.isArray()) {
+            desc = desc.componentType();
+        }
+        if (!desc.isPrimitive()) {
+            String d = desc.descriptorString();
+            out.add(d.substring(1, d.length() - 1));
+        }
+    }
+
+    private static void collect(Signature sig, Set<String> out) {
+        if (sig instanceof Signature.ArrayTypeSig array) {
+            collect(array.componentSignature(), out);
+        } else if (sig instanceof Signature.ClassTypeSig cls) {
+            String d = cls.classDesc().descriptorString();
+            out.add(d.substring(1, d.length() - 1));
+            cls.outerType().ifPresent(outer -> collect(outer, out));
+            for (Signature.TypeArg arg : cls.typeArgs()) {
+                if (arg instanceof Signature.TypeArg.Bounded bounded) {
+                    collect(bounded.boundType(), out);
+                }
+            }
+        }
+    }
+
+    /** Source-style FQCN as the class index spells it: "a/b/Outer$Inner" -> "a.b.Outer.Inner". */
+    private static String fqcn(String internalName) {
+        return internalName.replace('/', '.').replace('$', '.');
+    }
+}
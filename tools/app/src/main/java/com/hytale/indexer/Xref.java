@@ -0,0 +1,238 @@
+package com.hytale.indexer;
+
+import com.google.gson.GsonBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Phase 3 cross-reference lookups over the bytecode artifacts Phase 1 writes.
+ *
+ * Usage: xref <artifacts-dir> <command> <argument>
+ *
+ * Every answer comes from the loaded artifact; the JAR is never read, and
+ * decompiled sources only to slice out the declarations {@code source} prints.
+ */
+public class Xref {
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            usage();
+        }
+        Path artifactsDir = Path.of(args[0]).toAbsolutePath();
+        String command = args[1];
+        String argument = args[2];
+
+        try {
+            switch (command) {
+                case "callers", "constructors", "callees" -> callGraph(artifactsDir, command, argument);
+                case "component", "field" -> componentAccess(artifactsDir, command, argument);
+                case "strings" -> strings(artifactsDir, argument);
+                case "type" -> type(artifactsDir, argument);
+                case "package" -> packages(artifactsDir, argument);
+                case "source" -> source(artifactsDir, argument);
+                default -> usage();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            System.err.println("FATAL: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: xref <artifacts-dir> <command> <argument>");
+        System.err.println("  callers <Type.method>     Methods calling a method on the type or its subtypes (* wildcards in the name)");
+        System.err.println("  constructors <Type>       Methods instantiating a type (new or constructor reference)");
+        System.err.println("  callees <Type.method>     Methods called by a method (* wildcards in the name)");
+        System.err.println("  component <Type>          Methods reading, writing or removing an ECS component, or accessing its fields");
+        System.err.println("  field <Type.field>        Methods reading or writing a field (* wildcards in the name)");
+        System.err.println("  strings <literal>         Methods and classes using a string constant (exact, prefix* or *substring*)");
+        System.err.println("  type <FQCN>               A type's class-index entry, read from class-index.bin");
+        System.err.println("  package <pkg[,pkg...]>    Types in packages and their subpackages, read from the class-index/ shards");
+        System.err.println("  source <FQCN[#member]>    Source of a type, or of its fields and methods with that name");
+        System.err.println("  Types are simple names (matching every class with that name) or FQCNs.");
+        System.exit(1);
+    }
+
+    private static void callGraph(Path artifactsDir, String command, String argument) throws Exception {
+        Path path = artifactsDir.resolve("call-graph.bin");
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Call graph not found: " + path + " (run Phase 1 first)");
+        }
+        long start = System.nanoTime();
+        CallGraph graph = CallGraph.load(path);
+        long loaded = System.nanoTime();
+        List<CallGraph.Edge> edges = switch (command) {
+            case "callers" -> graph.callers(argument);
+            case "constructors" -> graph.constructors(argument);
+            default -> graph.callees(argument);
+        };
+
+        TreeSet<String> lines = new TreeSet<>();
+        for (CallGraph.Edge e : edges) {
+            lines.add(PackedEdges.display(e.caller()) + "  -[" + e.kind().name().toLowerCase(Locale.ROOT) + "]->  "
+                + PackedEdges.display(e.callee()));
+        }
+        lines.forEach(System.out::println);
+        System.err.printf("%d edges (call graph of %d symbols, %d edges loaded in %.0f ms, queried in %.1f ms)%n",
+            lines.size(), graph.symbolCount(), graph.edgeCount(),
+            (loaded - start) / 1e6, (System.nanoTime() - loaded) / 1e6);
+    }
+
+    private static void componentAccess(Path artifactsDir, String command, String argument) throws Exception {
+        Path path = artifactsDir.resolve("component-access.bin");
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Component access index not found: " + path + " (run Phase 1 first)");
+        }
+        long start = System.nanoTime();
+        ComponentAccessIndex index = ComponentAccessIndex.load(path);
+        long loaded = System.nanoTime();
+        List<ComponentAccessIndex.Entry> entries = command.equals("component")
+            ? index.component(argument)
+            : index.field(argument);
+
+        TreeSet<String> lines = new TreeSet<>();
+        for (ComponentAccessIndex.Entry e : entries) {
+            lines.add(String.format("%-10s %s  (%s)", e.access().name().toLowerCase(Locale.ROOT),
+                PackedEdges.display(e.method()), PackedEdges.display(e.key())));
+        }
+        lines.forEach(System.out::println);
+        System.err.printf("%d accesses (index of %d keys, %d entries loaded in %.0f ms, queried in %.1f ms)%n",
+            lines.size(), index.keyCount(), index.entryCount(),
+            (loaded - start) / 1e6, (System.nanoTime() - loaded) / 1e6);
+    }
+
+    private static void strings(Path artifactsDir, String pattern) throws Exception {
+        Path path = artifactsDir.resolve("string-constants.bin");
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("String constant index not found: " + path + " (run Phase 1 first)");
+        }
+        long start = System.nanoTime();
+        StringConstantIndex index = StringConstantIndex.load(path);
+        long loaded = System.nanoTime();
+        List<StringConstantIndex.Use> uses = index.find(pattern);
+
+        TreeSet<String> lines = new TreeSet<>();
+        for (StringConstantIndex.Use u : uses) {
+            lines.add(quote(u.value()) + "  " + PackedEdges.display(u.owner()));
+        }
+        lines.forEach(System.out::println);
+        System.err.printf("%d uses (index of %d strings, %d owners mapped in %.0f ms, queried in %.1f ms)%n",
+            lines.size(), index.stringCount(), index.ownerCount(),
+            (loaded - start) / 1e6, (System.nanoTime() - loaded) / 1e6);
+    }
+
+    /** A string constant as a Java literal, so whitespace and control characters stay visible. */
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\t' -> sb.append("\\t");
+                case '\r' -> sb.append("\\r");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void type(Path artifactsDir, String fqcn) throws Exception {
+        Path path = artifactsDir.resolve("class-index.bin");
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Binary class index not found: " + path + " (run Phase 1 first)");
+        }
+        long start = System.nanoTime();
+        try (BinaryClassIndex index = BinaryClassIndex.open(path)) {
+            long opened = System.nanoTime();
+            int id = index.find(fqcn);
+            if (id < 0) {
+                throw new IllegalArgumentException("Type not in the class index: " + fqcn + " (expected an FQCN)");
+            }
+            ClassIndexer.ClassEntry entry = index.type(id);
+            System.out.println(new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(entry));
+            System.err.printf("(index of %d types opened in %.1f ms, type read in %.1f ms)%n",
+                index.typeCount(), (opened - start) / 1e6, (System.nanoTime() - opened) / 1e6);
+        }
+    }
+
+    private static void packages(Path artifactsDir, String argument) throws Exception {
+        Path dir = ShardedClassIndex.dirFor(artifactsDir.resolve("class-index.json"));
+        ShardedClassIndex.Manifest manifest = ShardedClassIndex.loadManifest(dir);
+        if (manifest == null) {
+            throw new IllegalArgumentException("Sharded class index not found: " + dir
+                + " (run Phase 1 with --sharded-index)");
+        }
+        List<String> packages = Arrays.asList(argument.split(","));
+        long start = System.nanoTime();
+        ClassIndexer.ClassIndex index = ShardedClassIndex.load(dir, packages);
+        long loaded = System.nanoTime();
+
+        for (ClassIndexer.ClassEntry c : index.classes) {
+            System.out.printf("%-10s %s%n", c.kind, c.fqcn);
+        }
+        System.err.printf("%d types (%d of %d shards loaded in %.0f ms)%n",
+            index.classes.size(), ShardedClassIndex.shardsFor(manifest, packages).size(), manifest.shards.size(),
+            (loaded - start) / 1e6);
+    }
+
+    private static void source(Path artifactsDir, String argument) throws Exception {
+        Path path = artifactsDir.resolve("class-index.bin");
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Binary class index not found: " + path + " (run Phase 1 first)");
+        }
+        int hash = argument.indexOf('#');
+        String fqcn = hash < 0 ? argument : argument.substring(0, hash);
+        String member = hash < 0 ? null : argument.substring(hash + 1);
+
+        try (BinaryClassIndex index = BinaryClassIndex.open(path);
+             SourceSnippets snippets = new SourceSnippets(artifactsDir)) {
+            int id = index.find(fqcn);
+            if (id < 0) {
+                throw new IllegalArgumentException("Type not in the class index: " + fqcn + " (expected an FQCN)");
+            }
+            ClassIndexer.ClassEntry type = index.type(id);
+            if (type.source_range == null) {
+                throw new IllegalArgumentException(fqcn + " has no source range (index built with --from-bytecode?)");
+            }
+            long start = System.nanoTime();
+            List<String> found = new ArrayList<>();
+            if (member == null) {
+                found.add(snippets.of(type));
+            } else {
+                for (ClassIndexer.FieldEntry f : type.fields) {
+                    if (f.name.equals(member)) {
+                        found.add(snippets.of(type, f));
+                    }
+                }
+                for (ClassIndexer.MethodEntry m : type.methods) {
+                    if (m.name.equals(member)) {
+                        found.add(snippets.of(type, m));
+                    }
+                }
+                if (found.isEmpty()) {
+                    throw new IllegalArgumentException("No field or method named " + member + " in " + fqcn);
+                }
+            }
+            System.out.println(String.join("\n\n", found));
+            System.err.printf("(%d declarations from %s sliced in %.1f ms)%n",
+                found.size(), type.source_file, (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
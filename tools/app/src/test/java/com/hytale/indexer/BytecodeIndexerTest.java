@@ -0,0 +1,165 @@
+package com.hytale.indexer;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The class index built from bytecode ({@link BytecodeIndexer}) against the one
+ * parsed from source with type references attached from the same bytecode
+ * ({@link ClassIndexer}), for a source written the way Vineflower prints it.
+ */
+class BytecodeIndexerTest {
+
+    private static final String SOURCE_FILE = "com/hypixel/hytale/sample/Sample.java";
+
+    private static final String SOURCE = """
+        package com.hypixel.hytale.sample;
+
+        import java.io.IOException;
+        import java.util.List;
+        import java.util.Map;
+
+        @Deprecated
+        public abstract class Sample<T extends Comparable<T>> implements Comparable<Sample<T>> {
+           public static final int LIMIT = 3;
+           protected final List<String> names;
+           private transient Map<String, List<T>> byName;
+
+           protected Sample(List<String> names) {
+              this.names = names;
+           }
+
+           public abstract T first() throws IOException;
+
+           public void put(List<String> values) {
+           }
+
+           public void put(Map<String, T> values) {
+           }
+
+           public static int count(String... parts) {
+              return parts.length;
+           }
+
+           protected synchronized long total(long base, int step) {
+              return base + step;
+           }
+
+           public int compareTo(Sample<T> other) {
+              return 0;
+           }
+
+           public static final class Node {
+              public final String key;
+
+              public Node(String key) {
+                 this.key = key;
+              }
+
+              public String key() {
+                 return this.key;
+              }
+           }
+
+           public interface Listener {
+              void changed(Sample.Node node);
+
+              default boolean enabled() {
+                 return true;
+              }
+           }
+
+           public static class Odd$Name {
+           }
+
+           public static enum Mode {
+              ON,
+              OFF;
+
+              public boolean on() {
+                 return this == ON;
+              }
+           }
+        }
+        """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void bytecodeIndexMatchesParsedIndex() throws IOException {
+        Path sources = dir.resolve("artifacts/decompiled");
+        Path source = sources.resolve(SOURCE_FILE);
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, SOURCE);
+        Path jar = compile(source);
+
+        Path fromBytecode = dir.resolve("artifacts/from-bytecode.json");
+        new BytecodeIndexer().index(jar, fromBytecode, "sha256:test");
+        Path parsed = dir.resolve("artifacts/parsed.json");
+        new ClassIndexer(jar, ClassIndexer.ParseMode.FULL, null).index(sources, parsed, "sha256:test");
+
+        List<ClassIndexer.ClassEntry> expected = comparable(parsed);
+        List<ClassIndexer.ClassEntry> actual = comparable(fromBytecode);
+        assertEquals(5, expected.size());
+        Gson gson = new Gson();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(gson.toJson(expected.get(i)), gson.toJson(actual.get(i)), expected.get(i).fqcn);
+        }
+    }
+
+    /** Compile {@code source} with parameter names kept, and pack its classes into a JAR. */
+    private Path compile(Path source) throws IOException {
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes);
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        int status = javac.run(null, null, null, "-parameters", "-g", "-d", classes.toString(), source.toString());
+        assertEquals(0, status, "javac exit status");
+
+        Path jar = dir.resolve("sample.jar");
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(classes)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path file : files) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * The index's classes without what only a parse can know: source ranges and imports.
+     * Both indexers already list classes by FQCN and nested type names by name.
+     */
+    private static List<ClassIndexer.ClassEntry> comparable(Path indexPath) throws IOException {
+        ClassIndexer.ClassIndex index;
+        try (Reader reader = Files.newBufferedReader(indexPath)) {
+            index = new Gson().fromJson(reader, ClassIndexer.ClassIndex.class);
+        }
+        for (ClassIndexer.ClassEntry c : index.classes) {
+            c.source_range = null;
+            c.imports = null;
+            c.fields.forEach(f -> f.source_range = null);
+            c.methods.forEach(m -> m.source_range = null);
+        }
+        return index.classes;
+    }
+}
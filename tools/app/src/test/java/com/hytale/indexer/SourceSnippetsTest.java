@@ -0,0 +1,122 @@
+package com.hytale.indexer;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Source ranges recorded by {@link ClassIndexer} and sliced by {@link SourceSnippets},
+ * for a file with non-ASCII text and CRLF line endings, in both parse modes.
+ */
+class SourceSnippetsTest {
+
+    private static final String GREET = String.join("\r\n",
+        "@Deprecated",
+        "    public String greet(String name) {",
+        "        // Grüße ✓ 😀",
+        "        if (name.isEmpty()) { return \"{}\"; }",
+        "        return \"héllo \" + name;",
+        "    }");
+
+    private static final String LIMIT = "private static final int LIMIT = 3;";
+
+    private static final String AFTER = String.join("\r\n",
+        "int after() {",
+        "        return LIMIT * 2;",
+        "    }");
+
+    private static final String SOURCE = String.join("\r\n",
+        "package a.b;",
+        "",
+        "/** Sämple with non-ASCII text before every member. */",
+        "public class Sample {",
+        "    // ünïcödé",
+        "    " + GREET,
+        "",
+        "    " + LIMIT,
+        "",
+        "    " + AFTER,
+        "}",
+        "");
+
+    @TempDir
+    Path artifacts;
+
+    @Test
+    void fullParseSlicesDeclarations() throws IOException {
+        assertSlices(ClassIndexer.ParseMode.FULL);
+    }
+
+    @Test
+    void signatureParseSlicesDeclarations() throws IOException {
+        assertSlices(ClassIndexer.ParseMode.SIGNATURES);
+    }
+
+    @Test
+    void modesRecordTheSameRanges() throws IOException {
+        Gson gson = new Gson();
+        ClassIndexer.ClassEntry full = index(ClassIndexer.ParseMode.FULL);
+        ClassIndexer.ClassEntry signatures = index(ClassIndexer.ParseMode.SIGNATURES);
+        assertEquals(gson.toJson(full.source_range), gson.toJson(signatures.source_range));
+        assertEquals(gson.toJson(full.fields), gson.toJson(signatures.fields));
+        assertEquals(gson.toJson(full.methods), gson.toJson(signatures.methods));
+    }
+
+    private void assertSlices(ClassIndexer.ParseMode mode) throws IOException {
+        ClassIndexer.ClassEntry sample = index(mode);
+        try (SourceSnippets snippets = new SourceSnippets(artifacts)) {
+            String type = snippets.of(sample);
+            assertEquals(SOURCE.substring(SOURCE.indexOf("public class"), SOURCE.lastIndexOf('}') + 1), type);
+
+            ClassIndexer.MethodEntry greet = method(sample, "greet");
+            assertEquals(GREET, snippets.of(sample, greet));
+            assertEquals(6, greet.source_range.begin_line);
+            assertEquals(11, greet.source_range.end_line);
+
+            // Members after a block the signature parse elides
+            ClassIndexer.FieldEntry limit = sample.fields.get(0);
+            assertEquals(LIMIT, snippets.of(sample, limit));
+            assertEquals(13, limit.source_range.begin_line);
+
+            ClassIndexer.MethodEntry after = method(sample, "after");
+            assertEquals(AFTER, snippets.of(sample, after));
+            assertEquals(15, after.source_range.begin_line);
+            assertEquals(17, after.source_range.end_line);
+
+            // Byte offsets, not character offsets, into the UTF-8 file
+            byte[] bytes = SOURCE.getBytes(StandardCharsets.UTF_8);
+            String prefix = SOURCE.substring(0, SOURCE.indexOf(AFTER));
+            assertEquals(prefix.getBytes(StandardCharsets.UTF_8).length, after.source_range.begin_byte);
+            assertEquals(bytes.length - "\r\n}\r\n".length(), after.source_range.end_byte);
+        }
+    }
+
+    private ClassIndexer.ClassEntry index(ClassIndexer.ParseMode mode) throws IOException {
+        Path file = artifacts.resolve("decompiled/a/b/Sample.java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, SOURCE.getBytes(StandardCharsets.UTF_8));
+        Path output = artifacts.resolve("class-index-" + mode + ".json");
+        new ClassIndexer(null, mode, null).index(artifacts.resolve("decompiled"), output, null);
+        ClassIndexer.ClassIndex index;
+        try (Reader reader = Files.newBufferedReader(output)) {
+            index = new Gson().fromJson(reader, ClassIndexer.ClassIndex.class);
+        }
+        assertEquals(1, index.classes.size());
+        return index.classes.get(0);
+    }
+
+    private static ClassIndexer.MethodEntry method(ClassIndexer.ClassEntry type, String name) {
+        ClassIndexer.MethodEntry method = type.methods.stream().filter(m -> m.name.equals(name)).findFirst().orElse(null);
+        assertNotNull(method, name);
+        return method;
+    }
+}
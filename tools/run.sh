@@ -2,11 +2,44 @@
 #
 # Hytale JAR Indexer — Phase 1 CLI
 #
-# Usage: ./tools/run.sh input/HytaleServer.jar
+# Usage: ./tools/run.sh input/HytaleServer.jar [--no-cache] [--class-budget=SECONDS]
+#                       [--shards=N [--shard-heap=SIZE]] [--surface-only [--surface-margin=N]]
+#                       [--from-bytecode] [--parser-threads=N] [--fast-parse | --verify-fast-parse]
+#                       [--sharded-index]
 #
 # Decompiles the given JAR using Vineflower and produces:
 #   artifacts/decompiled/   - Full decompiled source tree
 #   artifacts/class-index.json - Structured class index
+#   artifacts/class-index.bin - The same index, memory-mapped for random access by FQCN
+#   artifacts/class-index/  - With --sharded-index: the same index as per-package NDJSON shards and a manifest
+#   artifacts/decompile-cache/ - Per-class-group source cache (reused across runs)
+#   artifacts/parse-cache/  - Per-source-file parse results (reused across runs)
+#   artifacts/decompile-quarantine.json - Classes over the per-class time budget (stubbed from bytecode)
+#   artifacts/jar-manifest.json - Entry/package hashes of the last completed run (changed packages are reported only)
+#   artifacts/decompile-costs.tsv - Estimated vs measured decompile time per class (cost model calibration)
+#   artifacts/call-graph.bin - Caller -> callee edges from bytecode (query with tools/xref.sh)
+#   artifacts/component-access.bin - ECS component and field accesses per method (query with tools/xref.sh)
+#   artifacts/string-constants.bin - String literals per method and class, memory-mapped (query with tools/xref.sh)
+#
+# With --shards=N, decompilation runs in N child JVMs (-Xmx per --shard-heap, default 2g);
+# a shard that crashes or runs out of memory is retried, then split until the bad class is isolated.
+#
+# With --surface-only, only classes reachable from the API surface seeds (plus --surface-margin
+# further hops, default 1) are decompiled; all other classes are indexed from bytecode stubs.
+#
+# --parser-threads=N sets the JavaParser thread count (default: every core when parsing the
+# sharded tree, a quarter of them while the in-process decompiler runs alongside).
+#
+# With --fast-parse, method and initializer bodies are dropped before JavaParser runs and comments
+# are not kept; the index is the same. --verify-fast-parse also parses every file in full
+# and reports (and keeps the full result for) any file where the two differ.
+#
+# With --sharded-index, class-index/ holds one NDJSON file per package subtree (split when over
+# 500 types) and manifest.json with each shard's hash, type count and size, so tools can load
+# only the packages they need (see tools/xref.sh package).
+#
+# With --from-bytecode, class-index.json is built from the class files in seconds and nothing
+# is decompiled (use tools/source.sh to view sources on demand).
 
 set -euo pipefail
 
@@ -19,6 +52,7 @@ if [ $# -lt 1 ]; then
 fi
 
 JAR_PATH="$1"
+shift
 
 # Resolve to absolute path
 if [[ ! "$JAR_PATH" = /* ]]; then
@@ -41,4 +75,4 @@ echo "Building indexer..."
 
 echo ""
 echo "Running indexer..."
-"$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :app:run --args="$JAR_PATH" --quiet
+"$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :app:run --args="$* $JAR_PATH" --quiet
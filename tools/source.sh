@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+#
+# Hytale On-Demand Source Server
+#
+# Usage: ./tools/source.sh serve input/HytaleServer.jar [--port=N] [--cache-mb=N] [--class-budget=SECONDS]
+#        ./tools/source.sh get <fqcn> [port]
+#
+# "serve" keeps the JAR open and decompiles single classes when they are first
+# requested. Sources are held in a size-bounded in-memory LRU and spilled to
+# artifacts/decompile-cache/ (shared with Phase 1 runs).
+# "get" prints the source of one class from a running server.
+
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+DEFAULT_PORT=7391
+
+if [ $# -lt 2 ]; then
+    echo "Usage: $0 serve <path-to-jar> [options]"
+    echo "       $0 get <fqcn> [port]"
+    exit 1
+fi
+
+COMMAND="$1"
+shift
+
+case "$COMMAND" in
+    serve)
+        JAR_PATH="$1"
+        shift
+        if [[ ! "$JAR_PATH" = /* ]]; then
+            JAR_PATH="$(pwd)/$JAR_PATH"
+        fi
+        if [ ! -f "$JAR_PATH" ]; then
+            echo "ERROR: File not found: $JAR_PATH"
+            exit 1
+        fi
+
+        echo "Building indexer..."
+        "$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :app:build -x test --quiet
+
+        echo ""
+        "$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :app:sourceServer --args="$* $JAR_PATH" --quiet
+        ;;
+    get)
+        FQCN="$1"
+        PORT="${2:-$DEFAULT_PORT}"
+        exec 3<>"/dev/tcp/127.0.0.1/$PORT"
+        printf '%s\n' "$FQCN" >&3
+        read -r STATUS REST <&3
+        if [ "$STATUS" != "OK" ]; then
+            echo "ERROR: $REST" >&2
+            exit 1
+        fi
+        head -c "$REST" <&3
+        exec 3>&-
+        ;;
+    *)
+        echo "ERROR: Unknown command: $COMMAND"
+        exit 1
+        ;;
+esac
@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+#
+# Hytale Bytecode Cross-Reference Lookups — Phase 3
+#
+# Usage: ./tools/xref.sh <command> <argument>
+#
+# Answers from the artifacts Phase 1 extracts from bytecode, without reading
+# decompiled sources:
+#   callers <Type.method>    Who calls a method, e.g. callers 'IEventBus.dispatch*'
+#   constructors <Type>      Who instantiates a type, e.g. constructors BreakBlockEvent
+#   callees <Type.method>    What a method calls
+#   component <Type>         Who reads, writes or removes an ECS component, e.g. component TransformComponent
+#   field <Type.field>       Who reads or writes a field
+#   strings <literal>        Who uses a string constant: exact, 'prefix*' or '*substring*'
+#   type <FQCN>              One type's class-index entry, read without loading the whole index
+#   package <pkg[,pkg...]>   Types in packages and their subpackages (needs run.sh --sharded-index)
+#   source <FQCN[#member]>   Source of a type, field or method, sliced from artifacts/decompiled/
+#
+# Types are simple names or FQCNs; method names may use * wildcards.
+
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+PROJECT_ROOT="$(cd "$SCRIPT_DIR/.." && pwd)"
+ARTIFACTS_DIR="$PROJECT_ROOT/artifacts"
+
+if [ $# -ne 2 ]; then
+    echo "Usage: $0 <command> <argument>"
+    echo "  Example: $0 constructors BreakBlockEvent"
+    exit 1
+fi
+
+"$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :app:build -x test --quiet
+"$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :app:xref --args="$ARTIFACTS_DIR $1 $2" --quiet